@@ -0,0 +1,43 @@
+package org.acoli.conll.rdf;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Conversion of CoNLL to sentence graphs, as done by CoNLLStreamExtractor for each sentence.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ExtractorBenchmark {
+	CoNLL2RDF conll2rdf;
+
+	@Setup
+	public void init() throws IOException {
+		conll2rdf = new CoNLL2RDF(UDCorpus.BASE_URI, UDCorpus.FIELDS);
+	}
+
+	@Benchmark
+	public void conll2model(UDCorpus corpus, SentenceCounters counters, Blackhole bh) throws IOException {
+		conll2rdf.setSentence(1);
+		for (String sentence : corpus.conll)
+			bh.consume(conll2rdf.conll2model(new StringReader(sentence)));
+		counters.add(corpus);
+	}
+}
@@ -0,0 +1,70 @@
+package org.acoli.conll.rdf;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.rdf.model.Model;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The per-sentence output functions of CoNLLRDFFormatter: -rdf (printTurtle), -conll (printConll, formerly
+ * printSparql with columnsAsSelect) and -grammar (extractCoNLLGraph).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class FormatterBenchmark {
+	static final List<String> COLUMNS = Arrays.asList("ID", "WORD", "LEMMA", "UPOS", "POS", "HEAD", "EDGE");
+
+	@Benchmark
+	public void printTurtle(UDCorpus corpus, SentenceCounters counters, Blackhole bh) throws IOException {
+		for (int i = 0; i < corpus.models.size(); i++) {
+			StringWriter out = new StringWriter();
+			CoNLLRDFFormatter.printTurtle(corpus.models.get(i), corpus.buffers.get(i), COLUMNS, out);
+			bh.consume(out.getBuffer());
+		}
+		counters.add(corpus);
+	}
+
+	@Benchmark
+	public void printSparqlColumnsAsSelect(UDCorpus corpus, SentenceCounters counters, Blackhole bh) throws IOException {
+		for (int i = 0; i < corpus.models.size(); i++) {
+			StringWriter out = new StringWriter();
+			CoNLLRDFFormatter.printSparql(corpus.models.get(i), corpus.buffers.get(i), CoNLLRDFFormatter.columnsAsSelect(COLUMNS), out);
+			bh.consume(out.getBuffer());
+		}
+		counters.add(corpus);
+	}
+
+	@Benchmark
+	public void printConll(UDCorpus corpus, SentenceCounters counters, Blackhole bh) throws IOException {
+		for (int i = 0; i < corpus.models.size(); i++) {
+			StringWriter out = new StringWriter();
+			CoNLLRDFFormatter.printConll(corpus.models.get(i), corpus.buffers.get(i), COLUMNS, out);
+			bh.consume(out.getBuffer());
+		}
+		counters.add(corpus);
+	}
+
+	@Benchmark
+	public void extractCoNLLGraph(UDCorpus corpus, SentenceCounters counters, Blackhole bh) {
+		for (Model m : corpus.models)
+			bh.consume(CoNLLRDFFormatter.extractCoNLLGraph(m, true));
+		counters.add(corpus);
+	}
+}
@@ -0,0 +1,29 @@
+package org.acoli.conll.rdf;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Sentences and tokens processed, reported by JMH as throughput per sentence and per token
+ * next to the throughput of the benchmark method, which processes the whole corpus.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class SentenceCounters {
+	public long sentences;
+	public long tokens;
+
+	@Setup(Level.Iteration)
+	public void reset() {
+		sentences = 0;
+		tokens = 0;
+	}
+
+	void add(UDCorpus corpus) {
+		sentences += corpus.conll.size();
+		tokens += corpus.tokens;
+	}
+}
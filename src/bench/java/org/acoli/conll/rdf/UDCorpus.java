@@ -0,0 +1,83 @@
+package org.acoli.conll.rdf;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.jena.rdf.model.Model;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The English UD dev data, as input of the benchmarks: CoNLL for the extractor, CoNLL-RDF for updater and formatter.
+ * Multiword tokens, empty nodes and comments are removed, as in examples/parse-ud.sh.
+ */
+@State(Scope.Benchmark)
+public class UDCorpus {
+	static final String DATA = "data/ud/UD_English-master/en-ud-dev.conllu.gz";
+	static final String BASE_URI = "https://github.com/UniversalDependencies/UD_English#";
+	static final String[] FIELDS = { "ID", "WORD", "LEMMA", "UPOS", "POS", "FEAT", "HEAD", "EDGE", "DEPS", "MISC" };
+
+	/** number of sentences to read, 0 for all */
+	@Param("200")
+	public int sentences;
+
+	/** CoNLL, one String per sentence */
+	final List<String> conll = new ArrayList<String>();
+	int tokens = 0;
+	/** sentence graphs, as produced by CoNLL2RDF */
+	final List<Model> models = new ArrayList<Model>();
+	/** sentences as formatter buffers, cf. CoNLLRDFFormatter.appendToBuffer */
+	final List<String> buffers = new ArrayList<String>();
+	/** CoNLL-RDF, as written by CoNLLStreamExtractor */
+	String turtle;
+
+	@Setup
+	public void read() throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(DATA)), StandardCharsets.UTF_8));
+		StringBuilder sentence = new StringBuilder();
+		int sentenceTokens = 0;
+		for (String line = in.readLine(); sentences <= 0 || conll.size() < sentences; line = in.readLine()) {
+			if (line == null || line.isEmpty()) {
+				if (sentenceTokens > 0) {
+					conll.add(sentence.append('\n').toString());
+					tokens += sentenceTokens;
+				}
+				sentence.setLength(0);
+				sentenceTokens = 0;
+				if (line == null)
+					break;
+			} else if (line.matches("^[0-9]+\t.*")) {
+				sentence.append(line).append('\n');
+				sentenceTokens++;
+			}
+		}
+		in.close();
+
+		CoNLL2RDF conll2rdf = new CoNLL2RDF(BASE_URI, FIELDS);
+		StringBuilder ttl = new StringBuilder();
+		for (String s : conll) {
+			Model m = conll2rdf.conll2model(new StringReader(s));
+			String text = new CoNLLRDFSentence(new ArrayList<String>(), m).toString();
+			String buffer = "";
+			String lastLine = "";
+			for (String line : text.split("\n")) {
+				line = line.replaceAll("[\t ]+", " ").trim();
+				buffer = CoNLLRDFFormatter.appendToBuffer(buffer, line, lastLine);
+				lastLine = line;
+			}
+			models.add(m);
+			buffers.add(buffer);
+			ttl.append(text);
+		}
+		turtle = ttl.toString();
+	}
+}
@@ -0,0 +1,82 @@
+package org.acoli.conll.rdf;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.lang3.tuple.ImmutableTriple;
+import org.apache.commons.lang3.tuple.Triple;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CoNLLRDFUpdater from Turtle input to Turtle output, running the shift-reduce parser of examples/parse-ud.sh.
+ * The OLiA linking of parse-ud.sh needs the OLiA ontologies from the web, it is replaced by {@link #LINK_PENN_OLIA}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class UpdaterBenchmark {
+	static final String SPARQL = "examples/sparql/";
+
+	/** assigns the OLiA concepts used by the REDUCE rules from Penn tags */
+	static final String LINK_PENN_OLIA = "PREFIX conll: <http://ufal.mff.cuni.cz/conll2009-st/task-description.html#>\n"
+			+ "PREFIX olia: <http://purl.org/olia/olia.owl#>\n"
+			+ "INSERT { ?w a ?concept } WHERE { ?w conll:POS ?pos .\n"
+			+ "VALUES (?pos ?concept) { (\"NN\" olia:Noun) (\"NNS\" olia:Noun) (\"NNP\" olia:Noun) (\"NNPS\" olia:Noun)\n"
+			+ "(\"JJ\" olia:Adjective) (\"JJR\" olia:Adjective) (\"JJS\" olia:Adjective) (\"RB\" olia:Adverb) (\"RBR\" olia:Adverb)\n"
+			+ "(\"RBS\" olia:Adverb) (\"CD\" olia:CardinalNumber) (\"DT\" olia:Determiner) (\"IN\" olia:Preposition)\n"
+			+ "(\"PRP\" olia:Pronoun) (\"PRP$\" olia:Pronoun) (\"VBD\" olia:FiniteVerb) (\"VBP\" olia:FiniteVerb)\n"
+			+ "(\"VBZ\" olia:FiniteVerb) (\"VBG\" olia:Gerund) (\"VB\" olia:Verb) (\"VBN\" olia:Verb) } }";
+
+	@Param("1")
+	public int threads;
+
+	/** sentences of lookahead and of lookback */
+	@Param("0")
+	public int window;
+
+	static List<Triple<String, String, String>> updates() {
+		List<Triple<String, String, String>> updates = new ArrayList<Triple<String, String, String>>();
+		updates.add(new ImmutableTriple<String, String, String>("remove-ID", SPARQL + "remove-ID.sparql", "1"));
+		updates.add(new ImmutableTriple<String, String, String>("link-penn-olia", LINK_PENN_OLIA, "1"));
+		updates.add(new ImmutableTriple<String, String, String>("initialize-SHIFT", SPARQL + "parse/initialize-SHIFT.sparql", "1"));
+		updates.add(new ImmutableTriple<String, String, String>("REDUCE-english-1", SPARQL + "parse/REDUCE-english-1.sparql", "5"));
+		updates.add(new ImmutableTriple<String, String, String>("REDUCE-english-2", SPARQL + "parse/REDUCE-english-2.sparql", "5"));
+		updates.add(new ImmutableTriple<String, String, String>("REDUCE-english-3", SPARQL + "parse/REDUCE-english-3.sparql", "5"));
+		updates.add(new ImmutableTriple<String, String, String>("REDUCE-english-4", SPARQL + "parse/REDUCE-english-4.sparql", "3"));
+		updates.add(new ImmutableTriple<String, String, String>("REDUCE-to-HEAD", SPARQL + "parse/REDUCE-to-HEAD.sparql", "1"));
+		return updates;
+	}
+
+	@Benchmark
+	public int parse(UDCorpus corpus, SentenceCounters counters) throws IOException, ParseException {
+		CoNLLRDFUpdater updater = new CoNLLRDFUpdater("", "", threads);
+		updater.parseUpdates(updates());
+		updater.activateLookahead(window);
+		updater.activateLookback(window);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		updater.setInputStream(new BufferedReader(new StringReader(corpus.turtle)));
+		updater.setOutputStream(new PrintStream(out));
+		updater.processSentenceStream();
+		counters.add(corpus);
+		return out.size();
+	}
+}
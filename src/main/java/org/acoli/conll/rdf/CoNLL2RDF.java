@@ -20,7 +20,12 @@ import java.nio.charset.*;
 import java.util.*;
 import java.util.regex.Pattern;
 import java.lang.reflect.*;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.rdf.model.*;	// Jena 3.x
+import org.apache.jena.vocabulary.RDF;
 //import com.hp.hpl.jena.rdf.model.*;		// Jena 2.x
 
 
@@ -71,8 +76,8 @@ public class CoNLL2RDF extends Format2RDF{
 		for(String line = ""; line!=null; line=bin.readLine()) {
 			//if(line.contains("#"))
 				//out.write(line.replaceFirst("^[^#]*","")); // uncomment to keep commentaries
-			line=line.replaceAll("<[\\/]?[psPS]( [^>]*>|>)","").trim(); 		// in this way, we can also read sketch engine data and split at s and p elements
-			if(!(line.trim().matches("^<[^>]*>$"))) {							// but we skip all other XML elements, as used by Sketch Engine or TreeTagger chunker
+			line=CoNLLLineLexer.stripSentenceMarkup(line).trim(); 		// in this way, we can also read sketch engine data and split at s and p elements
+			if(!CoNLLLineLexer.isMarkup(line)) {							// but we skip all other XML elements, as used by Sketch Engine or TreeTagger chunker
 				root = ":s"+sent+"_"+0;
 				if(line.trim().equals("") && !sentence.equals("")) {
 					for(String arg : argTriples)
@@ -83,7 +88,8 @@ public class CoNLL2RDF extends Format2RDF{
 					// sentence=sentence+".\n";
 					argTriples.clear();
 					if(col2field.get(col2field.size()-1).toLowerCase().matches(".*args")) {
-						for(int i = 0; i<predicates.size(); i++) {
+						// in descending order, so that _TMP_X_1 is not replaced within _TMP_X_10
+						for(int i = predicates.size()-1; i>=0; i--) {
 							sentence=sentence.replaceAll("_TMP_"+col2field.get(col2field.size()-1).replaceFirst("[\\-_]*[Aa][rR][gG][sS]$","_"+i),predicates.get(i));
 						}
 					}
@@ -96,7 +102,7 @@ public class CoNLL2RDF extends Format2RDF{
 				} else {
 					// if(line.contains("#")) out.write(line.replaceFirst("^[^#]*#", "#")+"\n");
 					// uncomment to keep comments
-					line=line.replaceFirst("#.*","").trim();
+					line=CoNLLLineLexer.stripComment(line).trim();
 					if(!line.equals("")) {
 						if(sentence.equals("")) {
 							if(sent>1) { 
@@ -107,7 +113,7 @@ public class CoNLL2RDF extends Format2RDF{
 						}
 						tok++;
 						String id_string = ""+tok;
-						String[] field = line.split("\t");
+						String[] field = CoNLLLineLexer.splitColumns(line);
 						try {
 							if(field2col.get("ID")!=null) id_string = field[field2col.get("ID")];
 						} catch (ArrayIndexOutOfBoundsException e) {
@@ -124,7 +130,7 @@ public class CoNLL2RDF extends Format2RDF{
 						sentence=sentence+URI+" a nif:Word";
 						for(int i = 0; i<field.length; i++) {
 							field[i]=field[i].trim();
-							if(!empty.matcher(field[i]).matches()) {
+							if(!CoNLLLineLexer.isEmptyValue(field[i])) {
 								if(i<col2field.size() && col2field.get(i).toLowerCase().equals("word"))
 									pos=pos+field[i].trim().length();
 								if(i<col2field.size() && col2field.get(i).toLowerCase().matches("^head[0-9]*$")) {
@@ -163,8 +169,8 @@ public class CoNLL2RDF extends Format2RDF{
 				sentence=sentence+".\n";
 				argTriples.clear();
 				if(col2field.get(col2field.size()-1).toLowerCase().matches(".*args$"))
-					for(int i = 0; i<predicates.size(); i++)
-						sentence=sentence.replaceAll("\\?"+col2field.get(col2field.size()-1).replaceFirst("[\\-_]*[Aa][rR][gG][sS]$","+"+i),predicates.get(i));
+					for(int i = predicates.size()-1; i>=0; i--)
+						sentence=sentence.replaceAll("_TMP_"+col2field.get(col2field.size()-1).replaceFirst("[\\-_]*[Aa][rR][gG][sS]$","_"+i),predicates.get(i));
 				out.write(sentence); //+"\n");
 			//out.write("\n");
 			for(String p : headSubProperties) 
@@ -180,4 +186,146 @@ public class CoNLL2RDF extends Format2RDF{
 				tok=0;
 			}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Same as conll2ttl(Reader, Writer), but creates the triples directly.
+	 * Gives up (returning false) on URIs or properties which would not be read verbatim from the Turtle produced by conll2ttl,
+	 * and on SRL arguments without a predicate, for which conll2ttl produces invalid Turtle.
+	 */
+	@Override
+	protected boolean conll2graph(Reader in, Graph graph) throws IOException {
+		final String base = getNamespace("");
+		final String conll = getNamespace("conll");
+		final String nif = getNamespace("nif");
+		final Node sentenceClass = NodeFactory.createURI(nif+"Sentence");
+		final Node wordClass = NodeFactory.createURI(nif+"Word");
+		final Node nextSentence = NodeFactory.createURI(nif+"nextSentence");
+		final Node nextWord = NodeFactory.createURI(nif+"nextWord");
+		final Node subPropertyOf = NodeFactory.createURI(getNamespace("rdfs")+"subPropertyOf");
+		final String argsColumn = col2field.get(col2field.size()-1);
+		final boolean hasArgs = argsColumn.toLowerCase().matches(".*args$");
+
+		// properties and special cases for all columns
+		Node[] properties = new Node[col2field.size()];
+		boolean[] isHead = new boolean[col2field.size()];
+		boolean[] isWord = new boolean[col2field.size()];
+		for(int i = 0; i<col2field.size(); i++) {
+			if(isSimpleLocalName(col2field.get(i)))
+				properties[i] = NodeFactory.createURI(conll+col2field.get(i));
+			isHead[i] = col2field.get(i).toLowerCase().matches("^head[0-9]*$");
+			isWord[i] = col2field.get(i).toLowerCase().equals("word");
+		}
+		final Node headProperty = NodeFactory.createURI(conll+"HEAD");
+		final String argsPredicate = argsColumn.replaceFirst("[\\-_]*[Aa][rR][gG][sS]$","");
+		final String argProperty = argsColumn.replaceFirst("([\\-_]*[Aa][rR][gG])[sS]$","$1");
+
+		BufferedReader bin = new BufferedReader(in);
+		List<Triple> sentence = new ArrayList<Triple>();
+		ArrayList<Node> predicates = new ArrayList<Node>();
+		// SRL arguments: predicate number, role, word
+		List<Triple> args = new ArrayList<Triple>();
+		Set<Triple> argsProperties = new LinkedHashSet<Triple>();
+		Node root = null;
+		Node lastWord = null;
+
+		for(String line = ""; line!=null; line=bin.readLine()) {
+			line=CoNLLLineLexer.stripSentenceMarkup(line).trim();
+			if(!CoNLLLineLexer.isMarkup(line)) {
+				root = NodeFactory.createURI(base+"s"+sent+"_"+0);
+				if(line.isEmpty() && !sentence.isEmpty()) {
+					if(!addSentence(graph, sentence, args, predicates))
+						return false;
+					sentence.clear();
+					args.clear();
+					predicates.clear();
+					tok=0;
+					sent++;
+				} else {
+					line=CoNLLLineLexer.stripComment(line).trim();
+					if(!line.isEmpty()) {
+						if(sentence.isEmpty()) {
+							if(sent>1)
+								sentence.add(Triple.create(NodeFactory.createURI(base+"s"+(sent-1)+"_"+0), nextSentence, root));
+							sentence.add(Triple.create(root, RDF.type.asNode(), sentenceClass));
+						}
+						tok++;
+						String id_string = ""+tok;
+						String[] field = CoNLLLineLexer.splitColumns(line);
+						try {
+							if(field2col.get("ID")!=null) id_string = field[field2col.get("ID")];
+						} catch (ArrayIndexOutOfBoundsException e) {
+							throw new ArrayIndexOutOfBoundsException("if defined as label, the ID column is obligatory");
+						}
+						String wordName = "s"+sent+"_"+id_string;
+						if(!isSimpleLocalName(wordName))
+							return false;
+						Node word = NodeFactory.createURI(base+wordName);
+
+						if(tok>1)
+							sentence.add(Triple.create(lastWord, nextWord, word));
+						lastWord = word;
+						sentence.add(Triple.create(word, RDF.type.asNode(), wordClass));
+						for(int i = 0; i<field.length; i++) {
+							field[i]=field[i].trim();
+							if(!CoNLLLineLexer.isEmptyValue(field[i])) {
+								if(i<col2field.size() && isWord[i])
+									pos=pos+field[i].length();
+								if(i<col2field.size() && isHead[i]) {
+									String headName = "s"+sent+"_"+field[i];
+									if(properties[i]==null || !isSimpleLocalName(headName))
+										return false;
+									sentence.add(Triple.create(word, properties[i], NodeFactory.createURI(base+headName)));
+								} else if (i<col2field.size()-1 || (i==col2field.size()-1 && !hasArgs)) {
+									if(properties[i]==null)
+										return false;
+									sentence.add(Triple.create(word, properties[i],
+											NodeFactory.createLiteral(field[i].replace("&","&amp;").replace("\"","&quot;"))));
+								} else if (hasArgs) {
+									if(!isSimpleLocalName(field[i]) || !isSimpleLocalName(argProperty))
+										return false;
+									Node role = NodeFactory.createURI(conll+field[i]);
+									args.add(Triple.create(NodeFactory.createLiteral(""+(i+1-col2field.size())), role, word));
+									argsProperties.add(Triple.create(role, subPropertyOf, NodeFactory.createURI(conll+argProperty)));
+								}
+								if(i<col2field.size() && col2field.get(i).equals(argsPredicate))
+									predicates.add(word);
+								pos++;
+							}
+						}
+						if(field2col.get("HEAD")==null) // if no HEAD annotation available, mark everything as depending on root
+							sentence.add(Triple.create(word, headProperty, root));
+					}
+				}
+			}
+		}
+		if(!sentence.isEmpty()) {
+			if(!addSentence(graph, sentence, args, predicates))
+				return false;
+			for(Triple t : argsProperties)
+				graph.add(t);
+		}
+
+		if(tok>0) {
+			sent++;
+			tok=0;
+		}
+		return true;
+	}
+
+	/**
+	 * Add the triples of a sentence to the graph, with SRL arguments attached to their predicates.
+	 * @param args SRL arguments, with the number of the predicate as subject
+	 * @return false if an argument refers to a missing predicate
+	 */
+	private static boolean addSentence(Graph graph, List<Triple> sentence, List<Triple> args, List<Node> predicates) {
+		for(Triple arg : args) {
+			int predicate = Integer.parseInt(arg.getSubject().getLiteralLexicalForm());
+			if(predicate>=predicates.size())
+				return false;
+			sentence.add(Triple.create(predicates.get(predicate), arg.getPredicate(), arg.getObject()));
+		}
+		for(Triple t : sentence)
+			graph.add(t);
+		return true;
+	}
+}
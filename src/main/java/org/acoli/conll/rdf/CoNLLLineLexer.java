@@ -0,0 +1,87 @@
+package org.acoli.conll.rdf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Classifies and splits lines of CoNLL (and similar TSV) input, as read by CoNLLStreamExtractor and CoNLL2RDF.
+ * Scans characters instead of running a regular expression per line, the only remaining expression is precompiled.
+ */
+final class CoNLLLineLexer {
+	/** sentence and paragraph markup, as in Sketch Engine data, e.g. <code>&lt;s&gt;</code> or <code>&lt;/p&gt;</code> */
+	private static final Pattern sentenceMarkup = Pattern.compile("<[\\/]?[psPS]( [^>]*>|>)");
+
+	private CoNLLLineLexer() {
+	}
+
+	/**
+	 * Remove sentence and paragraph markup, so that we can also read sketch engine data and split at s and p elements.
+	 */
+	static String stripSentenceMarkup(String line) {
+		if (line.indexOf('<') < 0)
+			return line;
+		return sentenceMarkup.matcher(line).replaceAll("");
+	}
+
+	/**
+	 * True for a (trimmed) line holding a single XML element, as used by Sketch Engine or TreeTagger chunker.
+	 * Same as <code>line.matches("^&lt;[^&gt;]*&gt;$")</code>.
+	 */
+	static boolean isMarkup(String line) {
+		return line.length() > 1 && line.charAt(0) == '<' && line.indexOf('>') == line.length() - 1;
+	}
+
+	/**
+	 * The comment in a line, starting with its first <code>#</code>, or null if there is none.
+	 */
+	static String getComment(String line) {
+		int hash = line.indexOf('#');
+		return (hash < 0) ? null : line.substring(hash);
+	}
+
+	/**
+	 * The line without its comment, if any.
+	 */
+	static String stripComment(String line) {
+		int hash = line.indexOf('#');
+		return (hash < 0) ? line : line.substring(0, hash);
+	}
+
+	/**
+	 * Split a row into its tab-separated columns. Same as <code>line.split("\t")</code>, i.e., trailing empty columns are dropped.
+	 */
+	static String[] splitColumns(String line) {
+		List<String> columns = new ArrayList<String>();
+		int start = 0;
+		for (int tab = line.indexOf('\t'); tab >= 0; tab = line.indexOf('\t', start)) {
+			columns.add(line.substring(start, tab));
+			start = tab + 1;
+		}
+		columns.add(line.substring(start));
+		int size = columns.size();
+		while (size > 1 && columns.get(size - 1).isEmpty())
+			size--;
+		if (size == 1 && columns.get(0).isEmpty() && !line.isEmpty())
+			size = 0;
+		return columns.subList(0, size).toArray(new String[size]);
+	}
+
+	/**
+	 * True for a cell without annotation: empty, <code>O</code>, <code>-</code>, <code>--</code>, <code>_</code> or <code>__</code>.
+	 * Same as <code>Format2RDF.empty</code>.
+	 */
+	static boolean isEmptyValue(String value) {
+		switch (value) {
+		case "":
+		case "O":
+		case "-":
+		case "--":
+		case "_":
+		case "__":
+			return true;
+		default:
+			return false;
+		}
+	}
+}
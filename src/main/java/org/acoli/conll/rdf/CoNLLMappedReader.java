@@ -0,0 +1,278 @@
+package org.acoli.conll.rdf;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a plain UTF-8 file, or a range of it, by memory-mapping it rather than through a FileReader.
+ * Sentence boundaries (blank lines) are found on the mapped bytes, and a chunk of whole sentences is decoded
+ * in one go when it is reached, cf. {@link #readLine()}. Files larger than a window of 1 GB are mapped window by window.
+ *
+ * A range of the file starts and ends at sentence boundaries, so that a file may be split into ranges
+ * which are read by several pipelines in parallel, cf. {@link #split(Path, int)}.
+ */
+public class CoNLLMappedReader extends BufferedReader {
+	static final long DEFAULT_WINDOW = 1L << 30;
+	// bytes decoded at once, cut at the last sentence boundary or line break
+	static final int CHUNK = 1 << 16;
+
+	private final FileChannel channel;
+	private final long size;
+	private final long window;
+	private final long start;
+	private final long end;
+	private byte[] bytes = new byte[CHUNK];
+	private MappedByteBuffer buffer = null;
+	// file offset of the first byte of buffer
+	private long bufferStart = 0;
+	// number of windows mapped so far
+	int maps = 0;
+	// the decoded sentences, read line by line
+	private String chunk = "";
+	// whether chunk has carriage returns, otherwise lines end at newlines only
+	private boolean carriageReturns = false;
+	private long chunkStart;
+	private int pos = 0;
+	// file offset of the next sentence
+	private long next;
+	private long markChunk = -1;
+	private int markPos;
+
+	public CoNLLMappedReader(Path file) throws IOException {
+		this(file, 0, Long.MAX_VALUE, DEFAULT_WINDOW);
+	}
+
+	/**
+	 * Read the sentences starting within a range of the file.
+	 * @param start file offset, moved to the next sentence boundary
+	 * @param end file offset, moved to the next sentence boundary
+	 */
+	public CoNLLMappedReader(Path file, long start, long end) throws IOException {
+		this(file, start, end, DEFAULT_WINDOW);
+	}
+
+	CoNLLMappedReader(Path file, long start, long end, long window) throws IOException {
+		super(new StringReader(""), 1);
+		this.channel = FileChannel.open(file, StandardOpenOption.READ);
+		this.size = channel.size();
+		this.window = window;
+		this.start = align(start);
+		this.end = align(end);
+		this.next = this.start;
+		this.chunkStart = this.start;
+	}
+
+	public long getStart() {
+		return start;
+	}
+
+	public long getEnd() {
+		return end;
+	}
+
+	/**
+	 * Split a file into about equally large ranges at sentence boundaries.
+	 * @return the offsets of the ranges, starting with 0 and ending with the size of the file;
+	 * fewer than parts ranges if the file has not enough sentences
+	 */
+	public static long[] split(Path file, int parts) throws IOException {
+		List<Long> offsets = new ArrayList<Long>();
+		try (CoNLLMappedReader reader = new CoNLLMappedReader(file)) {
+			offsets.add(0L);
+			for (int i = 1; i <= parts; i++) {
+				long offset = reader.align(reader.size * i / parts);
+				if (offset > offsets.get(offsets.size() - 1))
+					offsets.add(offset);
+			}
+		}
+		long[] result = new long[offsets.size()];
+		for (int i = 0; i < result.length; i++)
+			result[i] = offsets.get(i);
+		return result;
+	}
+
+	/** the first sentence boundary at or after offset: the start of the file, the end of a blank line, or the end of the file */
+	private long align(long offset) throws IOException {
+		if (offset <= 0)
+			return 0;
+		if (offset >= size)
+			return size;
+		long boundary = sentenceEnd(Math.max(0, offset - 3), size);
+		while (boundary < offset)
+			boundary = sentenceEnd(boundary, size);
+		return boundary;
+	}
+
+	/** the offset after the first blank line at or after from, limit if there is none */
+	private long sentenceEnd(long from, long limit) throws IOException {
+		int newlines = 0;
+		for (long p = from; p < limit; p++) {
+			byte b = byteAt(p);
+			if (b == '\n') {
+				if (++newlines == 2)
+					return p + 1;
+			} else if (b != '\r') {
+				newlines = 0;
+			}
+		}
+		return limit;
+	}
+
+	/** the end of the chunk starting at from: the last sentence boundary within CHUNK bytes, else the last line break */
+	private long chunkEnd(long from) throws IOException {
+		long limit = from + CHUNK;
+		if (limit >= end)
+			return end;
+		// scanned backwards, so the window has to start at or before from
+		mapCovering(from, limit);
+		long lineEnd = -1;
+		for (long p = limit - 1; p > from; p--) {
+			if (byteAt(p) == '\n') {
+				if (byteAt(p - 1) == '\n' || (byteAt(p - 1) == '\r' && p - 1 > from && byteAt(p - 2) == '\n'))
+					return p + 1;
+				if (lineEnd < 0)
+					lineEnd = p + 1;
+			}
+		}
+		if (lineEnd > 0)
+			return lineEnd;
+		// a single line longer than CHUNK
+		for (long p = limit; p < end; p++)
+			if (byteAt(p) == '\n')
+				return p + 1;
+		return end;
+	}
+
+	/** the byte at offset, mapping a window starting there if it is not mapped */
+	private byte byteAt(long offset) throws IOException {
+		mapCovering(offset, offset + 1);
+		return buffer.get((int) (offset - bufferStart));
+	}
+
+	/** map a window starting at from and containing the bytes up to limit, unless they are mapped already */
+	private void mapCovering(long from, long limit) throws IOException {
+		if (buffer != null && from >= bufferStart && limit <= bufferStart + buffer.limit())
+			return;
+		long mapped = Math.min(Math.max(window, limit - from), size - from);
+		if (mapped > Integer.MAX_VALUE)
+			throw new IOException("Cannot map " + mapped + " bytes at once");
+		buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, mapped);
+		bufferStart = from;
+		maps++;
+	}
+
+	/** decode the next chunk, false at the end of the range */
+	private boolean fill() throws IOException {
+		while (pos >= chunk.length()) {
+			if (next >= end)
+				return false;
+			long chunkEnd = chunkEnd(next);
+			int length = (int) (chunkEnd - next);
+			mapCovering(next, chunkEnd);
+			if (bytes.length < length)
+				bytes = new byte[length];
+			ByteBuffer slice = buffer.duplicate();
+			slice.position((int) (next - bufferStart));
+			slice.get(bytes, 0, length);
+			// malformed input is replaced, as by a FileReader
+			chunk = new String(bytes, 0, length, StandardCharsets.UTF_8);
+			carriageReturns = chunk.indexOf('\r') >= 0;
+			chunkStart = next;
+			pos = 0;
+			next = chunkEnd;
+		}
+		return true;
+	}
+
+	@Override
+	public String readLine() throws IOException {
+		if (!fill())
+			return null;
+		int i = carriageReturns ? pos : chunk.indexOf('\n', pos);
+		if (i < 0)
+			i = chunk.length();
+		while (carriageReturns && i < chunk.length() && chunk.charAt(i) != '\n' && chunk.charAt(i) != '\r')
+			i++;
+		String line = chunk.substring(pos, i);
+		if (i < chunk.length() && chunk.charAt(i++) == '\r' && i < chunk.length() && chunk.charAt(i) == '\n')
+			i++;
+		pos = i;
+		return line;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!fill())
+			return -1;
+		return chunk.charAt(pos++);
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		if (len == 0)
+			return 0;
+		if (!fill())
+			return -1;
+		int n = Math.min(len, chunk.length() - pos);
+		chunk.getChars(pos, pos + n, cbuf, off);
+		pos += n;
+		return n;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = 0;
+		while (skipped < n && fill()) {
+			int step = (int) Math.min(n - skipped, chunk.length() - pos);
+			pos += step;
+			skipped += step;
+		}
+		return skipped;
+	}
+
+	@Override
+	public boolean ready() {
+		return pos < chunk.length() || next < end;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return true;
+	}
+
+	/** The read ahead limit is not needed, a mark stays valid until the next one */
+	@Override
+	public void mark(int readAheadLimit) {
+		markChunk = chunkStart;
+		markPos = pos;
+	}
+
+	@Override
+	public void reset() throws IOException {
+		if (markChunk < 0)
+			throw new IOException("Stream not marked");
+		next = markChunk;
+		chunk = "";
+		pos = 0;
+		fill();
+		pos = markPos;
+	}
+
+	@Override
+	public void close() throws IOException {
+		buffer = null;
+		chunk = "";
+		next = end;
+		channel.close();
+		super.close();
+	}
+}
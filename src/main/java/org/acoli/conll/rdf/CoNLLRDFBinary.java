@@ -0,0 +1,115 @@
+package org.acoli.conll.rdf;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.RiotException;
+
+/**
+ * Binary CoNLL-RDF stream, an alternative to Turtle text between components running in separate processes.
+ * The stream starts with the bytes <code>CRDF</code> and a version byte, followed by one record per sentence:
+ * <pre>
+ * int     length of the record in bytes, excluding this field
+ * int     length of the comment block in bytes
+ * byte[]  comment lines, UTF-8, each terminated by a newline
+ * byte[]  sentence graph and its prefixes in RDF Thrift
+ * </pre>
+ * Integers are big-endian. The stream ends after the last record. A record is at most 256 MB long.
+ */
+public class CoNLLRDFBinary {
+	static final byte[] MAGIC = "CRDF".getBytes(StandardCharsets.US_ASCII);
+	static final int VERSION = 1;
+	// records longer than that are taken for a corrupt stream, checked before the record is allocated
+	static final int MAX_RECORD = 1 << 28;
+
+	private CoNLLRDFBinary() {
+	}
+
+	static void writeHeader(DataOutputStream out) throws IOException {
+		out.write(MAGIC);
+		out.write(VERSION);
+	}
+
+	/**
+	 * Check the header of a binary stream.
+	 * @return false if the stream is empty
+	 * @throws IOException if the stream is not a binary CoNLL-RDF stream
+	 */
+	static boolean readHeader(DataInputStream in) throws IOException {
+		byte[] header = new byte[MAGIC.length + 1];
+		int read = 0;
+		for (int n; read < header.length && (n = in.read(header, read, header.length - read)) >= 0; )
+			read += n;
+		if (read == 0)
+			return false;
+		if (read < header.length || !Arrays.equals(Arrays.copyOf(header, MAGIC.length), MAGIC))
+			throw new IOException("Input is not binary CoNLL-RDF, check that the previous component was run with -binary");
+		if (header[MAGIC.length] != VERSION)
+			throw new IOException("Unsupported version of binary CoNLL-RDF: " + header[MAGIC.length]);
+		return true;
+	}
+
+	/**
+	 * Write a sentence as a single record. The stream is not flushed.
+	 * @throws IOException if the record would be longer than {@link #MAX_RECORD}
+	 */
+	static void write(CoNLLRDFSentence sentence, DataOutputStream out) throws IOException {
+		StringBuilder comments = new StringBuilder();
+		for (String comment : sentence.getComments())
+			comments.append(comment).append('\n');
+		byte[] commentBytes = comments.toString().getBytes(StandardCharsets.UTF_8);
+		ByteArrayOutputStream graph = new ByteArrayOutputStream();
+		RDFDataMgr.write(graph, sentence.getModel(), RDFFormat.RDF_THRIFT);
+		if ((long) 4 + commentBytes.length + graph.size() > MAX_RECORD)
+			throw new IOException("Sentence too large for binary CoNLL-RDF: " + (4 + commentBytes.length + graph.size()) + " bytes");
+		out.writeInt(4 + commentBytes.length + graph.size());
+		out.writeInt(commentBytes.length);
+		out.write(commentBytes);
+		graph.writeTo(out);
+	}
+
+	/**
+	 * Read the next record.
+	 * @return the sentence, or null at the end of the stream
+	 * @throws EOFException if the stream ends within a record
+	 */
+	static CoNLLRDFSentence read(DataInputStream in) throws IOException {
+		int length;
+		try {
+			length = in.readInt();
+		} catch (EOFException e) {
+			return null;
+		}
+		if (length < 4 || length > MAX_RECORD)
+			throw new IOException("Corrupt binary CoNLL-RDF: record of " + length + " bytes");
+		byte[] record = new byte[length];
+		in.readFully(record);
+		int commentLength = ((record[0] & 0xff) << 24) | ((record[1] & 0xff) << 16) | ((record[2] & 0xff) << 8) | (record[3] & 0xff);
+		if (commentLength < 0 || commentLength > length - 4)
+			throw new IOException("Corrupt binary CoNLL-RDF: comment block of " + commentLength + " bytes");
+		List<String> comments = new ArrayList<String>();
+		for (String comment : new String(record, 4, commentLength, StandardCharsets.UTF_8).split("\n"))
+			if (!comment.isEmpty())
+				comments.add(comment);
+		Model model = ModelFactory.createDefaultModel();
+		try {
+			RDFDataMgr.read(model, new ByteArrayInputStream(record, 4 + commentLength, length - 4 - commentLength), Lang.RDFTHRIFT);
+		} catch (RiotException e) {
+			throw new IOException("Corrupt binary CoNLL-RDF: " + e.getMessage(), e);
+		}
+		return new CoNLLRDFSentence(comments, model);
+	}
+}
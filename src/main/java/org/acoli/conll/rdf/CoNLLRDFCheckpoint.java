@@ -0,0 +1,204 @@
+package org.acoli.conll.rdf;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Progress of a CoNLLRDFManager run, to resume it after the JVM died.
+ * The first component of the pipeline reports the input lines each sentence was read from, the last one reports
+ * each sentence when it is flushed to the output. Every interval sentences, the number of input lines and output bytes
+ * of the sentences written so far is saved to the checkpoint file. A run started with an existing checkpoint file
+ * truncates the output to the saved length, skips the saved number of input lines and appends to the output.
+ * The checkpoint file is deleted once the run is complete.<br>
+ * This assumes each sentence read by the first component results in one sentence written by the last one.
+ */
+public class CoNLLRDFCheckpoint {
+	static Logger LOG = LogManager.getLogger(CoNLLRDFCheckpoint.class);
+	// sentences written between two checkpoints, by default
+	static final int DEFAULT_INTERVAL = 1000;
+
+	private final File file;
+	private final int interval;
+	private final boolean resuming;
+	// progress as restored or last saved
+	private long sentences = 0;
+	private int sentence = 0;
+	private long lines = 0;
+	private long bytes = 0;
+	// input lines skipped when resuming, the first component counts from there
+	private final long skippedLines;
+	// input lines and number of the sentences read, but not written yet
+	private final Queue<long[]> read = new ConcurrentLinkedQueue<long[]>();
+	private CountingOutputStream output = null;
+
+	/**
+	 * @param file the checkpoint file, restored if it exists
+	 * @param interval sentences written between two checkpoints
+	 */
+	public CoNLLRDFCheckpoint(File file, int interval) throws IOException {
+		if (interval < 1)
+			throw new IllegalArgumentException("Checkpoint interval must be positive, not " + interval);
+		this.file = file;
+		this.interval = interval;
+		this.resuming = file.exists();
+		if (resuming) {
+			Properties saved = new Properties();
+			try (FileInputStream in = new FileInputStream(file)) {
+				saved.load(in);
+				sentences = Long.parseLong(saved.getProperty("sentences"));
+				sentence = Integer.parseInt(saved.getProperty("sentence"));
+				lines = Long.parseLong(saved.getProperty("lines"));
+				bytes = Long.parseLong(saved.getProperty("bytes"));
+			} catch (NumberFormatException | NullPointerException e) {
+				throw new IOException("Invalid checkpoint " + file, e);
+			}
+			LOG.info("Resuming after sentence " + sentence + ", " + sentences + " sentences were written");
+		}
+		skippedLines = lines;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public int getInterval() {
+		return interval;
+	}
+
+	/** whether the checkpoint file existed, i.e. the run is resumed */
+	public boolean isResuming() {
+		return resuming;
+	}
+
+	/** number of the last sentence written before the checkpoint, as numbered by the first component */
+	public int getSentence() {
+		return sentence;
+	}
+
+	/** input lines read for the sentences written before the checkpoint */
+	public long getLines() {
+		return lines;
+	}
+
+	/** output bytes written before the checkpoint */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Open the output file of the run. When resuming, the output is truncated to its length at the checkpoint and appended to.
+	 * @param confEntry the output as configured, which has to be a file
+	 */
+	PrintStream openOutput(String confEntry) throws IOException {
+		if (confEntry == null || confEntry.equals("System.out"))
+			throw new IllegalArgumentException("A checkpoint requires the output to be a file");
+		if (CoNLLRDFCompression.isCompressed(confEntry))
+			throw new IllegalArgumentException("A checkpoint requires the output to be uncompressed");
+		File outputFile = new File(confEntry);
+		if (resuming) {
+			if (!outputFile.exists() || outputFile.length() < bytes)
+				throw new IOException("Cannot resume, " + confEntry + " is shorter than at the checkpoint " + file);
+			try (FileChannel channel = FileChannel.open(outputFile.toPath(), StandardOpenOption.WRITE)) {
+				channel.truncate(bytes);
+			}
+		}
+		output = new CountingOutputStream(new FileOutputStream(outputFile, resuming), bytes);
+		return new PrintStream(output);
+	}
+
+	/** skip the input lines read before the checkpoint */
+	void skipInput(BufferedReader input) throws IOException {
+		for (long i = 0; i < skippedLines; i++)
+			if (input.readLine() == null)
+				throw new IOException("Cannot resume, the input is shorter than at the checkpoint " + file);
+		LOG.info("Skipped " + skippedLines + " lines of input");
+	}
+
+	/**
+	 * Called by the first component, before handing a sentence on.
+	 * @param lines input lines read by the component, up to the end of the sentence
+	 * @param sentence number of the sentence
+	 */
+	void sentenceRead(long lines, int sentence) {
+		read.add(new long[] { skippedLines + lines, sentence });
+	}
+
+	/** Called by the last component, once a sentence is flushed to the output. Saves the checkpoint every interval sentences. */
+	synchronized void sentenceWritten() throws IOException {
+		long[] position = read.poll();
+		if (position == null)
+			return; // trailing output without a sentence of its own
+		sentences++;
+		lines = position[0];
+		sentence = (int) position[1];
+		bytes = output.count;
+		if (sentences % interval == 0)
+			save();
+	}
+
+	/** save the current progress, once the output written so far is on disk */
+	synchronized void save() throws IOException {
+		output.sync();
+		Properties progress = new Properties();
+		progress.setProperty("sentences", Long.toString(sentences));
+		progress.setProperty("sentence", Integer.toString(sentence));
+		progress.setProperty("lines", Long.toString(lines));
+		progress.setProperty("bytes", Long.toString(bytes));
+		File tmp = new File(file.getPath() + ".tmp");
+		try (FileOutputStream out = new FileOutputStream(tmp)) {
+			progress.store(out, "CoNLLRDFManager checkpoint");
+			out.getFD().sync();
+		}
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		LOG.debug("Checkpoint after sentence " + sentence);
+	}
+
+	/** the run is complete, a later run starts from scratch */
+	void finish() throws IOException {
+		Files.deleteIfExists(file.toPath());
+		LOG.info("Run complete after " + sentences + " sentences, removed checkpoint " + file);
+	}
+
+	/** the output file, counting the bytes written */
+	private static class CountingOutputStream extends FilterOutputStream {
+		private final FileOutputStream file;
+		private volatile long count;
+
+		CountingOutputStream(FileOutputStream out, long count) {
+			super(out);
+			this.file = out;
+			this.count = count;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+
+		void sync() throws IOException {
+			file.getFD().sync();
+		}
+	}
+}
@@ -1,14 +1,21 @@
 package org.acoli.conll.rdf;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.PrintStream;
-import java.util.Arrays;
-import java.util.List;
+import java.io.UncheckedIOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 public abstract class CoNLLRDFComponent implements Runnable {
-	static final List<Integer> CHECKINTERVAL = Arrays.asList(3, 10, 25, 50, 100, 200, 500);
 	static final String DEFAULTUPDATENAME = "DIRECTUPDATE";
 	// maximal update iterations allowed until the update loop is canceled and an error msg is thrown
 	// (to prevent faulty update scripts running in an endless loop)
@@ -16,6 +23,17 @@ public abstract class CoNLLRDFComponent implements Runnable {
 
 	private BufferedReader inputStream = new BufferedReader(new InputStreamReader(System.in));
 	private PrintStream outputStream = System.out;
+	// in-memory handoff of sentences between components, replaces the text streams if set
+	private BlockingQueue<CoNLLRDFSentence> sentenceInput = null;
+	private BlockingQueue<CoNLLRDFSentence> sentenceOutput = null;
+	// binary CoNLL-RDF instead of Turtle text on the streams, cf. CoNLLRDFBinary
+	private boolean binary = false;
+	private InputStream binaryInputStream = System.in;
+	private DataInputStream binaryInput = null;
+	private DataOutputStream binaryOutput = null;
+	// progress of a resumable run: the first component reports the sentences read, the last one the sentences written
+	private CoNLLRDFCheckpoint inputProgress = null;
+	private CoNLLRDFCheckpoint outputProgress = null;
 
 	protected abstract void processSentenceStream() throws IOException;
 
@@ -31,14 +49,193 @@ public abstract class CoNLLRDFComponent implements Runnable {
 	public final void setOutputStream(PrintStream outputStream) {
 		this.outputStream = outputStream;
 	}
+	public final BlockingQueue<CoNLLRDFSentence> getSentenceInput() {
+		return sentenceInput;
+	}
+	public final void setSentenceInput(BlockingQueue<CoNLLRDFSentence> sentenceInput) {
+		this.sentenceInput = sentenceInput;
+	}
+	public final BlockingQueue<CoNLLRDFSentence> getSentenceOutput() {
+		return sentenceOutput;
+	}
+	public final void setSentenceOutput(BlockingQueue<CoNLLRDFSentence> sentenceOutput) {
+		this.sentenceOutput = sentenceOutput;
+	}
+
+	public final boolean getBinary() {
+		return binary;
+	}
+	/**
+	 * Read and write CoNLL-RDF in the binary format of {@link CoNLLRDFBinary} rather than as Turtle.
+	 * Applies to the input if the component reads CoNLL-RDF, and to the output if it writes CoNLL-RDF.
+	 * Binary input is read from {@link #setBinaryInputStream(InputStream)}, by default System.in,
+	 * binary output is written to the output stream.
+	 */
+	public final void setBinary(boolean binary) {
+		this.binary = binary;
+	}
+	public final void setBinaryInputStream(InputStream binaryInputStream) {
+		this.binaryInputStream = binaryInputStream;
+	}
+
+	/**
+	 * Whether sentences are read by {@link #readSentence()}, from the sentence input queue or a binary input stream.
+	 */
+	protected final boolean hasSentenceInput() {
+		return sentenceInput != null || (binary && acceptsSentenceInput());
+	}
+
+	/**
+	 * Whether sentences are written by {@link #writeSentence(CoNLLRDFSentence)}, to the sentence output queue or a binary output stream.
+	 */
+	protected final boolean hasSentenceOutput() {
+		return sentenceOutput != null || (binary && producesSentenceOutput());
+	}
+
+	final void setInputProgress(CoNLLRDFCheckpoint inputProgress) {
+		this.inputProgress = inputProgress;
+	}
+	final void setOutputProgress(CoNLLRDFCheckpoint outputProgress) {
+		this.outputProgress = outputProgress;
+	}
+
+	/**
+	 * Report a sentence read from the input, before it is handed on. Only reported by the first component of a pipeline.
+	 * @param lines the lines read from the input stream, up to the end of the sentence
+	 * @param sentence the number of the sentence
+	 */
+	protected final void sentenceRead(long lines, int sentence) {
+		if (inputProgress != null)
+			inputProgress.sentenceRead(lines, sentence);
+	}
+
+	/**
+	 * Report a sentence, or what is left of it, as written and flushed to the output stream.
+	 * Binary output is flushed here if the progress is reported, and buffered otherwise.
+	 */
+	protected final void sentenceWritten() throws IOException {
+		if (outputProgress != null) {
+			if (binaryOutput != null)
+				binaryOutput.flush();
+			outputProgress.sentenceWritten();
+		}
+	}
+
+	/**
+	 * Whether this component can read {@link CoNLLRDFSentence} objects from {@link #getSentenceInput()}
+	 * instead of parsing CoNLL-RDF from its input stream.
+	 */
+	protected boolean acceptsSentenceInput() {
+		return false;
+	}
+
+	/**
+	 * Whether this component, as configured, emits CoNLL-RDF that can be handed on
+	 * as {@link CoNLLRDFSentence} objects via {@link #getSentenceOutput()}.
+	 */
+	protected boolean producesSentenceOutput() {
+		return false;
+	}
+
+	/**
+	 * Take the next sentence from the sentence input queue, or read it from the binary input stream.
+	 * @return the next sentence, or null at the end of the stream
+	 * @throws InterruptedIOException if interrupted while waiting
+	 */
+	protected final CoNLLRDFSentence readSentence() throws IOException {
+		if (sentenceInput == null) {
+			if (binaryInput == null) {
+				binaryInput = new DataInputStream(new BufferedInputStream(binaryInputStream));
+				if (!CoNLLRDFBinary.readHeader(binaryInput))
+					return null;
+			}
+			return CoNLLRDFBinary.read(binaryInput);
+		}
+		final CoNLLRDFSentence sentence;
+		try {
+			sentence = sentenceInput.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the next sentence");
+		}
+		return (sentence == CoNLLRDFSentence.END_OF_STREAM) ? null : sentence;
+	}
+
+	/**
+	 * Wait for the result of a worker thread. Exceptions of the worker thread are rethrown.
+	 * @throws InterruptedIOException if interrupted while waiting
+	 */
+	protected static <T> T await(Future<T> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the worker threads");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IOException(cause);
+		}
+	}
+
+	/**
+	 * Hand a sentence on to the sentence output queue, blocks while the queue is full.
+	 * Without a queue, the sentence is written to the output stream in binary, without flushing.
+	 * @throws InterruptedIOException if interrupted while waiting
+	 */
+	protected final void writeSentence(CoNLLRDFSentence sentence) throws IOException {
+		if (sentenceOutput == null) {
+			if (binaryOutput == null) {
+				binaryOutput = new DataOutputStream(new BufferedOutputStream(outputStream, 1 << 16));
+				CoNLLRDFBinary.writeHeader(binaryOutput);
+			}
+			if (sentence != CoNLLRDFSentence.END_OF_STREAM)
+				CoNLLRDFBinary.write(sentence, binaryOutput);
+			return;
+		}
+		try {
+			sentenceOutput.put(sentence);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while handing on a sentence");
+		}
+	}
+
+	/**
+	 * Signal the end of output: marks the end of the sentence output queue if set,
+	 * closes the output stream otherwise.
+	 */
+	protected final void closeOutput() throws IOException {
+		if (sentenceOutput != null) {
+			writeSentence(CoNLLRDFSentence.END_OF_STREAM);
+		} else if (binaryOutput != null) {
+			binaryOutput.close();
+		} else {
+			close(outputStream);
+		}
+	}
+
+	/**
+	 * Close a print stream and fail if it swallowed an error, e.g. while completing compressed output.
+	 */
+	static void close(PrintStream out) throws IOException {
+		out.close();
+		if (out.checkError())
+			throw new IOException("Failed to write the output");
+	}
 
 	@Override
 	public final void run() {
 		try {
 			processSentenceStream();
 		} catch (IOException e) {
-			e.printStackTrace();
-			System.exit(1);
+			// reported by the thread running the component, cf. CoNLLRDFManager#start()
+			throw new UncheckedIOException(e);
 		}
 	}
 	// TODO is this method used anywhere?
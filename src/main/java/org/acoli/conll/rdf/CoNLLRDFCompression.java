@@ -0,0 +1,357 @@
+package org.acoli.conll.rdf;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Reading and writing gzip on threads of their own, so that (de)compression does not run on the thread of a component.
+ * Input is inflated ahead in blocks of 1 MB. Multi-member gzip is read member after member;
+ * BGZF, as written by <code>bgzip</code>, is inflated on several threads, as its members are marked with their size.
+ * Output is handed to the compressing thread in blocks of 1 MB.
+ */
+public class CoNLLRDFCompression {
+	static Logger LOG = LogManager.getLogger(CoNLLRDFCompression.class);
+	static final int BLOCK = 1 << 20;
+	static final int BUFFER = 1 << 16;
+	// blocks read ahead, or waiting to be compressed
+	static final int QUEUE = 8;
+	// ends a queue of blocks, never carries data
+	private static final byte[] END = new byte[0];
+
+	private CoNLLRDFCompression() {
+	}
+
+	/** whether a file is to be (de)compressed, by its name */
+	static boolean isCompressed(String fileName) {
+		return fileName.endsWith(".gz");
+	}
+
+	/**
+	 * Inflate gzip on a separate thread, or BGZF on as many threads as there are processors.
+	 */
+	public static InputStream decompress(InputStream compressed) throws IOException {
+		return decompress(compressed, Runtime.getRuntime().availableProcessors());
+	}
+
+	static InputStream decompress(InputStream compressed, int threads) throws IOException {
+		BufferedInputStream in = new BufferedInputStream(compressed, BUFFER);
+		in.mark(18);
+		byte[] header = new byte[18];
+		int read = 0;
+		for (int n; read < header.length && (n = in.read(header, read, header.length - read)) >= 0; )
+			read += n;
+		in.reset();
+		if (read == header.length && isBgzf(header)) {
+			LOG.debug("Inflating BGZF on " + threads + " threads");
+			// BGZF members hold at most 64 KB, keep all threads busy
+			return new ReadAheadInputStream(new BgzfInflater(in, threads), Math.max(QUEUE, 4 * threads));
+		}
+		return new ReadAheadInputStream(new GzipInflater(in), QUEUE);
+	}
+
+	/**
+	 * Deflate to gzip on a separate thread. The returned stream has to be closed to complete the output,
+	 * flushing it does not reach the underlying stream.
+	 */
+	public static OutputStream compress(OutputStream out) {
+		return new DeflatingOutputStream(out);
+	}
+
+	/** whether a gzip member header is that of BGZF: an extra field <code>BC</code> holding the size of the member */
+	static boolean isBgzf(byte[] header) {
+		return (header[0] & 0xff) == 31 && (header[1] & 0xff) == 139 && header[2] == 8 && (header[3] & 4) != 0
+				&& header[10] == 6 && header[11] == 0 && header[12] == 'B' && header[13] == 'C' && header[14] == 2 && header[15] == 0;
+	}
+
+	/** produces the decompressed blocks, in order */
+	private interface BlockSource {
+		void run(BlockingQueue<Future<byte[]>> blocks) throws IOException, InterruptedException;
+
+		void close() throws IOException;
+	}
+
+	private static class GzipInflater implements BlockSource {
+		private final GZIPInputStream in;
+
+		GzipInflater(InputStream in) throws IOException {
+			this.in = new GZIPInputStream(in, BUFFER);
+		}
+
+		@Override
+		public void run(BlockingQueue<Future<byte[]>> blocks) throws IOException, InterruptedException {
+			while (true) {
+				byte[] block = new byte[BLOCK];
+				int length = 0;
+				for (int n; length < block.length && (n = in.read(block, length, block.length - length)) >= 0; )
+					length += n;
+				if (length == 0)
+					return;
+				blocks.put(CompletableFuture.completedFuture((length < block.length) ? Arrays.copyOf(block, length) : block));
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+
+	/** reads the BGZF members on the calling thread, and inflates them on a pool of threads */
+	private static class BgzfInflater implements BlockSource {
+		private final DataInputStream in;
+		private final ExecutorService executor;
+
+		BgzfInflater(InputStream in, int threads) {
+			this.in = new DataInputStream(in);
+			this.executor = Executors.newFixedThreadPool(Math.max(threads, 1), runnable -> {
+				Thread thread = new Thread(runnable, "BGZF inflater");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+
+		@Override
+		public void run(BlockingQueue<Future<byte[]>> blocks) throws IOException, InterruptedException {
+			byte[] header = new byte[18];
+			try {
+				for (int read; (read = in.read(header)) >= 0; ) {
+					in.readFully(header, read, header.length - read);
+					if (!isBgzf(header))
+						throw new IOException("Corrupt BGZF member");
+					int size = ((header[16] & 0xff) | (header[17] & 0xff) << 8) + 1;
+					byte[] member = new byte[size - header.length];
+					in.readFully(member);
+					blocks.put(executor.submit(() -> inflate(member)));
+				}
+			} finally {
+				executor.shutdown();
+			}
+		}
+
+		/** inflate the deflated data and check the trailer of a member without its header */
+		private static byte[] inflate(byte[] member) throws IOException {
+			int trailer = member.length - 8;
+			long crc = (member[trailer] & 0xffL) | (member[trailer + 1] & 0xffL) << 8 | (member[trailer + 2] & 0xffL) << 16 | (member[trailer + 3] & 0xffL) << 24;
+			int size = (member[trailer + 4] & 0xff) | (member[trailer + 5] & 0xff) << 8 | (member[trailer + 6] & 0xff) << 16 | (member[trailer + 7] & 0xff) << 24;
+			byte[] data = new byte[size];
+			Inflater inflater = new Inflater(true);
+			try {
+				inflater.setInput(member, 0, trailer);
+				int length = 0;
+				while (length < size && !inflater.finished()) {
+					int n = inflater.inflate(data, length, size - length);
+					if (n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+						break;
+					length += n;
+				}
+				if (length != size)
+					throw new EOFException("Truncated BGZF member");
+			} catch (DataFormatException e) {
+				throw new IOException("Corrupt BGZF member", e);
+			} finally {
+				inflater.end();
+			}
+			CRC32 check = new CRC32();
+			check.update(data, 0, size);
+			if (check.getValue() != crc)
+				throw new IOException("CRC mismatch in BGZF member");
+			return data;
+		}
+
+		@Override
+		public void close() throws IOException {
+			executor.shutdownNow();
+			in.close();
+		}
+	}
+
+	/** reads the blocks produced by a BlockSource on a thread of its own */
+	private static class ReadAheadInputStream extends InputStream {
+		private final BlockingQueue<Future<byte[]>> blocks;
+		private final BlockSource source;
+		private final Thread thread;
+		private byte[] block = new byte[0];
+		private int pos = 0;
+
+		ReadAheadInputStream(BlockSource source, int capacity) {
+			this.blocks = new ArrayBlockingQueue<Future<byte[]>>(capacity);
+			this.source = source;
+			this.thread = new Thread(this::produce, "decompression");
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		private void produce() {
+			CompletableFuture<byte[]> end = new CompletableFuture<byte[]>();
+			try {
+				source.run(blocks);
+				end.complete(END);
+			} catch (InterruptedException e) {
+				return;
+			} catch (Exception e) {
+				end.completeExceptionally(e);
+			}
+			try {
+				blocks.put(end);
+			} catch (InterruptedException e) {
+				// closed
+			}
+		}
+
+		/** false at the end of the stream */
+		private boolean fill() throws IOException {
+			while (pos >= block.length) {
+				if (block == END)
+					return false;
+				final Future<byte[]> next;
+				try {
+					next = blocks.take();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while waiting for decompression");
+				}
+				block = CoNLLRDFComponent.await(next);
+				pos = 0;
+			}
+			return true;
+		}
+
+		@Override
+		public int read() throws IOException {
+			return fill() ? block[pos++] & 0xff : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0)
+				return 0;
+			if (!fill())
+				return -1;
+			int n = Math.min(len, block.length - pos);
+			System.arraycopy(block, pos, b, off, n);
+			pos += n;
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return block.length - pos;
+		}
+
+		@Override
+		public void close() throws IOException {
+			thread.interrupt();
+			source.close();
+		}
+	}
+
+	/** collects the output in blocks, which are deflated on a thread of its own */
+	private static class DeflatingOutputStream extends OutputStream {
+		private final BlockingQueue<byte[]> blocks = new ArrayBlockingQueue<byte[]>(QUEUE);
+		private final OutputStream out;
+		private final Thread thread;
+		private volatile IOException exception = null;
+		private byte[] block = new byte[BLOCK];
+		private int length = 0;
+		private boolean closed = false;
+
+		DeflatingOutputStream(OutputStream out) {
+			this.out = out;
+			this.thread = new Thread(this::deflate, "compression");
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		private void deflate() {
+			try (GZIPOutputStream gzip = new GZIPOutputStream(new BufferedOutputStream(out, BUFFER), BUFFER)) {
+				for (byte[] b = blocks.take(); b != END; b = blocks.take())
+					gzip.write(b);
+			} catch (IOException e) {
+				exception = e;
+			} catch (InterruptedException e) {
+				exception = new InterruptedIOException("Compression interrupted");
+			}
+		}
+
+		private void hand(byte[] b) throws IOException {
+			try {
+				// the compressing thread stops taking blocks if it fails
+				while (!blocks.offer(b, 100, TimeUnit.MILLISECONDS))
+					if (exception != null)
+						throw exception;
+				if (exception != null)
+					throw exception;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for compression");
+			}
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			if (length == block.length) {
+				hand(block);
+				block = new byte[BLOCK];
+				length = 0;
+			}
+			block[length++] = (byte) b;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				if (length == block.length) {
+					hand(block);
+					block = new byte[BLOCK];
+					length = 0;
+				}
+				int n = Math.min(len, block.length - length);
+				System.arraycopy(b, off, block, length, n);
+				length += n;
+				off += n;
+				len -= n;
+			}
+		}
+
+		/** compress the remaining output and wait for the compressing thread */
+		@Override
+		public void close() throws IOException {
+			if (closed)
+				return;
+			closed = true;
+			if (length > 0)
+				hand(Arrays.copyOf(block, length));
+			hand(END);
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for compression");
+			}
+			if (exception != null)
+				throw exception;
+		}
+	}
+}
@@ -17,10 +17,27 @@ package org.acoli.conll.rdf;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.jena.rdf.model.*;		// Jena 2.x
+import org.apache.jena.atlas.io.IndentedLineBuffer;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.RiotException;
+import org.apache.jena.riot.out.NodeFormatter;
+import org.apache.jena.riot.out.NodeFormatterTTL;
+import org.apache.jena.riot.system.PrefixMapFactory;
+import org.apache.jena.sparql.util.NodeUtils;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.vocabulary.RDF;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.commons.cli.ParseException;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.jena.query.*;
 
 
@@ -103,6 +120,10 @@ public class CoNLLRDFFormatter extends CoNLLRDFComponent {
 	}
 
 	private List<Module> modules = new ArrayList<Module>();
+	// number of formatting threads, the sentences are formatted sequentially if <= 1
+	private int threads = 1;
+	// sentences in formatting per thread, before the reader waits for the output
+	private static final int OUTPUT_WINDOW_PER_THREAD = 4;
 	
 	public List<Module> getModules() {
 		return modules;
@@ -114,6 +135,17 @@ public class CoNLLRDFFormatter extends CoNLLRDFComponent {
 		return module;
 	}
 
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Format the sentences on the given number of threads. The output of every module keeps the order of the input.
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
 		/** do some highlighting, but provide the full TTL data*/
 		public String colorTTL(String buffer) {
 			return buffer.replaceAll("(terms:[^ ]*)",ANSI_YLW_BK+"$1"+ANSI_RESET)
@@ -136,6 +168,22 @@ public class CoNLLRDFFormatter extends CoNLLRDFComponent {
 				e.printStackTrace();
 				LOG.error("while reading:\n"+buffer);
 			}
+			return extractCoNLLGraph(m, includeTermConcepts);
+		}
+
+		private static final String CONLL_NS = "http://ufal.mff.cuni.cz/conll2009-st/task-description.html#";
+		private static final String NIF_NS = "http://persistence.uni-leipzig.org/nlp2rdf/ontologies/nif-core#";
+		private static final Node CONLL_WORD = NodeFactory.createURI(CONLL_NS+"WORD");
+		private static final Node CONLL_HEAD = NodeFactory.createURI(CONLL_NS+"HEAD");
+		private static final Node CONLL_EDGE = NodeFactory.createURI(CONLL_NS+"EDGE");
+		private static final Node NIF_WORD = NodeFactory.createURI(NIF_NS+"Word");
+		private static final Node NIF_NEXT_WORD = NodeFactory.createURI(NIF_NS+"nextWord");
+		private static final Node NIF_SENTENCE = NodeFactory.createURI(NIF_NS+"Sentence");
+		private static final Node NIF_NEXT_SENTENCE = NodeFactory.createURI(NIF_NS+"nextSentence");
+
+		/** produces an extra column for terms: type assignments<br>
+		 *  walks the words along nif:nextWord, reading the triples of each word once, depths are memoized along conll:HEAD */
+		protected static String extractCoNLLGraph(Model m, boolean includeTermConcepts) {
 			Vector<String> ids = new Vector<String>();
 			Vector<String> words = new Vector<String>();
 			Vector<String> annos = new Vector<String>();
@@ -149,178 +197,323 @@ public class CoNLLRDFFormatter extends CoNLLRDFComponent {
  			Integer maxWordLength = 0;
  			Integer maxTermLength = 0;
 
-			String word = null;
 			try {
-				word = QueryExecutionFactory.create(
-					"PREFIX nif: <http://persistence.uni-leipzig.org/nlp2rdf/ontologies/nif-core#>\n"+
-					"SELECT ?first WHERE { ?first a nif:Word. FILTER(NOT EXISTS{ [] nif:nextWord ?first })} LIMIT 1",
-					m).execSelect().next().get("?first").toString();
-				while(true) {
-					ids.add(word.replaceAll(".*[\\\\/#:]", ""));
+				Graph g = m.getGraph();
+				Map<Node,Integer> depths = new HashMap<Node,Integer>();
+				Set<Node> visited = new HashSet<Node>();
+				for(Node word = firstWord(g); word != null && visited.add(word); ) {
+					String wordString = m.asRDFNode(word).toString();
+					ids.add(wordString.replaceAll(".*[\\\\/#:]", ""));
 					maxIdLength=Math.max(maxIdLength, ids.get(ids.size()-1).length());
+
+					// all properties of the word, in the order returned by the graph
+					Node wordValue = null;
+					Node head = null;
+					Node edge = null;
+					int edgeLength = -2;
+					Node next = null;
+					List<Triple> conllAnnos = new ArrayList<Triple>();
+					List<Node> types = new ArrayList<Node>();
+					List<Triple> oliaRels = new ArrayList<Triple>();
+					ExtendedIterator<Triple> properties = g.find(word, Node.ANY, Node.ANY);
 					try {
-						words.add(
-								QueryExecutionFactory.create(
-										"PREFIX conll: <http://ufal.mff.cuni.cz/conll2009-st/task-description.html#>\n"+
-										"SELECT ?word WHERE { <"+word+"> conll:WORD ?word } LIMIT 1",
-										m).execSelect().next().get("?word").toString());
-					} catch (NoSuchElementException e) {
+						while(properties.hasNext()) {
+							Triple t = properties.next();
+							Node rel = t.getPredicate();
+							Node val = t.getObject();
+							if(rel.equals(CONLL_WORD)) {
+								if(wordValue == null) wordValue = val;
+							} else if(rel.equals(CONLL_HEAD)) {
+								if(head == null) head = val;
+							} else if(rel.equals(CONLL_EDGE)) {
+								// the longest edge, ties are ordered as in SPARQL ORDER BY
+								int length = val.isLiteral() ? val.getLiteralLexicalForm().codePointCount(0, val.getLiteralLexicalForm().length()) : -1;
+								if(length > edgeLength || (length == edgeLength && NodeUtils.compareRDFTerms(val, edge) < 0)) {
+									edge = val;
+									edgeLength = length;
+								}
+							} else if(rel.equals(NIF_NEXT_WORD)) {
+								if(next == null) next = val;
+							} else if(rel.equals(RDF.type.asNode())) {
+								types.add(val);
+							}
+							if(rel.getURI().contains(CONLL_NS) && !rel.equals(CONLL_HEAD) && !rel.equals(CONLL_EDGE) && !rel.equals(CONLL_WORD))
+								conllAnnos.add(t);
+							if(rel.getURI().contains("http://purl.org/olia"))
+								oliaRels.add(t);
+						}
+					} finally {
+						properties.close();
+					}
+
+					if(wordValue == null) {
 						LOG.warn("Warning: no conll:WORD (WORD column) found");
 						words.add("");
+					} else {
+						words.add(m.asRDFNode(wordValue).toString());
 					}
 					maxWordLength=Math.max(maxWordLength, words.get(words.size()-1).length());
-					String anno = "";
-					ResultSet annos_raw = QueryExecutionFactory.create(
-							"PREFIX conll: <http://ufal.mff.cuni.cz/conll2009-st/task-description.html#>\n"+
-							"SELECT ?rel ?val WHERE { <"+word+"> ?rel ?val \n"
-									+ "FILTER(contains(str(?rel),'http://ufal.mff.cuni.cz/conll2009-st/task-description.html#'))\n"
-									+ "FILTER(?rel!=conll:HEAD && ?rel!=conll:EDGE && ?rel!=conll:WORD) } ORDER BY ASC(?rel)",
-							m).execSelect();
+
+					StringBuilder anno = new StringBuilder();
+					conllAnnos.sort((a, b) -> {
+						int x = NodeUtils.compareRDFTerms(a.getPredicate(), b.getPredicate());
+						return (x != 0) ? x : NodeUtils.compareRDFTerms(a.getObject(), b.getObject());
+					});
 					String rel = "";
-					while(annos_raw.hasNext()) {
-						QuerySolution next = annos_raw.next();
-						String nextRel = next.get("?rel").toString().replaceFirst(".*#","");
-						if(!rel.equals(nextRel)) 
-							anno=anno+
-								ANSI_BLUE+ANSI_ULINE+
-								nextRel+
-								ANSI_RESET+" ";
+					for(Triple t : conllAnnos) {
+						String nextRel = t.getPredicate().getURI().replaceFirst(".*#","");
+						if(!rel.equals(nextRel))
+							anno.append(ANSI_BLUE+ANSI_ULINE+nextRel+ANSI_RESET+" ");
 						rel=nextRel;
-						anno=anno+
-								next.get("?val").toString().
+						anno.append(m.asRDFNode(t.getObject()).toString().
 								 replaceFirst("^http://purl.org/acoli/open-ie/(.*)$",ANSI_YLW_BK+"$1"+ANSI_RESET).
 								 replaceFirst(".*#","")+
-								" ";
+								" ");
 					}
-					
+
 					// we append OLiA annotations to CoNLL annotations
-					ResultSet olia_types= QueryExecutionFactory.create(
-							"PREFIX conll: <http://ufal.mff.cuni.cz/conll2009-st/task-description.html#>\n"+
-							"SELECT ?concept WHERE { <"+word+"> a ?concept \n"
-									+ "FILTER(contains(str(?concept),'http://purl.org/olia'))\n"
-									+ "} ORDER BY ASC(?val)",
-							m).execSelect();
-					while(olia_types.hasNext())
-							anno=anno+
-								ANSI_RED+
-								olia_types.next().get("?concept").toString().replaceFirst("^.*/([^/]*)\\.(owl|rdf)[#/]","$1:")+
-								ANSI_RESET+" ";
+					types.sort(NodeUtils::compareRDFTerms);
+					for(Node concept : types)
+						if(str(concept).contains("http://purl.org/olia"))
+							anno.append(ANSI_RED+
+								m.asRDFNode(concept).toString().replaceFirst("^.*/([^/]*)\\.(owl|rdf)[#/]","$1:")+
+								ANSI_RESET+" ");
 
 					// append OLiA features
-					ResultSet olia_feats= QueryExecutionFactory.create(
-							"PREFIX conll: <http://ufal.mff.cuni.cz/conll2009-st/task-description.html#>\n"+
-							"SELECT ?rel ?concept WHERE { <"+word+"> ?rel ?val. ?val a ?concept.\n"
-									+ "FILTER(contains(str(?rel),'http://purl.org/olia'))\n"
-									+ "FILTER(contains(str(?concept),'http://purl.org/olia'))\n"
-									+ "} ORDER BY ASC(?rel)",
-							m).execSelect();
-					while(olia_feats.hasNext()) {
-						QuerySolution next = olia_feats.next();
-						anno = anno+
-								ANSI_RED+ANSI_ULINE+
-								next.get("?rel").toString().replaceFirst("^.*/([^/]*)\\.(owl|rdf)[#/]","$1:")+
+					List<Pair<Triple,Node>> oliaFeats = new ArrayList<Pair<Triple,Node>>();
+					for(Triple t : oliaRels) {
+						ExtendedIterator<Triple> concepts = g.find(t.getObject(), RDF.type.asNode(), Node.ANY);
+						try {
+							while(concepts.hasNext()) {
+								Node concept = concepts.next().getObject();
+								if(str(concept).contains("http://purl.org/olia"))
+									oliaFeats.add(new ImmutablePair<Triple,Node>(t, concept));
+							}
+						} finally {
+							concepts.close();
+						}
+					}
+					oliaFeats.sort((a, b) -> {
+						int x = NodeUtils.compareRDFTerms(a.getLeft().getPredicate(), b.getLeft().getPredicate());
+						if(x == 0) x = NodeUtils.compareRDFTerms(a.getRight(), b.getRight());
+						return (x != 0) ? x : NodeUtils.compareRDFTerms(a.getLeft().getObject(), b.getLeft().getObject());
+					});
+					for(Pair<Triple,Node> feat : oliaFeats)
+						anno.append(ANSI_RED+ANSI_ULINE+
+								m.asRDFNode(feat.getLeft().getPredicate()).toString().replaceFirst("^.*/([^/]*)\\.(owl|rdf)[#/]","$1:")+
 								ANSI_RESET+"."+ANSI_RED+
-								next.get("?concept").toString().replaceFirst("^.*/([^/]*)\\.(owl|rdf)[#/]","$1:")+
-								ANSI_RESET+" ";
-					}					
-					
-					annos.add(anno);
-					
-					String head = "";
-					try {
-						head = 
-								QueryExecutionFactory.create(
-										"PREFIX conll: <http://ufal.mff.cuni.cz/conll2009-st/task-description.html#>\n"+
-										"SELECT ?head WHERE { <"+word+"> conll:HEAD ?head} LIMIT 1",
-										m).execSelect().next().get("?head").toString();
-						if(Integer.parseInt(head.replaceAll("[^0-9]","")) < Integer.parseInt(word.replaceAll("[^0-9]","")))
-							headDir.add(" \\ "); 
-						else 
-							headDir.add(" / ");
-					} catch (NumberFormatException e) {
-						e.printStackTrace();
-						if(head.compareTo(word)<1) headDir.add(" \\ "); else headDir.add(" / ");
-					} catch (NoSuchElementException e) {
+								m.asRDFNode(feat.getRight()).toString().replaceFirst("^.*/([^/]*)\\.(owl|rdf)[#/]","$1:")+
+								ANSI_RESET+" ");
+
+					annos.add(anno.toString());
+
+					if(head == null) {
 						headDir.add("   ");
+					} else {
+						String headString = m.asRDFNode(head).toString();
+						try {
+							if(Integer.parseInt(headString.replaceAll("[^0-9]","")) < Integer.parseInt(wordString.replaceAll("[^0-9]","")))
+								headDir.add(" \\ ");
+							else
+								headDir.add(" / ");
+						} catch (NumberFormatException e) {
+							e.printStackTrace();
+							if(headString.compareTo(wordString)<1) headDir.add(" \\ "); else headDir.add(" / ");
+						}
 					}
-					
-					try {
-						depth.add(
-								Integer.parseInt(QueryExecutionFactory.create(
-								"PREFIX conll: <http://ufal.mff.cuni.cz/conll2009-st/task-description.html#>\n"+
-								"SELECT (COUNT(DISTINCT ?head) AS ?depth) WHERE { <"+word+"> conll:HEAD+ ?head }",
-								m).execSelect().next().get("?depth").toString().replaceFirst("^\"?([0-9]+)[\\^\"].*","$1")));
-					} catch(NoSuchElementException e) {
-						if(depth.size()==0) depth.add(1);
-						else depth.add(depth.get(depth.size()-1));
-					}
-					maxDepth=Math.max(maxDepth, depth.get(depth.size()-1));
 
+					depth.add(headDepth(g, word, depths));
+					maxDepth=Math.max(maxDepth, depth.get(depth.size()-1));
 
-					try { // return the longest edge
-						edges.add(
-								QueryExecutionFactory.create(
-										"PREFIX conll: <http://ufal.mff.cuni.cz/conll2009-st/task-description.html#>\n"+
-										"PREFIX fn: <http://www.w3.org/2005/xpath-functions#>\n"+
-										"SELECT ?edge ?length WHERE { <"+word+"> conll:EDGE ?edge. BIND(fn:string-length(?edge) AS ?length) } ORDER BY DESC(?length) LIMIT 1",
-										m).execSelect().next().get("?edge").toString());
-					} catch(NoSuchElementException e) {
-						edges.add("");
-					}
+					edges.add(edge == null ? "" : m.asRDFNode(edge).toString());
 					maxEdgeLength=Math.max(maxEdgeLength,edges.get(edges.size()-1).length());
-					
+
 					String term = "";
 					if(includeTermConcepts) {
-						ResultSet terms_raw = QueryExecutionFactory.create(
-								"PREFIX conll: <http://ufal.mff.cuni.cz/conll2009-st/task-description.html#>\n"+
-								"SELECT ?term WHERE { <"+word+"> a ?term \n"
-									+ "FILTER(contains(str(?term),'http://purl.org/acoli/open-ie/'))\n"
-									+ " } ORDER BY ASC(?term)",
-								m).execSelect();
-						while(terms_raw.hasNext())
-							term=term+terms_raw.next().get("?term").toString().
+						List<Node> termConcepts = new ArrayList<Node>();
+						for(Node concept : types)
+							if(str(concept).contains("http://purl.org/acoli/open-ie/"))
+								termConcepts.add(concept);
+						termConcepts.sort(NodeUtils::compareRDFTerms);
+						for(Node concept : termConcepts)
+							term=term+m.asRDFNode(concept).toString().
 									replaceFirst("http://purl.org/acoli/open-ie/","")+" ";
 									//replaceFirst("http://purl.org/acoli/open-ie/","terms:")+" ";
 					}
 					terms.add(term.trim());
 					maxTermLength=Math.max(maxTermLength, term.trim().length());
-					
-					word = QueryExecutionFactory.create(
-							"PREFIX nif: <http://persistence.uni-leipzig.org/nlp2rdf/ontologies/nif-core#>\n"+
-							"SELECT ?next WHERE { <"+word+"> nif:nextWord ?next } LIMIT 1",
-							m).execSelect().next().get("?next").toString();
+
+					word = next;
 				}
-			} catch (NoSuchElementException e) {
 			} catch(Exception e) {
 				e.printStackTrace();
 			}
 
-			String result = "";
-			
-			
+			StringBuilder result = new StringBuilder();
+
 			for(int i = 0; i<words.size(); i++) {
-				result=result+ids.get(i);
+				result.append(ids.get(i));
 				for(int j = ids.get(i).length(); j<maxIdLength; j++)
-					result=result+" ";
-				result=result+ANSI_WHITE;
+					result.append(" ");
+				result.append(ANSI_WHITE);
 				for(int j=depth.get(i);j>0;j--)
-					result=result+" .";
-				result=result+ANSI_RESET;
-				result=result+headDir.get(i);
-				result=result+edges.get(i);
+					result.append(" .");
+				result.append(ANSI_RESET);
+				result.append(headDir.get(i));
+				result.append(edges.get(i));
 				for(int j = maxDepth-depth.get(i);j>0;j--)
-					if(depth.get(i)>1) result=result+"--"; else result=result+"  ";
+					if(depth.get(i)>1) result.append("--"); else result.append("  ");
 				for(int j = edges.get(i).length();j<maxEdgeLength;j++)
-					if(depth.get(i)>1) result=result+"-"; else result=result+" ";
-				result=result+" "+words.get(i);
+					if(depth.get(i)>1) result.append("-"); else result.append(" ");
+				result.append(" "+words.get(i));
 				for(int j = words.get(i).length(); j<maxWordLength; j++)
-					result=result+" ";
-				result=result+" "+ANSI_YLW_BK+terms.get(i)+ANSI_RESET;
+					result.append(" ");
+				result.append(" "+ANSI_YLW_BK+terms.get(i)+ANSI_RESET);
 				for(int j = terms.get(i).length(); j<maxTermLength; j++)
-					result=result+" ";
-				result=result+" "+annos.get(i)+"\n";
-			}			
-			return result;
+					result.append(" ");
+				result.append(" "+annos.get(i)+"\n");
+			}
+			return result.toString();
+		}
+
+		/** the first nif:Word that is not the nif:nextWord of another one, null if there is none */
+		private static Node firstWord(Graph g) {
+			ExtendedIterator<Triple> words = g.find(Node.ANY, RDF.type.asNode(), NIF_WORD);
+			try {
+				while(words.hasNext()) {
+					Node word = words.next().getSubject();
+					if(!g.contains(Node.ANY, NIF_NEXT_WORD, word))
+						return word;
+				}
+				return null;
+			} finally {
+				words.close();
+			}
+		}
+
+		/** lexical form of a literal or URI, as SPARQL str(), empty for blank nodes */
+		private static String str(Node n) {
+			if(n.isURI()) return n.getURI();
+			if(n.isLiteral()) return n.getLiteralLexicalForm();
+			return "";
+		}
+
+		/** nodes linked to node by property, i.e., its objects, or its subjects if inverse */
+		private static List<Node> linked(Graph g, Node node, Node property, boolean inverse) {
+			if(inverse)
+				return g.find(Node.ANY, property, node).mapWith(Triple::getSubject).toList();
+			return g.find(node, property, Node.ANY).mapWith(Triple::getObject).toList();
+		}
+
+		/**
+		 * The chain of single links from node: node, the node it links to, and so on,
+		 * up to a node without link, a node linking to a node in done or to a node already on the chain.
+		 * @return null if a node on the chain has several links
+		 */
+		private static List<Node> chain(Graph g, Node node, Node property, boolean inverse, Map<Node,?> done) {
+			List<Node> chain = new ArrayList<Node>();
+			Set<Node> onChain = new HashSet<Node>();
+			for(Node next = node; next != null && !done.containsKey(next) && onChain.add(next); ) {
+				chain.add(next);
+				List<Node> links = linked(g, next, property, inverse);
+				if(links.size() > 1)
+					return null;
+				next = links.isEmpty() ? null : links.get(0);
+			}
+			return chain;
+		}
+
+		/** nodes reachable from node over property, including node itself, as the SPARQL property path property* */
+		private static Set<Node> reachable(Graph g, Node node, Node property, boolean inverse) {
+			Set<Node> reached = new HashSet<Node>();
+			Deque<Node> agenda = new ArrayDeque<Node>();
+			reached.add(node);
+			agenda.add(node);
+			while(!agenda.isEmpty())
+				for(Node next : linked(g, agenda.poll(), property, inverse))
+					if(reached.add(next))
+						agenda.add(next);
+			return reached;
+		}
+
+		/**
+		 * Number of nodes reachable from node over property, including node itself, as the SPARQL property path property*.
+		 * A chain of single links, e.g., the words of a sentence along nif:nextWord, is followed once for all nodes on it.
+		 * @param counts counts computed so far, by node
+		 */
+		private static int countReachable(Graph g, Node node, Node property, boolean inverse, Map<Node,Integer> counts) {
+			Integer known = counts.get(node);
+			if(known != null)
+				return known;
+			List<Node> chain = chain(g, node, property, inverse, counts);
+			if(chain == null)
+				return reachable(g, node, property, inverse).size();
+			int last = chain.size() - 1;
+			List<Node> end = linked(g, chain.get(last), property, inverse);
+			int above = 0;
+			int cycle = -1;
+			if(!end.isEmpty()) {
+				if(counts.containsKey(end.get(0)))
+					above = counts.get(end.get(0));
+				else
+					cycle = chain.indexOf(end.get(0));
+			}
+			for(int i = 0; i <= last; i++)
+				counts.put(chain.get(i), (cycle >= 0 && i >= cycle) ? last - cycle + 1 : last - i + 1 + above);
+			return counts.get(node);
+		}
+
+		/** number of distinct nodes reachable from word over conll:HEAD, i.e., its depth in the dependency tree */
+		private static int headDepth(Graph g, Node word, Map<Node,Integer> counts) {
+			List<Node> heads = linked(g, word, CONLL_HEAD, false);
+			if(heads.size() == 1)
+				return countReachable(g, heads.get(0), CONLL_HEAD, false, counts);
+			Set<Node> reached = new HashSet<Node>();
+			for(Node head : heads)
+				reached.addAll(reachable(g, head, CONLL_HEAD, false));
+			return reached.size();
+		}
+
+		/**
+		 * The nif:Sentences reachable from node over conll:HEAD, including node itself.
+		 * @param sentences sentences found so far, by node
+		 */
+		private static Set<Node> sentencesAbove(Graph g, Node node, Map<Node,Set<Node>> sentences) {
+			Set<Node> known = sentences.get(node);
+			if(known != null)
+				return known;
+			List<Node> chain = chain(g, node, CONLL_HEAD, false, sentences);
+			if(chain == null) {
+				Set<Node> result = new HashSet<Node>();
+				for(Node n : reachable(g, node, CONLL_HEAD, false))
+					if(g.contains(n, RDF.type.asNode(), NIF_SENTENCE))
+						result.add(n);
+				return result;
+			}
+			int last = chain.size() - 1;
+			List<Node> end = linked(g, chain.get(last), CONLL_HEAD, false);
+			Set<Node> above = Collections.emptySet();
+			int cycle = -1;
+			if(!end.isEmpty()) {
+				if(sentences.containsKey(end.get(0))) {
+					above = sentences.get(end.get(0));
+				} else {
+					cycle = chain.indexOf(end.get(0));
+					above = new HashSet<Node>();
+					for(Node n : chain.subList(cycle, last + 1))
+						if(g.contains(n, RDF.type.asNode(), NIF_SENTENCE))
+							above.add(n);
+				}
+			}
+			for(int i = last; i >= 0; i--) {
+				Node n = chain.get(i);
+				if((cycle < 0 || i < cycle) && g.contains(n, RDF.type.asNode(), NIF_SENTENCE)) {
+					above = new HashSet<Node>(above);
+					above.add(n);
+				}
+				sentences.put(n, above);
+			}
+			return sentences.get(node);
 		}
 			
 		/** default: include type assignments */
@@ -329,7 +522,10 @@ public class CoNLLRDFFormatter extends CoNLLRDFComponent {
 		}
 		
 		protected static String extractTermGraph(String buffer, boolean includeTermConcepts) {
-			Model m = ModelFactory.createDefaultModel().read(new StringReader(buffer),null, "TTL");
+			return extractTermGraph(ModelFactory.createDefaultModel().read(new StringReader(buffer),null, "TTL"), includeTermConcepts);
+		}
+
+		protected static String extractTermGraph(Model m, boolean includeTermConcepts) {
 			String word = null;
 			String result = "";
 			String s = "";
@@ -414,95 +610,188 @@ public class CoNLLRDFFormatter extends CoNLLRDFComponent {
 			return result+"\n";
 		}
 		
-		/** require that every line starts with a subject, sort: @ (prefix) & # (comment) > lines, lines sorted lexiconumerically, i.e., normalize length of integers (regardless of position) before sorting */
-		protected static String reorderTTLBuffer(String buffer, List<String> cols) {
-			String result ="";
-			try {
-				BufferedReader in = new BufferedReader(new StringReader(buffer));
-				Hashtable<String,String> key2line = new Hashtable<String,String>();
-				String line;
-				while((line=in.readLine())!=null) {
-					line=line.trim();
-					if(line.startsWith("@") || line.startsWith("PREFIX") || line.startsWith("#")) {
-						result=result+line+"\n";
-					} else if(!line.equals("")) {
-						//reorder columns according to user list.
-						String orderedLine = "";
-						List<String> statements = new ArrayList<String>(Arrays.asList(line.substring(0, line.lastIndexOf(".")-1).split(";\\s*\t"))); //TODO: only consider ; not ";"
-						List<String> columns = new ArrayList<String>();
-						 // Subject is always first. Change if complications occur.
-						if (statements.get(0).contains("nif:Word")) {
-							//do rdf:type reorder
-							List<String> concepts = new ArrayList<String>(Arrays.asList(statements.get(0).split(",")));
-							String[] subject = concepts.get(0).split("\\sa\\s");
-							if (subject.length == 2) {
-								orderedLine += subject[0] + " a nif:Word";
-								if (!subject[1].contains("nif:Word")) {
-									concepts.set(0, subject[1]);
-								} else {
-									concepts.remove(0);
-								}
-							} else {
-								orderedLine += concepts.get(0);
-								concepts.remove(0);
-							}
-							for (String concept:concepts) {
-								if (concept.contains("nif:Word")) continue;
-								orderedLine += ", " + concept.trim();
-							}
-						} else {
-							orderedLine = statements.get(0).trim();
-						}
-						statements.remove(0);
-						//do column reorder
-						columns.add("nif:Word");
-						columns.add("conll:WORD");
-						columns.addAll(cols);
-						for (String col:columns) {
-							for (int i = 0; i < statements.size();i++) {
-								if (statements.get(i).contains(col)) {
-									orderedLine += "; " + statements.get(i).trim();
-									statements.remove(i);
-									break;
-								}
-							}
-						}
-						//add rest of columns to the end
-						String nifnext = "";
-						for (int i = 0; i < statements.size();i++) {
-							if (statements.get(i).contains("nif:nextWord")) 
-								nifnext = "; " + statements.get(i).trim();
-							else
-								orderedLine += "; " + statements.get(i).trim();
-						}
-						if (!orderedLine.equals("")) {
-							orderedLine += nifnext + " .";
-							line = orderedLine;
-						} 
-						
-						
-						//reorder lines
-						String tmp=line.replaceAll("\t"," ").replaceAll("([^0-9])([0-9])","$1\t$2").replaceAll("([0-9])([^0-9])","$1\t$2"); 	// key \t-split
-						String key="";
-						for(String s : tmp.split("\t")) {
-							if(s.matches("^[0-9]+$"))
-								while(s.length()<64) s="0"+s;
-							key=key+s;
-						}
-						key2line.put(key,line);
+		/**
+		 * Write the sentence as canonical CoNLL-RDF: the comments of buffer and the prefixes of m, then one line per subject.
+		 * Lines are sorted by subject, comparing numbers by value, i.e., by sentence and token.
+		 * Each line starts with rdf:type, conll:WORD and the conll properties in cols, followed by all other properties, nif:nextWord last.
+		 * Blank nodes which are object of a single triple are nested, all others are labelled and written on lines of their own.
+		 */
+		public static void printTurtle(Model m, String buffer, List<String> cols, Writer out) throws IOException {
+			for(String line : buffer.split("\n")) {
+				line=line.trim();
+				if(line.startsWith("#"))
+					out.write(line+"\n");
+			}
+			for(Map.Entry<String,String> prefix : new TreeMap<String,String>(m.getNsPrefixMap()).entrySet())
+				out.write("@prefix "+prefix.getKey()+": <"+prefix.getValue()+"> .\n");
+
+			TurtleLines lines = new TurtleLines(m, cols);
+			List<Pair<String,Node>> subjects = new ArrayList<Pair<String,Node>>();
+			for(Node subject : lines.subjects)
+				if(!subject.isBlank())
+					subjects.add(new ImmutablePair<String,Node>(lines.format(subject), subject));
+			subjects.sort(Comparator.<Pair<String,Node>,String>comparing(Pair::getLeft, CoNLLRDFFormatter::compareNumerically)
+					.thenComparing(Pair::getLeft));
+			for(Pair<String,Node> subject : subjects)
+				out.write(lines.line(subject.getRight()));
+			// labelled blank nodes in the order of their labels: referred to by the lines above, not referred to at all,
+			// and cycles of nested blank nodes, which are not reached from any other subject
+			int next = 0;
+			for(; next < lines.labelled.size(); next++)
+				out.write(lines.line(lines.labelled.get(next)));
+			for(boolean cycles : new boolean[] { false, true })
+				for(Node subject : lines.subjects)
+					if(subject.isBlank() && (cycles || !lines.nested.contains(subject))
+							&& !lines.written.contains(subject) && !lines.labels.containsKey(subject)) {
+						lines.nested.remove(subject);
+						lines.term(subject);
+						for(; next < lines.labelled.size(); next++)
+							out.write(lines.line(lines.labelled.get(next)));
 					}
+			out.flush();
+		}
+
+		/** Turtle lines of a single graph, for {@link #printTurtle(Model, String, List, Writer)} */
+		private static class TurtleLines {
+			final Graph g;
+			final NodeFormatter formatter;
+			final IndentedLineBuffer text = new IndentedLineBuffer();
+			final Map<Node,String> formatted = new HashMap<Node,String>();
+			/** rdf:type, conll:WORD and the conll properties of the columns */
+			final List<Node> properties = new ArrayList<Node>();
+			final String type;
+			final Set<Node> subjects = new LinkedHashSet<Node>();
+			final Set<Node> nested = new HashSet<Node>();
+			final Set<Node> written = new HashSet<Node>();
+			final Map<Node,String> labels = new HashMap<Node,String>();
+			final List<Node> labelled = new ArrayList<Node>();
+
+			TurtleLines(Model m, List<String> cols) {
+				g = m.getGraph();
+				formatter = new NodeFormatterTTL(null, PrefixMapFactory.create(m));
+				properties.add(RDF.type.asNode());
+				properties.add(CONLL_WORD);
+				for(String col : cols)
+					if(!properties.contains(NodeFactory.createURI(CONLL_NS+col)))
+						properties.add(NodeFactory.createURI(CONLL_NS+col));
+				String rdfType = format(RDF.type.asNode());
+				type = rdfType.startsWith("<") ? "a" : rdfType;
+
+				Map<Node,Integer> references = new HashMap<Node,Integer>();
+				ExtendedIterator<Triple> triples = g.find();
+				while(triples.hasNext()) {
+					Triple t = triples.next();
+					subjects.add(t.getSubject());
+					if(t.getObject().isBlank())
+						references.merge(t.getObject(), 1, Integer::sum);
 				}
-				List<String> keys = new ArrayList<String>(key2line.keySet());
-				Collections.sort(keys);
-				for(String key: keys)
-					result=result+key2line.get(key)+"\n";
-			} catch (IOException e) {
-				e.printStackTrace();
+				for(Map.Entry<Node,Integer> reference : references.entrySet())
+					if(reference.getValue() == 1)
+						nested.add(reference.getKey());
+			}
+
+			/** a term in Turtle, prefixed names are resolved only once per graph */
+			String format(Node n) {
+				String result = formatted.get(n);
+				if(result == null) {
+					text.clear();
+					formatter.format(text, n);
+					result = text.asString();
+					formatted.put(n, result);
+				}
+				return result;
+			}
+
+			/** the statement of subject, followed by a line break */
+			String line(Node subject) {
+				return term(subject)+" "+properties(subject)+" .\n";
+			}
+
+			/** subject or object, a blank node is either nested or labelled */
+			String term(Node n) {
+				if(!n.isBlank())
+					return format(n);
+				if(nested.contains(n)) {
+					written.add(n);
+					String properties = properties(n);
+					return properties.isEmpty() ? "[]" : "[ "+properties+" ]";
+				}
+				String label = labels.get(n);
+				if(label == null) {
+					label = "_:b"+labels.size();
+					labels.put(n, label);
+					if(g.contains(n, Node.ANY, Node.ANY))
+						labelled.add(n);
+				}
+				return label;
+			}
+
+			/** the predicate-object lists of subject, in canonical order */
+			String properties(Node subject) {
+				Map<Node,List<Node>> statements = new TreeMap<Node,List<Node>>(
+						Comparator.<Node,Integer>comparing(p -> properties.contains(p) ? properties.indexOf(p) : properties.size())
+						.thenComparing(p -> p.equals(NIF_NEXT_WORD))
+						.thenComparing(NodeUtils::compareRDFTerms));
+				ExtendedIterator<Triple> triples = g.find(subject, Node.ANY, Node.ANY);
+				while(triples.hasNext()) {
+					Triple t = triples.next();
+					statements.computeIfAbsent(t.getPredicate(), p -> new ArrayList<Node>(1)).add(t.getObject());
+				}
+				StringBuilder result = new StringBuilder();
+				boolean word = false;
+				for(Map.Entry<Node,List<Node>> statement : statements.entrySet()) {
+					Node p = statement.getKey();
+					List<Node> objects = statement.getValue();
+					boolean isType = p.equals(RDF.type.asNode());
+					if(objects.size() > 1)
+						objects.sort(Comparator.<Node,Boolean>comparing(o -> !(isType && o.equals(NIF_WORD))).thenComparing(NodeUtils::compareRDFTerms));
+					// " ; " after the type of a word, as written by earlier versions
+					if(result.length() > 0)
+						result.append(word ? " ; " : "; ");
+					result.append(isType ? type : format(p));
+					for(int i = 0; i < objects.size(); i++)
+						result.append((i == 0) ? " " : ", ").append(term(objects.get(i)));
+					word = isType && objects.get(0).equals(NIF_WORD) && !type.equals("a");
+				}
+				return result.toString();
 			}
-			return result;
 		}
 
-		/** note: the last column must contain literal values, not HEAD */
+		/** compare strings character by character, but runs of digits by their numerical value */
+		static int compareNumerically(String a, String b) {
+			int i = 0, j = 0;
+			while(i < a.length() && j < b.length()) {
+				char c = a.charAt(i), d = b.charAt(j);
+				if(isDigit(c) && isDigit(d)) {
+					int endA = i, endB = j;
+					while(endA < a.length() && isDigit(a.charAt(endA))) endA++;
+					while(endB < b.length() && isDigit(b.charAt(endB))) endB++;
+					while(i < endA-1 && a.charAt(i) == '0') i++;
+					while(j < endB-1 && b.charAt(j) == '0') j++;
+					if(endA-i != endB-j)
+						return (endA-i)-(endB-j);
+					for(; i < endA; i++, j++)
+						if(a.charAt(i) != b.charAt(j))
+							return a.charAt(i)-b.charAt(j);
+				} else {
+					// a number is smaller than any character but those before 0
+					if(isDigit(c)) c = '0';
+					if(isDigit(d)) d = '0';
+					if(c != d)
+						return c-d;
+					i++;
+					j++;
+				}
+			}
+			return (a.length()-i)-(b.length()-j);
+		}
+
+		private static boolean isDigit(char c) {
+			return c >= '0' && c <= '9';
+		}
+
+		/** note: the last column must contain literal values, not HEAD<br>
+		 *  -conll uses printConll instead, which produces the same output without running this query */
 		public static String columnsAsSelect(List<String> cols) {
 			String select = ""
 			+ "PREFIX nif: <http://persistence.uni-leipzig.org/nlp2rdf/ontologies/nif-core#>\n"
@@ -572,7 +861,114 @@ public class CoNLLRDFFormatter extends CoNLLRDFComponent {
 		*  Note: this CoNLL-like export has limitations, of course: it will export one property per column, hence, collapsed dependencies or 
 		*  SRL annotations cannot be reconverted */		
 		public static void printSparql(String buffer, String select, Writer out) throws IOException {
-			Model m = ModelFactory.createDefaultModel().read(new StringReader(buffer),null, "TTL");
+			printSparql(ModelFactory.createDefaultModel().read(new StringReader(buffer),null, "TTL"), buffer, select, out);
+		}
+
+		/** run SELECT statement on an already parsed sentence, comments are read from buffer */
+		public static void printSparql(Model m, String buffer, String select, Writer out) throws IOException {
+			QueryExecution qexec = QueryExecutionFactory.create(select, m);
+			ResultSet results = qexec.execSelect();
+			List<String> cols = results.getResultVars();
+			printComments(m, buffer, cols, out);
+
+			while(results.hasNext()) {
+				QuerySolution sol = results.next();
+				for(String col : cols)
+					if(sol.get(col)==null) out.write("_\t");		// CoNLL practice
+					else out.write(sol.get(col)+"\t");
+				out.write("\n");
+				out.flush();
+			}
+			out.write("\n");
+			out.flush();
+		}
+
+		/**
+		 * Write the sentence as CoNLL, as printSparql with {@link #columnsAsSelect(List)}, but without running SPARQL:
+		 * the words are ordered by sentence and position, counted once along nif:nextSentence and nif:nextWord.
+		 * As with columnsAsSelect, only words with a nif:Sentence as (indirect) HEAD are written, several values of a column are separated by |.
+		 */
+		public static void printConll(Model m, String buffer, List<String> cols, Writer out) throws IOException {
+			printComments(m, buffer, cols, out);
+			Graph g = m.getGraph();
+			Map<Node,Set<Node>> sentences = new HashMap<Node,Set<Node>>();
+			Map<Set<Node>,Integer> sentencePositions = new HashMap<Set<Node>,Integer>();
+			Map<Node,Integer> sentenceCounts = new HashMap<Node,Integer>();
+			Map<Node,Integer> wordCounts = new HashMap<Node,Integer>();
+			Map<Node,Integer> sid = new HashMap<Node,Integer>();
+			Map<Node,Integer> wid = new HashMap<Node,Integer>();
+			List<Node> words = new ArrayList<Node>();
+			for(Node word : g.find(Node.ANY, RDF.type.asNode(), NIF_WORD).mapWith(Triple::getSubject).toList()) {
+				Set<Node> above = new HashSet<Node>();
+				for(Node head : linked(g, word, CONLL_HEAD, false))
+					above.addAll(sentencesAbove(g, head, sentences));
+				if(above.isEmpty())
+					continue;
+				Integer position = sentencePositions.get(above);
+				if(position == null) {
+					if(above.size() == 1) {
+						position = countReachable(g, above.iterator().next(), NIF_NEXT_SENTENCE, true, sentenceCounts);
+					} else {
+						Set<Node> preceding = new HashSet<Node>();
+						for(Node s : above)
+							preceding.addAll(reachable(g, s, NIF_NEXT_SENTENCE, true));
+						position = preceding.size();
+					}
+					sentencePositions.put(above, position);
+				}
+				words.add(word);
+				sid.put(word, position);
+				wid.put(word, countReachable(g, word, NIF_NEXT_WORD, true, wordCounts));
+			}
+			words.sort(Comparator.<Node,Integer>comparing(sid::get).thenComparing(wid::get).thenComparing(NodeUtils::compareRDFTerms));
+
+			List<Node> properties = new ArrayList<Node>();
+			for(String col : cols)
+				properties.add(NodeFactory.createURI(CONLL_NS+col));
+			for(Node word : words) {
+				// the values of each column, null for none, as in an OPTIONAL
+				List<List<String>> values = new ArrayList<List<String>>();
+				int rows = 1;
+				for(int i = 0; i < cols.size(); i++) {
+					List<String> colValues = new ArrayList<String>();
+					for(Node value : linked(g, word, properties.get(i), false)) {
+						String s = value.isBlank() ? null : str(value);
+						if(s != null && cols.get(i).equals("HEAD"))
+							s = s.replaceAll("^.*s[0-9]+_([0-9]+)$", "$1");
+						colValues.add(s);
+					}
+					if(colValues.isEmpty())
+						colValues.add(null);
+					if(i == cols.size()-1) {
+						// the last column ends a sentence with a line break
+						String end = g.contains(word, NIF_NEXT_WORD, Node.ANY) ? "" : "\n";
+						for(int j = 0; j < colValues.size(); j++)
+							colValues.set(j, ((colValues.get(j) == null) ? "_" : colValues.get(j)) + end);
+					}
+					values.add(colValues);
+					rows = rows * colValues.size();
+				}
+				// every combination of values is a row of the query, the values of a column are concatenated over all rows;
+				// as group_concat, a single unbound value (a missing or blank node value) leaves the whole cell unbound
+				int repeat = rows;
+				for(List<String> colValues : values) {
+					repeat = repeat / colValues.size();
+					StringBuilder cell = colValues.contains(null) ? null : new StringBuilder();
+					for(int row = 0; cell != null && row < rows; row++) {
+						if(row > 0)
+							cell.append('|');
+						cell.append(colValues.get((row / repeat) % colValues.size()));
+					}
+					out.write(((cell == null) ? "_" : cell.toString())+"\t");		// CoNLL practice
+				}
+				out.write("\n");
+			}
+			out.write("\n");
+			out.flush();
+		}
+
+		/** write a global.columns comment for cols and the comments of the sentence, both from the model and from buffer */
+		private static void printComments(Model m, String buffer, List<String> cols, Writer out) throws IOException {
 			String selectComments = "PREFIX nif: <http://persistence.uni-leipzig.org/nlp2rdf/ontologies/nif-core#>\n"
 					+ "PREFIX rdfs: <http://www.w3.org/2000/01/rdf-schema#>\n"
 					+ "SELECT ?c WHERE {?x a nif:Sentence . ?x rdfs:comment ?c}";
@@ -588,9 +984,6 @@ public class CoNLLRDFFormatter extends CoNLLRDFComponent {
 						comments.add(result);
 				}
 			}
-			qexec = QueryExecutionFactory.create(select, m);
-			results = qexec.execSelect();
-			List<String> cols = results.getResultVars();
 			BufferedReader in = new BufferedReader(new StringReader(buffer));
 			Hashtable<String,String> key2line = new Hashtable<String,String>();
 			String line;
@@ -613,30 +1006,18 @@ public class CoNLLRDFFormatter extends CoNLLRDFComponent {
 			for (String comment : comments) {
 				out.write("#"+comment+"\n");
 			}
-
-			while(results.hasNext()) {
-				QuerySolution sol = results.next();
-				for(String col : cols)
-					if(sol.get(col)==null) out.write("_\t");		// CoNLL practice
-					else out.write(sol.get(col)+"\t");
-				out.write("\n");
-				out.flush();
-			}
-			out.write("\n");
-			out.flush();
 		}
 		
 
 	/**
-	 * Searches a string buffer that is expected to represent a sentence for any
+	 * Searches a sentence graph for any
 	 * <code>rdfs:comment</code> properties and checks them for a CoNLL-U Plus like global.columns comments.
 	 * Defaults to an empty columnNames Array if not present.
-	 * @param buffer a string buffer representing a sentence in conll-rdf
+	 * @param m a sentence in conll-rdf
 	 * @return ArrayList of column names, empty if not present.
 	 */
-	private List<String> findColumnNamesInRDFBuffer(String buffer) {
+	private List<String> findColumnNamesInModel(Model m) {
 			List<String> columnNames = new ArrayList<>();
-			Model m = ModelFactory.createDefaultModel().read(new StringReader(buffer),null, "TTL");
 			String selectComments = "PREFIX nif: <http://persistence.uni-leipzig.org/nlp2rdf/ontologies/nif-core#>\n"
 					+ "PREFIX rdfs: <http://www.w3.org/2000/01/rdf-schema#>\n"
 					+ "SELECT ?c WHERE {?x a nif:Sentence . ?x rdfs:comment ?c}";
@@ -659,6 +1040,49 @@ public class CoNLLRDFFormatter extends CoNLLRDFComponent {
 
 	@Override
 	protected void processSentenceStream() throws IOException {
+		ExecutorService executor = null;
+		if (threads > 1) {
+			LOG.info("formatting on " + threads + " threads");
+			executor = Executors.newFixedThreadPool(threads);
+		}
+		// output of the sentences in formatting, in input order
+		Deque<Future<String[]>> pending = new ArrayDeque<Future<String[]>>();
+		try {
+			if (hasSentenceInput()) {
+				CoNLLRDFSentence sentence = readSentence();
+				while (sentence != null) {
+					CoNLLRDFSentence next = readSentence();
+					formatSentence(sentence, next == null, executor, pending);
+					sentence = next;
+				}
+			} else {
+				readBuffers(executor, pending);
+			}
+			while (!pending.isEmpty())
+				write(await(pending.poll()));
+			closeOutputs();
+		} finally {
+			if (executor != null)
+				executor.shutdownNow();
+		}
+	}
+
+	/** close the output files of the modules, e.g. to complete compressed output */
+	private void closeOutputs() throws IOException {
+		Set<PrintStream> closed = Collections.newSetFromMap(new IdentityHashMap<PrintStream, Boolean>());
+		for (Module m:modules) {
+			PrintStream out = m.getOutputStream();
+			if (out != System.out && out != System.err && closed.add(out))
+				close(out);
+		}
+	}
+
+	/**
+	 * split the Turtle input into sentences, cf. {@link #appendToBuffer(String, String, String)}.
+	 * Sentences inherit the prefixes declared by preceding sentences, cf. {@link CoNLLRDFTurtleWriter#inheritPrefixes(String, Map)}.
+	 */
+	private void readBuffers(ExecutorService executor, Deque<Future<String[]>> pending) throws IOException {
+		Map<String, String> prefixes = new LinkedHashMap<String, String>();
 		String line;
 		String lastLine ="";
 		String buffer="";
@@ -669,68 +1093,120 @@ public class CoNLLRDFFormatter extends CoNLLRDFComponent {
 				((line.startsWith("@") || line.startsWith("PREFIX")) || line.startsWith("#")) &&
 				!(lastLine.startsWith("@") || lastLine.startsWith("PREFIX") || lastLine.startsWith("#"))
 			) {
-				for (Module m:modules) {
-					if(m.getMode()==Mode.CONLLRDF) m.getOutputStream().println(reorderTTLBuffer(buffer, m.getCols()));
-					if(m.getMode()==Mode.DEBUG) System.err.println(colorTTL(reorderTTLBuffer(buffer, m.getCols())));
-					if(m.getMode()==Mode.CONLL) {
-						if (m.getCols().size() < 1) {// no column args supplied
-							LOG.info("No column names in cmd args, searching rdf comments..");
-							List<String> conllColumns = findColumnNamesInRDFBuffer(buffer);
-							if (conllColumns.size()>0) {
-								LOG.info("Using #global.comments from rdf");
-								m.setCols(conllColumns);
-							} else {
-								LOG.info("Trying conll columns now..");
-								conllColumns = CoNLLStreamExtractor.findFieldsFromComments(new BufferedReader(new StringReader(buffer.trim())), 1);
-								if (conllColumns.size()>0) {
-									m.setCols(conllColumns);
-								}
-							}
-						}
-						if (m.getCols().size() < 1) {
-							LOG.info("Supply column names some way! (-conll arg, global.columns or rdf comments");
-						}
-						else
-							printSparql(buffer, columnsAsSelect(m.getCols()), new OutputStreamWriter(m.getOutputStream()));
-					}
-					if(m.getMode()==Mode.QUERY) printSparql(buffer, m.getSelect(), new OutputStreamWriter(m.getOutputStream()));
-					if(m.getMode()==Mode.GRAMMAR) m.getOutputStream().println(extractCoNLLGraph(buffer,true));
-					if(m.getMode()==Mode.SEMANTICS) m.getOutputStream().println(extractTermGraph(buffer,true));
-					if(m.getMode()==Mode.GRAMMAR_SEMANTICS) {
-						m.getOutputStream().println(extractCoNLLGraph(buffer,true));
-						m.getOutputStream().println(extractTermGraph(buffer,false));
-					}
-				}
+				formatBuffer(CoNLLRDFTurtleWriter.inheritPrefixes(buffer, prefixes), null, false, executor, pending);
 				buffer="";
 			}
-			//System.err.println(ANSI_RED+"> "+line+ANSI_RESET);
-			if((line.trim().startsWith("@") || line.trim().startsWith("PREFIX")) && !lastLine.trim().endsWith(".")) 
-				//System.out.print("\n");
-				buffer=buffer+"\n";
+			buffer=appendToBuffer(buffer, line, lastLine);
+			lastLine=line;
+		}
+		formatBuffer(CoNLLRDFTurtleWriter.inheritPrefixes(buffer, prefixes), null, true, executor, pending);
+	}
 
-			if(line.trim().startsWith("#") && (!lastLine.trim().startsWith("#"))) 
-				// System.out.print("\n");
-				buffer=buffer+"\n";
-			
-			//System.out.print("  "+color(line));
-			//System.out.print(color(line));
-			buffer=buffer+line+"\t";//+"\n";
+	/**
+	 * Append a line of Turtle to the sentence buffer: one statement (subject with all its properties) per line,
+	 * properties separated by tabs, prefix and comment lines on lines of their own.
+	 */
+	static String appendToBuffer(String buffer, String line, String lastLine) {
+		//System.err.println(ANSI_RED+"> "+line+ANSI_RESET);
+		if((line.trim().startsWith("@") || line.trim().startsWith("PREFIX")) && !lastLine.trim().endsWith(".")) 
+			//System.out.print("\n");
+			buffer=buffer+"\n";
 
-			if(line.trim().endsWith(".") || line.trim().matches("^(.*>)?[^<]*#")) 
-				//System.out.print("\n");
-				buffer=buffer+"\n";
+		if(line.trim().startsWith("#") && (!lastLine.trim().startsWith("#"))) 
+			// System.out.print("\n");
+			buffer=buffer+"\n";
 
-			//System.out.println();				
-			lastLine=line;
+		// comments followed by Turtle without prefixes, cf. CoNLLRDFTurtleWriter
+		if(lastLine.trim().startsWith("#") && !(line.trim().startsWith("#") || line.trim().startsWith("@") || line.trim().startsWith("PREFIX")) && !buffer.endsWith("\n"))
+			buffer=buffer+"\n";
+		
+		//System.out.print("  "+color(line));
+		//System.out.print(color(line));
+		buffer=buffer+line+"\t";//+"\n";
+
+		if(line.trim().endsWith(".") || line.trim().matches("^(.*>)?[^<]*#")) 
+			//System.out.print("\n");
+			buffer=buffer+"\n";
+
+		//System.out.println();				
+		return buffer;
+	}
+
+	/**
+	 * Format a sentence handed over in memory. All modules use its Model directly,
+	 * the sentence is never serialized.
+	 */
+	private void formatSentence(CoNLLRDFSentence sentence, boolean lastSentence, ExecutorService executor, Deque<Future<String[]>> pending) throws IOException {
+		// comments only, for printTurtle, printSparql and global.columns
+		String buffer="";
+		for (String comment:sentence.getComments())
+			buffer=buffer+comment+"\n";
+		formatBuffer(buffer, sentence.getModel(), lastSentence, executor, pending);
+	}
+
+	/**
+	 * Format a sentence on the worker threads, or right away if running on a single thread.
+	 * As long as a CONLL module is looking for its columns, the sentences are formatted one after another by the reading thread.
+	 * @param pending the output of the sentences in formatting, the sentence is added and the output of finished sentences is written
+	 */
+	private void formatBuffer(String buffer, Model model, boolean lastSentence, ExecutorService executor, Deque<Future<String[]>> pending) throws IOException {
+		boolean hasColumns = true;
+		for (Module m:modules)
+			if (m.getMode()==Mode.CONLL && m.getCols().size() < 1) hasColumns = false;
+		if (executor == null || !hasColumns) {
+			while (!pending.isEmpty())
+				write(await(pending.poll()));
+			write(format(buffer, model, lastSentence));
+		} else {
+			if (pending.size() >= threads * OUTPUT_WINDOW_PER_THREAD)
+				write(await(pending.poll()));
+			pending.add(executor.submit(() -> format(buffer, model, lastSentence)));
 		}
-			
-		for (Module m:modules) {
-			if(m.getMode()==Mode.CONLLRDF) m.getOutputStream().println(reorderTTLBuffer(buffer, m.getCols()));
-			if(m.getMode()==Mode.DEBUG) System.err.println(colorTTL(reorderTTLBuffer(buffer, m.getCols())));
+	}
+
+	/** write the output of a sentence, in the order of the modules */
+	private void write(String[] output) throws IOException {
+		for (int i = 0; i < modules.size(); i++) {
+			if (output[i] == null) continue;
+			PrintStream out = (modules.get(i).getMode()==Mode.DEBUG) ? System.err : modules.get(i).getOutputStream();
+			out.print(output[i]);
+			out.flush();
+		}
+		sentenceWritten();
+	}
+
+	/**
+	 * Run all modules on a single sentence. The sentence is parsed once, all modules share its model.
+	 * @param buffer the sentence as produced by {@link #appendToBuffer(String, String, String)}, only its comments if model is given
+	 * @param model the sentence graph, null if it is to be parsed from buffer
+	 * @param lastSentence if set, a CONLL module without columns is an error
+	 * @return the output of each module, null for none
+	 */
+	private String[] format(String buffer, Model model, boolean lastSentence) throws IOException {
+		if (model == null) {
+			try {
+				model = ModelFactory.createDefaultModel().read(new StringReader(buffer),null, "TTL");
+			} catch (RiotException e) {
+				// -grammar skips sentences it cannot read
+				for (Module m:modules)
+					if (m.getMode()!=Mode.GRAMMAR) throw e;
+				e.printStackTrace();
+				LOG.error("while reading:\n"+buffer);
+			}
+		}
+		String[] output = new String[modules.size()];
+		for (int i = 0; i < modules.size(); i++) {
+			Module m = modules.get(i);
+			StringWriter out = new StringWriter();
+			if(m.getMode()==Mode.CONLLRDF || m.getMode()==Mode.DEBUG) {
+				printTurtle(model, buffer, m.getCols(), out);
+				if(m.getMode()==Mode.CONLLRDF) output[i] = out+System.lineSeparator();
+				else output[i] = colorTTL(out.toString())+System.lineSeparator();
+			}
 			if(m.getMode()==Mode.CONLL) {
-				if (m.getCols().size() < 1) {
+				if (m.getCols().size() < 1) {// no column args supplied
 					LOG.info("No column names in cmd args, searching rdf comments..");
-					List<String> conllColumns = findColumnNamesInRDFBuffer(buffer);
+					List<String> conllColumns = findColumnNamesInModel(model);
 					if (conllColumns.size()>0) {
 						LOG.info("Using #global.comments from rdf");
 						m.setCols(conllColumns);
@@ -742,19 +1218,31 @@ public class CoNLLRDFFormatter extends CoNLLRDFComponent {
 						}
 					}
 				}
-				if (m.getCols().size() < 1)
-					throw new IOException("-conll argument needs at least one COL to export!");
-				else
-					printSparql(buffer, columnsAsSelect(m.getCols()), new OutputStreamWriter(m.getOutputStream()));
+				if (m.getCols().size() < 1) {
+					if (lastSentence)
+						throw new IOException("-conll argument needs at least one COL to export!");
+					LOG.info("Supply column names some way! (-conll arg, global.columns or rdf comments");
+				}
+				else {
+					printConll(model, buffer, m.getCols(), out);
+					output[i] = out.toString();
+				}
 			}
-			if(m.getMode()==Mode.QUERY) printSparql(buffer, m.getSelect(), new OutputStreamWriter(m.getOutputStream()));
-			if(m.getMode()==Mode.GRAMMAR) m.getOutputStream().println(extractCoNLLGraph(buffer,true));
-			if(m.getMode()==Mode.SEMANTICS) m.getOutputStream().println(extractTermGraph(buffer,true));
-			if(m.getMode()==Mode.GRAMMAR_SEMANTICS) {
-				m.getOutputStream().println(extractCoNLLGraph(buffer,true));
-				m.getOutputStream().println(extractTermGraph(buffer,false));
+			if(m.getMode()==Mode.QUERY) {
+				printSparql(model, buffer, m.getSelect(), out);
+				output[i] = out.toString();
 			}
+			if(m.getMode()==Mode.GRAMMAR) output[i] = extractCoNLLGraph(model,true)+System.lineSeparator();
+			if(m.getMode()==Mode.SEMANTICS) output[i] = extractTermGraph(model,true)+System.lineSeparator();
+			if(m.getMode()==Mode.GRAMMAR_SEMANTICS)
+				output[i] = extractCoNLLGraph(model,true)+System.lineSeparator()+extractTermGraph(model,false)+System.lineSeparator();
 		}
+		return output;
+	}
+
+	@Override
+	protected boolean acceptsSentenceInput() {
+		return true;
 	}
 
 	public static void main(String[] args) throws IOException {
@@ -33,7 +33,7 @@ public class CoNLLRDFFormatterFactory extends CoNLLRDFComponentFactory {
 	public CoNLLRDFFormatter buildFromCLI(String[] args) throws IOException, ParseException {
 		final CoNLLRDFFormatter formatter = new CoNLLRDFFormatter();
 		final CoNLLRDFCommandLine conllCli = new CoNLLRDFCommandLine(
-				"CoNLLRDFFormatter [-rdf [COLS]] [-conll COLS] [-debug] [-grammar] [-semantics] [-query SPARQL]",
+				"CoNLLRDFFormatter [-rdf [COLS]] [-conll COLS] [-debug] [-grammar] [-semantics] [-query SPARQL] [-threads T] [-binary]",
 				"read TTL from stdin => format CoNLL-RDF or extract and highlight CoNLL (namespace conll:) and semantic (namespace terms:) subgraphs\ndefaults to -rdf if no options are selected",
 				new Option[] {
 						// Define cli options in the correct order for the help-message
@@ -47,7 +47,10 @@ public class CoNLLRDFFormatterFactory extends CoNLLRDFComponentFactory {
 						new Option("semantics", false,
 								"write semantic graph to stdout.\nif combined with -grammar, skip type assignments"),
 						new Option("query", true, "write TSV generated from SPARQL statement to stdout"),
-						new Option("sparqltsv", true, "deprecated: use -query instead") },
+						new Option("sparqltsv", true, "deprecated: use -query instead"),
+						Option.builder("threads").hasArg().desc("format on T threads, keeping the order of the input\ndefault: 1")
+								.type(Number.class).build(),
+						new Option("binary", false, "read binary CoNLL-RDF instead of Turtle, cf. CoNLLRDFBinary") },
 				LOG);
 		// TODO which args are optional?
 		final CommandLine cmd = conllCli.parseArgs(args);
@@ -102,6 +105,13 @@ public class CoNLLRDFFormatterFactory extends CoNLLRDFComponentFactory {
 			module = formatter.addModule(Mode.CONLLRDF);
 		}
 
+		if (cmd.hasOption("threads")) {
+			formatter.setThreads(((Number) cmd.getParsedOptionValue("threads")).intValue());
+		}
+		if (cmd.hasOption("binary")) {
+			formatter.setBinary(true);
+		}
+
 		return formatter;
 	}
 
@@ -186,6 +196,10 @@ public class CoNLLRDFFormatterFactory extends CoNLLRDFComponentFactory {
 		if (formatter.getModules().size() == 0) {
 			formatter.addModule(Mode.CONLLRDF);
 		}
+		if (conf.get("threads") != null)
+			formatter.setThreads(conf.get("threads").asInt(1));
+		if (conf.get("binary") != null)
+			formatter.setBinary(conf.get("binary").asBoolean());
 		return formatter;
 	}
 
@@ -3,18 +3,21 @@ package org.acoli.conll.rdf;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileReader;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.function.Supplier;
-import java.util.zip.GZIPInputStream;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.JsonNodeType;
@@ -26,6 +29,18 @@ import org.apache.logging.log4j.Logger;
 
 public class CoNLLRDFManager {
 	static Logger LOG = LogManager.getLogger(CoNLLRDFManager.class);
+	// number of sentences buffered between two components linked by Handoff.MODEL
+	static final int SENTENCE_QUEUE_CAPACITY = 64;
+
+	/**
+	 * How adjacent components hand sentences to each other:
+	 * TEXT: CoNLL-RDF serialized as Turtle over piped streams (default)
+	 * MODEL: sentence objects (Jena Model + comments) over a bounded in-memory queue,
+	 * 		where both components support it. Falls back to TEXT otherwise.
+	 */
+	public static enum Handoff {
+		TEXT, MODEL
+	}
 
 	static Map<String,Supplier<? extends CoNLLRDFComponentFactory>> classFactoryMap;
 	static {
@@ -38,10 +53,17 @@ public class CoNLLRDFManager {
 	}
 
 	private BufferedReader input;
+	// input of a first component reading binary CoNLL-RDF, cf. CoNLLRDFComponent#setBinary(boolean), null otherwise
+	private InputStream binaryInput = null;
 	private PrintStream output;
 	private JsonNode[] pipeline;
 	private JsonNode config;
+	private Handoff handoff = Handoff.TEXT;
 	private ArrayList<CoNLLRDFComponent> componentStack = new ArrayList<CoNLLRDFComponent>();
+	// progress of the run, null if it is not resumable
+	private CoNLLRDFCheckpoint checkpoint = null;
+	private final List<Thread> threads = new ArrayList<Thread>();
+	private volatile boolean failed = false;
 
 	public BufferedReader getInput() {
 		return input;
@@ -51,6 +73,17 @@ public class CoNLLRDFManager {
 		this.input = input;
 	}
 
+	public InputStream getBinaryInput() {
+		return binaryInput;
+	}
+
+	/**
+	 * Let the first component read binary CoNLL-RDF from the given stream instead of reading text from the input.
+	 */
+	public void setBinaryInput(InputStream binaryInput) {
+		this.binaryInput = binaryInput;
+	}
+
 	public PrintStream getOutput() {
 		return output;
 	}
@@ -75,6 +108,25 @@ public class CoNLLRDFManager {
 		this.config = config;
 	}
 
+	public Handoff getHandoff() {
+		return handoff;
+	}
+
+	public void setHandoff(Handoff handoff) {
+		this.handoff = handoff;
+	}
+
+	public CoNLLRDFCheckpoint getCheckpoint() {
+		return checkpoint;
+	}
+
+	/**
+	 * Make the run resumable. The output has to be opened by {@link CoNLLRDFCheckpoint#openOutput(String)}.
+	 */
+	public void setCheckpoint(CoNLLRDFCheckpoint checkpoint) {
+		this.checkpoint = checkpoint;
+	}
+
 	ArrayList<CoNLLRDFComponent> getComponentStack() {
 		return componentStack;
 	}
@@ -84,9 +136,15 @@ public class CoNLLRDFManager {
 	}	
 
 	public static void main(String[] args) throws IOException {
+		final CoNLLRDFManagerFactory factory = new CoNLLRDFManagerFactory();
 		final CoNLLRDFManager manager;
 		try {
-			manager = new CoNLLRDFManagerFactory().buildFromCLI(args);
+			String config = factory.readConfigFromCLI(args);
+			if (CoNLLRDFShards.isSharded(config)) {
+				System.exit(CoNLLRDFShards.parseJsonConf(config).run() ? 0 : 1);
+				return;
+			}
+			manager = factory.parseJsonConf(config);
 			manager.buildComponentStack();
 		} catch (ParseException e) {
 			LOG.error(e);
@@ -95,6 +153,14 @@ public class CoNLLRDFManager {
 		}
 
 		manager.start();
+		try {
+			manager.join();
+		} catch (InterruptedException e) {
+			LOG.error(e);
+			System.exit(1);
+		}
+		if (manager.hasFailed())
+			System.exit(1);
 	}
 
 	protected static BufferedReader parseConfAsInputStream(String confEntry) throws IOException {
@@ -105,9 +171,9 @@ public class CoNLLRDFManager {
 			input = new BufferedReader(new InputStreamReader(System.in));
 		} else if (new File(confEntry).canRead()) {
 			if (confEntry.endsWith(".gz")) {
-				input = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(confEntry))));
+				input = new BufferedReader(new InputStreamReader(CoNLLRDFCompression.decompress(new FileInputStream(confEntry))), CoNLLRDFCompression.BUFFER);
 			} else {
-				input = new BufferedReader(new FileReader(confEntry));
+				input = new CoNLLMappedReader(Paths.get(confEntry));
 			}
 		} else {
 			throw new IOException("Could not read from " + confEntry);
@@ -115,16 +181,48 @@ public class CoNLLRDFManager {
 		return input;
 	}
 
+	/**
+	 * Open the input of a first component reading binary CoNLL-RDF, cf. {@link CoNLLRDFComponent#setBinary(boolean)}.
+	 */
+	protected static InputStream parseConfAsBinaryInputStream(String confEntry) throws IOException {
+		if (confEntry == null) {
+			throw new IllegalArgumentException();
+		} else if (confEntry.equals("System.in")) {
+			return System.in;
+		} else if (new File(confEntry).canRead()) {
+			// buffered by the component
+			InputStream input = new FileInputStream(confEntry);
+			return confEntry.endsWith(".gz") ? CoNLLRDFCompression.decompress(input) : input;
+		} else {
+			throw new IOException("Could not read from " + confEntry);
+		}
+	}
+
+	/**
+	 * Read the sentences within a range of a plain file, cf. {@link CoNLLMappedReader#split(java.nio.file.Path, int)}.
+	 * @param range start and end offset, moved to the next sentence boundary
+	 */
+	protected static BufferedReader parseConfAsInputStream(String confEntry, long[] range) throws IOException {
+		if (confEntry == null || range.length != 2) {
+			throw new IllegalArgumentException();
+		} else if (confEntry.endsWith(".gz") || !new File(confEntry).isFile()) {
+			throw new IOException("Only a plain file can be read in ranges: " + confEntry);
+		}
+		return new CoNLLMappedReader(Paths.get(confEntry), range[0], range[1]);
+	}
+
 	protected static PrintStream parseConfAsOutputStream(String confEntry) throws IOException {
 		PrintStream output;
 		if (confEntry == null) {
 			throw new IllegalArgumentException();
 		} else if (confEntry.equals("System.out")) {
 			output = System.out;
-		} else if (new File(confEntry).canWrite()) {
-			output = new PrintStream(confEntry);
-		} else if (new File(confEntry).createNewFile()) {
-			output = new PrintStream(confEntry);
+		} else if (new File(confEntry).canWrite() || new File(confEntry).createNewFile()) {
+			if (CoNLLRDFCompression.isCompressed(confEntry))
+				// compressed on a thread of its own, complete once closed
+				output = new PrintStream(CoNLLRDFCompression.compress(new FileOutputStream(confEntry)));
+			else
+				output = new PrintStream(confEntry);
 		} else {
 			throw new IOException("Could not write to " + confEntry);
 		}
@@ -144,7 +242,41 @@ public class CoNLLRDFManager {
 
 		componentStack = parsePipeline(pipelineArray);
 		*/
-		linkComponents(componentStack, input, output);
+		linkComponents(componentStack, input, output, handoff);
+		if (binaryInput != null)
+			componentStack.get(0).setBinaryInputStream(binaryInput);
+		if (checkpoint != null)
+			linkCheckpoint();
+	}
+
+	/**
+	 * Let the first component report the sentences read and the last one the sentences written to the checkpoint.
+	 */
+	void linkCheckpoint() {
+		if (!(componentStack.get(0) instanceof CoNLLStreamExtractor))
+			throw new IllegalArgumentException("A checkpoint requires the pipeline to start with a CoNLLStreamExtractor");
+		CoNLLStreamExtractor extractor = (CoNLLStreamExtractor) componentStack.get(0);
+		CoNLLRDFComponent last = componentStack.get(componentStack.size() - 1);
+		if (last instanceof CoNLLRDFFormatter)
+			for (CoNLLRDFFormatter.Module module : ((CoNLLRDFFormatter) last).getModules())
+				if (module.getOutputStream() != output && module.getOutputStream() != System.err)
+					LOG.warn("Only the pipeline output is resumed, not the output of the " + module.getMode() + " module");
+		extractor.setInputProgress(checkpoint);
+		last.setOutputProgress(checkpoint);
+	}
+
+	/**
+	 * Skip the input read before the checkpoint and continue the numbering of the sentences.
+	 */
+	private void resume() throws IOException {
+		CoNLLStreamExtractor extractor = (CoNLLStreamExtractor) componentStack.get(0);
+		if (extractor.getColumns().isEmpty()) {
+			// global.columns is only found in the first line
+			extractor.findColumnsFromComment();
+			extractor.setReadColumnComment(false);
+		}
+		checkpoint.skipInput(input);
+		extractor.setFirstSentence(checkpoint.getSentence() + 1);
 	}
 
 	static ArrayList<CoNLLRDFComponent> parsePipeline(Iterable<JsonNode> pipelineArray) throws IOException, ParseException {
@@ -174,11 +306,31 @@ public class CoNLLRDFManager {
 	 * @param output Link last component to this.
 	 */
 	static void linkComponents(List<CoNLLRDFComponent> componentArray, BufferedReader input, PrintStream output) throws IOException {
+		linkComponents(componentArray, input, output, Handoff.TEXT);
+	}
+
+	/**
+	 * Link all components, and set Pipeline I/O.
+	 * With Handoff.MODEL, adjacent components which both support it exchange sentence objects
+	 * over a bounded queue, all others are linked using Piped Streams, carrying Turtle or, cf. CoNLLRDFComponent#setBinary(boolean), binary CoNLL-RDF.
+	 * @param componentArray The List of components to be linked.
+	 * @param input Link this to the first component
+	 * @param output Link last component to this.
+	 * @param handoff How to pass sentences between components.
+	 */
+	static void linkComponents(List<CoNLLRDFComponent> componentArray, BufferedReader input, PrintStream output, Handoff handoff) throws IOException {
 		CoNLLRDFComponent prevComponent = null;
 		for (CoNLLRDFComponent component : componentArray) {
 			if (prevComponent == null) {
 				// link input to first component
 				component.setInputStream(input);
+			} else if (handoff == Handoff.MODEL && prevComponent.producesSentenceOutput() && component.acceptsSentenceInput()) {
+				// link previous component to this one in memory
+				ArrayBlockingQueue<CoNLLRDFSentence> queue = new ArrayBlockingQueue<CoNLLRDFSentence>(SENTENCE_QUEUE_CAPACITY);
+				prevComponent.setSentenceOutput(queue);
+				component.setSentenceInput(queue);
+				LOG.debug("Sentence objects are handed from " + prevComponent.getClass().getSimpleName()
+						+ " to " + component.getClass().getSimpleName());
 			} else {
 				// prepare piped Streams
 				PipedOutputStream pipedOutput = new PipedOutputStream();
@@ -186,6 +338,7 @@ public class CoNLLRDFManager {
 				// link previous component to this one
 				prevComponent.setOutputStream(new PrintStream(pipedOutput));
 				component.setInputStream(new BufferedReader(new InputStreamReader(pipedInput)));
+				component.setBinaryInputStream(pipedInput);
 			}
 			prevComponent = component;
 		}
@@ -193,10 +346,43 @@ public class CoNLLRDFManager {
 		prevComponent.setOutputStream(output);
 	}
 
-	public void start() {
+	public void start() throws IOException {
+		if (checkpoint != null && checkpoint.isResuming())
+			resume();
 		for (CoNLLRDFComponent component:componentStack) {
 			Thread t = new Thread(component);
+			t.setUncaughtExceptionHandler((thread, e) -> fail(component, e));
+			threads.add(t);
 	        t.start();
 		}
 	}
+
+	/**
+	 * Stop the pipeline after a component failed: the other components are interrupted and fail in turn.
+	 */
+	private synchronized void fail(CoNLLRDFComponent component, Throwable e) {
+		if (failed) {
+			LOG.debug("Component " + component.getClass().getSimpleName() + " stopped: " + e);
+			return;
+		}
+		failed = true;
+		LOG.error("Component " + component.getClass().getSimpleName() + " failed", (e instanceof UncheckedIOException) ? e.getCause() : e);
+		for (Thread t:threads)
+			t.interrupt();
+	}
+
+	/** whether a component of the pipeline failed */
+	public boolean hasFailed() {
+		return failed;
+	}
+
+	/**
+	 * Wait for all components to finish. If all of them succeeded, the checkpoint is removed.
+	 */
+	public void join() throws InterruptedException, IOException {
+		for (Thread t:threads)
+			t.join();
+		if (checkpoint != null && !failed)
+			checkpoint.finish();
+	}
 }
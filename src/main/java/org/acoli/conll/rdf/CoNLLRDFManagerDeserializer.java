@@ -1,6 +1,8 @@
 package org.acoli.conll.rdf;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
@@ -35,6 +37,19 @@ public class CoNLLRDFManagerDeserializer extends StdDeserializer<CoNLLRDFManager
 		if ( ! node.required("pipeline").isArray()) {
 			throw new JsonParseException(jp, "Required property pipeline is not of type Array.");
 		}
+		if (node.has("handoff") && ! node.get("handoff").isTextual()) {
+			throw new JsonParseException(jp, "Optional property handoff is not of type String.");
+		}
+		if (node.has("checkpoint") && ! node.get("checkpoint").isTextual()) {
+			throw new JsonParseException(jp, "Optional property checkpoint is not of type String.");
+		}
+		if (node.has("checkpointInterval") && ! node.get("checkpointInterval").canConvertToInt()) {
+			throw new JsonParseException(jp, "Optional property checkpointInterval is not of type Integer.");
+		}
+		if (node.has("inputRange") && ! (node.get("inputRange").isArray() && node.get("inputRange").size() == 2
+				&& node.get("inputRange").get(0).canConvertToLong() && node.get("inputRange").get(1).canConvertToLong())) {
+			throw new JsonParseException(jp, "Optional property inputRange is not an Array of two Integers.");
+		}
 		// TODO jp.getCodec().treeToValue(n, valueType);
 		
 		String inputString = node.path("input").textValue();
@@ -45,10 +60,41 @@ public class CoNLLRDFManagerDeserializer extends StdDeserializer<CoNLLRDFManager
 		// int userId = (Integer) ((IntNode) node.get("createdBy")).numberValue();
 
 		CoNLLRDFManager manager = new CoNLLRDFManager();
-		manager.setInput(CoNLLRDFManager.parseConfAsInputStream(inputString));
-		manager.setOutput(CoNLLRDFManager.parseConfAsOutputStream(outputString));
+		ArrayList<CoNLLRDFComponent> componentStack;
+		try {
+			componentStack = CoNLLRDFManager.parsePipeline(pipelineNode);
+		} catch (ParseException e) {
+			throw new JsonParseException(jp, "Pipeline property is not correct", e);
+		}
+		if (!componentStack.isEmpty() && componentStack.get(0).hasSentenceInput()) {
+			// binary CoNLL-RDF is read as bytes, not through a reader
+			if (node.has("inputRange"))
+				throw new JsonParseException(jp, "Binary input can not be read in ranges.");
+			manager.setBinaryInput(CoNLLRDFManager.parseConfAsBinaryInputStream(inputString));
+		} else if (node.has("inputRange")) {
+			manager.setInput(CoNLLRDFManager.parseConfAsInputStream(inputString,
+					new long[] { node.get("inputRange").get(0).asLong(), node.get("inputRange").get(1).asLong() }));
+		} else {
+			manager.setInput(CoNLLRDFManager.parseConfAsInputStream(inputString));
+		}
+		if (node.has("checkpoint")) {
+			// the output is appended to if the checkpoint exists
+			CoNLLRDFCheckpoint checkpoint = new CoNLLRDFCheckpoint(new File(node.get("checkpoint").textValue()),
+					node.path("checkpointInterval").asInt(CoNLLRDFCheckpoint.DEFAULT_INTERVAL));
+			manager.setCheckpoint(checkpoint);
+			manager.setOutput(checkpoint.openOutput(outputString));
+		} else {
+			manager.setOutput(CoNLLRDFManager.parseConfAsOutputStream(outputString));
+		}
+		if (node.has("handoff")) {
+			try {
+				manager.setHandoff(CoNLLRDFManager.Handoff.valueOf(node.get("handoff").textValue().toUpperCase()));
+			} catch (IllegalArgumentException e) {
+				throw new JsonParseException(jp, "Unknown handoff " + node.get("handoff").textValue() + ", expected TEXT or MODEL.");
+			}
+		}
 		try {
-			manager.setComponentStack(CoNLLRDFManager.parsePipeline(pipelineNode));
+			manager.setComponentStack(componentStack);
 			manager.buildComponentStack();
 		} catch (ParseException e) {
 			throw new JsonParseException(jp, "Pipeline property is not correct", e);
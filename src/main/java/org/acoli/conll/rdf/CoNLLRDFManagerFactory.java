@@ -23,7 +23,12 @@ public class CoNLLRDFManagerFactory {
 	static Logger LOG = LogManager.getLogger(CoNLLRDFManagerFactory.class);
 
 	CoNLLRDFManager buildFromCLI(String[] args) throws IOException, ParseException {
-		final CoNLLRDFManager manager;
+		return parseJsonConf(readConfigFromCLI(args));
+	}
+
+	/** read the JSON config file given on the command line */
+	String readConfigFromCLI(String[] args) throws IOException, ParseException {
+		final String jsonString;
 		final CommandLine cmd = new CoNLLRDFCommandLine("CoNLLRDFManager -c JSON",
 				"Build a conll-rdf pipeline from a json configuration",
 				new Options().addRequiredOption("c", "config", true, "Specify JSON config file"), LOG).parseArgs(args);
@@ -31,8 +36,7 @@ public class CoNLLRDFManagerFactory {
 		if (cmd.hasOption("c")) {
 			try {
 				// manager.parseConfig(readString(Paths.get(cmd.getOptionValue("c"))));
-				String jsonString = readString(Paths.get(cmd.getOptionValue("c")));
-				manager = parseJsonConf(jsonString);
+				jsonString = readString(Paths.get(cmd.getOptionValue("c")));
 			} catch (IOException e) {
 				throw new IOException(
 						"Error when reading config file " + new File(cmd.getOptionValue("c")).getAbsolutePath(), e);
@@ -40,7 +44,7 @@ public class CoNLLRDFManagerFactory {
 		} else {
 			throw new ParseException("No config file specified.");
 		}
-		return manager;
+		return jsonString;
 	}
 
 	CoNLLRDFManager parseJsonConf(String json) throws IOException, ParseException {
@@ -67,7 +71,8 @@ public class CoNLLRDFManagerFactory {
 		JsonNode classArray = node.withArray("pipeline");
 		JsonNode lastComponent = classArray.get(classArray.size() - 1);
 
-		if (node.path("output").isTextual() && ! lastComponent.has("output")) {
+		// with a checkpoint, the output is only opened by the manager, which appends to it when resuming
+		if (node.path("output").isTextual() && ! lastComponent.has("output") && ! node.has("checkpoint")) {
 			((ObjectNode) lastComponent).put("output", node.get("output").textValue());
 		}
 
@@ -0,0 +1,133 @@
+package org.acoli.conll.rdf;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+
+/**
+ * A single CoNLL-RDF sentence as it is passed between pipeline components:
+ * the sentence graph together with the CoNLL comment lines preceding it.
+ *
+ * A sentence is either backed by a Jena Model, or by its Turtle serialization.
+ * Either representation is produced lazily when requested, so components linked
+ * by an in-memory handoff never serialize and re-parse the sentence in between.
+ */
+public class CoNLLRDFSentence {
+	/** marks the end of a sentence queue, never carries data */
+	static final CoNLLRDFSentence END_OF_STREAM = new CoNLLRDFSentence(Collections.<String>emptyList(), (Model) null);
+
+	private final List<String> comments;
+	private Model model;
+	private String turtle;
+	// the Turtle buffer parsed for sharing, cf. getSharedGraph()
+	private volatile Model shared;
+
+	/**
+	 * Create a sentence from its graph.
+	 * @param comments comment lines, each starting with <code>#</code>
+	 * @param model the sentence graph, including its namespace prefixes
+	 */
+	public CoNLLRDFSentence(List<String> comments, Model model) {
+		this.comments = comments;
+		this.model = model;
+	}
+
+	/**
+	 * Create a sentence from a Turtle buffer, as read from a text stream.
+	 * Comment lines are retained, the buffer is parsed on the first call to {@link #getModel()}.
+	 * @param turtle comment lines followed by the sentence in Turtle
+	 */
+	public CoNLLRDFSentence(String turtle) {
+		this.comments = new ArrayList<String>();
+		this.turtle = turtle;
+		try {
+			BufferedReader in = new BufferedReader(new StringReader(turtle));
+			String line;
+			while((line=in.readLine())!=null) {
+				line=line.trim();
+				if(line.startsWith("#")) comments.add(line);
+			}
+		} catch (IOException e) {
+			// cannot occur on a StringReader
+		}
+	}
+
+	/**
+	 * Create a sentence from already separated comment lines and a Turtle buffer.
+	 * @param comments comment lines, each starting with <code>#</code>
+	 * @param turtle the comment lines followed by the sentence in Turtle
+	 */
+	CoNLLRDFSentence(List<String> comments, String turtle) {
+		this.comments = comments;
+		this.turtle = turtle;
+	}
+
+	public List<String> getComments() {
+		return comments;
+	}
+
+	/**
+	 * The sentence graph. Parses the Turtle buffer if the sentence was read from text.
+	 * The returned Model may be modified by the caller, hence the cached serialization is dropped.
+	 */
+	public Model getModel() {
+		if (model == null) {
+			model = ModelFactory.createDefaultModel().read(new StringReader(turtle), null, "TTL");
+		}
+		turtle = null;
+		return model;
+	}
+
+	/**
+	 * The sentence graph, parsed at most once and shared by all threads using this sentence, e.g. for lookahead and lookback.
+	 * The returned Graph must not be modified.
+	 */
+	public Graph getSharedGraph() {
+		Model m = model;
+		if (m == null) {
+			synchronized (this) {
+				if (shared == null)
+					shared = ModelFactory.createDefaultModel().read(new StringReader(turtle), null, "TTL");
+				m = shared;
+			}
+		}
+		return m.getGraph();
+	}
+
+	/**
+	 * Add the sentence graph and its prefixes to another Model, without modifying this sentence.
+	 * Several threads may do so concurrently, e.g. for lookahead and lookback.
+	 */
+	public void addTo(Model target) {
+		Model m = (model != null) ? model : shared;
+		if (m == null) {
+			target.read(new StringReader(turtle), null, "TTL");
+		} else {
+			target.setNsPrefixes(m.getNsPrefixMap());
+			target.add(m);
+		}
+	}
+
+	/**
+	 * Comment lines followed by the sentence graph in Turtle.
+	 */
+	@Override
+	public String toString() {
+		if (turtle == null) {
+			StringWriter out = new StringWriter();
+			for (String comment : comments)
+				out.write(comment+"\n");
+			model.write(out, "TTL");
+			turtle = out.toString();
+		}
+		return turtle;
+	}
+}
@@ -0,0 +1,117 @@
+package org.acoli.conll.rdf;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits a CoNLL-RDF Turtle stream into sentences, line by line.
+ * A sentence starts with a block of comments and/or prefixes following a non-comment line.
+ * Tabs and spaces within lines are collapsed to single spaces.
+ *
+ * The comments and prefixes of a sentence are collected while reading it, the sentence is not scanned again.
+ * Sentences inherit the prefixes declared by preceding sentences, as by {@link CoNLLRDFTurtleWriter#inheritPrefixes(String, Map)}.
+ */
+public class CoNLLRDFSentenceReader {
+	private final BufferedReader in;
+	// the lines of the current sentence, reused
+	private final StringBuilder buffer = new StringBuilder();
+	private List<String> comments = new ArrayList<String>();
+	// prefix lines declared by the current sentence, by prefix
+	private Map<String, String> own = new LinkedHashMap<String, String>();
+	// prefix lines declared so far, by prefix
+	private final Map<String, String> declared = new LinkedHashMap<String, String>();
+	private boolean hasContent = false;
+	private boolean lastLineHeader = false;
+	private boolean eof = false;
+
+	public CoNLLRDFSentenceReader(BufferedReader in) {
+		this.in = in;
+	}
+
+	/**
+	 * Read the next sentence. At the end of the stream, the last sentence is returned even if it is empty.
+	 * @return the sentence, null after the last one
+	 */
+	public CoNLLRDFSentence next() throws IOException {
+		if (eof)
+			return null;
+		String line;
+		while ((line = in.readLine()) != null) {
+			line = normalize(line);
+			boolean header = line.startsWith("@") || line.startsWith("#") || line.startsWith("PREFIX");
+			CoNLLRDFSentence sentence = (hasContent && header && !lastLineHeader) ? sentence() : null;
+			add(line, header);
+			if (sentence != null)
+				return sentence;
+		}
+		eof = true;
+		return sentence();
+	}
+
+	/** collapse tabs and spaces and trim, as <code>line.replaceAll("[\t ]+"," ").trim()</code> */
+	static String normalize(String line) {
+		int from = 0;
+		int to = line.length();
+		while (from < to && line.charAt(from) <= ' ')
+			from++;
+		while (to > from && line.charAt(to - 1) <= ' ')
+			to--;
+		int i = from;
+		for (; i < to; i++) {
+			char c = line.charAt(i);
+			// the last character is no blank
+			if (c == '\t' || (c == ' ' && (line.charAt(i + 1) == ' ' || line.charAt(i + 1) == '\t')))
+				break;
+		}
+		if (i == to)
+			return (from == 0 && to == line.length()) ? line : line.substring(from, to);
+		StringBuilder normalized = new StringBuilder(to - from).append(line, from, i);
+		boolean blank = false;
+		for (; i < to; i++) {
+			char c = line.charAt(i);
+			if (c == ' ' || c == '\t') {
+				blank = true;
+			} else {
+				if (blank)
+					normalized.append(' ');
+				blank = false;
+				normalized.append(c);
+			}
+		}
+		return normalized.toString();
+	}
+
+	private void add(String line, boolean header) {
+		buffer.append(line).append('\n');
+		hasContent |= !line.isEmpty();
+		lastLineHeader = header;
+		if (line.startsWith("#")) {
+			comments.add(line);
+		} else if (header) {
+			String prefix = CoNLLRDFTurtleWriter.prefixLabel(line);
+			if (prefix != null)
+				own.put(prefix, line + "\n");
+		}
+	}
+
+	/** the current sentence, with the prefixes it inherits. Starts the next one. */
+	private CoNLLRDFSentence sentence() {
+		StringBuilder inherited = new StringBuilder();
+		for (Map.Entry<String, String> prefix : declared.entrySet())
+			if (!own.containsKey(prefix.getKey()))
+				inherited.append(prefix.getValue());
+		declared.putAll(own);
+		String turtle = (inherited.length() == 0) ? buffer.toString() : inherited.append(buffer).toString();
+		CoNLLRDFSentence sentence = new CoNLLRDFSentence(comments, turtle);
+		buffer.setLength(0);
+		comments = new ArrayList<String>();
+		own = new LinkedHashMap<String, String>();
+		hasContent = false;
+		lastLineHeader = false;
+		return sentence;
+	}
+}
@@ -0,0 +1,315 @@
+package org.acoli.conll.rdf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.core.JsonParser.Feature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import org.apache.commons.cli.ParseException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Runs a CoNLLRDFManager pipeline over many input files, e.g., the files of a UD release.
+ * The JSON config is that of CoNLLRDFManager, with a directory or a glob pattern as <code>input</code>
+ * and a directory as <code>output</code>. Every input file is a shard: it is processed by a pipeline of its own,
+ * writing to a file of its own in the output directory. Up to <code>parallel</code> shards run at the same time.
+ * The base URI of the CoNLLStreamExtractor is made unique per shard, cf. {@link #shardURI(String, String)}.
+ * If all shards succeed, their outputs may be concatenated in the order of the input files.
+ * With <code>split</code>, large plain input files are split into several shards at sentence boundaries, cf. {@link CoNLLMappedReader}.
+ */
+public class CoNLLRDFShards {
+	static Logger LOG = LogManager.getLogger(CoNLLRDFShards.class);
+	// file name of the shard outputs, after the name of the shard
+	static final String DEFAULT_OUTPUT_SUFFIX = ".ttl";
+
+	private ObjectNode config;
+	private List<Path> inputs;
+	private Path output;
+	private String outputSuffix = DEFAULT_OUTPUT_SUFFIX;
+	private int parallel = 1;
+	// number of shards per plain input file
+	private int split = 1;
+	private List<Shard> shards;
+	// concatenation of the shard outputs, none if null
+	private Path merge = null;
+	// directory for the checkpoints of the shards, none if null
+	private Path checkpoint = null;
+
+	public List<Path> getInputs() {
+		return inputs;
+	}
+
+	public Path getOutput() {
+		return output;
+	}
+
+	public int getParallel() {
+		return parallel;
+	}
+
+	public int getSplit() {
+		return split;
+	}
+
+	public List<Shard> getShards() {
+		return shards;
+	}
+
+	public Path getMerge() {
+		return merge;
+	}
+
+	/**
+	 * Whether a JSON config describes a sharded run: its <code>input</code> is a directory or a glob pattern.
+	 */
+	static boolean isSharded(String json) throws IOException {
+		JsonNode input = readTree(json).path("input");
+		if (!input.isTextual())
+			return false;
+		return isGlob(input.textValue()) || Files.isDirectory(Paths.get(input.textValue()));
+	}
+
+	static CoNLLRDFShards parseJsonConf(String json) throws IOException, ParseException {
+		JsonNode node = readTree(json);
+		if (!node.path("input").isTextual())
+			throw new ParseException("Required property input is not of type String.");
+		if (!node.path("output").isTextual())
+			throw new ParseException("Required property output is not a directory.");
+		if (!node.path("pipeline").isArray())
+			throw new ParseException("Required property pipeline is not of type Array.");
+		CoNLLRDFShards shards = new CoNLLRDFShards();
+		shards.config = (ObjectNode) node;
+		shards.inputs = findInputs(node.get("input").textValue());
+		shards.output = Paths.get(node.get("output").textValue());
+		if (node.has("outputSuffix"))
+			shards.outputSuffix = node.get("outputSuffix").asText();
+		if (node.has("parallel"))
+			shards.parallel = node.get("parallel").asInt(1);
+		if (shards.parallel < 1)
+			throw new ParseException("Property parallel has to be positive.");
+		if (node.has("split"))
+			shards.split = node.get("split").asInt(1);
+		if (shards.split < 1)
+			throw new ParseException("Property split has to be positive.");
+		if (node.path("merge").isTextual())
+			shards.merge = Paths.get(node.get("merge").textValue());
+		if (node.path("checkpoint").isTextual())
+			shards.checkpoint = Paths.get(node.get("checkpoint").textValue());
+
+		shards.shards = splitInputs(shards.inputs, shards.split);
+		Map<String, Shard> names = new HashMap<String, Shard>();
+		for (Shard shard : shards.shards) {
+			Shard other = names.put(shard.getName(), shard);
+			if (other != null)
+				throw new ParseException("Inputs " + other + " and " + shard + " would have the same output.");
+		}
+		return shards;
+	}
+
+	/**
+	 * The shards of the input files: split plain files into up to split ranges, keep .gz files whole.
+	 * The ranges of a file are named after the file and numbered from 1, e.g. <code>web-01</code>.
+	 */
+	static List<Shard> splitInputs(List<Path> inputs, int split) throws IOException {
+		List<Shard> shards = new ArrayList<Shard>();
+		for (Path input : inputs) {
+			long[] offsets = (split > 1 && !input.toString().endsWith(".gz")) ? CoNLLMappedReader.split(input, split) : new long[0];
+			if (offsets.length <= 2) {
+				shards.add(new Shard(input, shardName(input), null));
+				continue;
+			}
+			String format = "%s-%0" + String.valueOf(offsets.length - 1).length() + "d";
+			for (int i = 0; i < offsets.length - 1; i++)
+				shards.add(new Shard(input, String.format(format, shardName(input), i + 1), new long[] { offsets[i], offsets[i + 1] }));
+		}
+		return shards;
+	}
+
+	private static JsonNode readTree(String json) throws IOException {
+		ObjectMapper objectMapper = new ObjectMapper();
+		objectMapper.enable(Feature.ALLOW_COMMENTS);
+		return objectMapper.readTree(json);
+	}
+
+	private static boolean isGlob(String pattern) {
+		return pattern.matches(".*[*?\\[{].*");
+	}
+
+	/**
+	 * The input files: all files of a directory, or the files matching a glob pattern, in lexicographic order.
+	 */
+	static List<Path> findInputs(String pattern) throws IOException {
+		final Path dir;
+		final PathMatcher matcher;
+		final int depth;
+		if (isGlob(pattern)) {
+			// walk the directories below the first wildcard
+			String prefix = pattern.replaceFirst("[*?\\[{].*", "");
+			dir = Paths.get(prefix.contains("/") ? prefix.substring(0, prefix.lastIndexOf('/') + 1) : "");
+			matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+			depth = Integer.MAX_VALUE;
+		} else {
+			dir = Paths.get(pattern);
+			matcher = path -> true;
+			depth = 1;
+		}
+		final List<Path> inputs;
+		try (Stream<Path> paths = Files.walk(dir, depth)) {
+			inputs = paths.filter(path -> Files.isRegularFile(path) && matcher.matches(path)).sorted().collect(Collectors.toList());
+		}
+		if (inputs.isEmpty())
+			throw new IOException("No input files found for " + pattern);
+		return inputs;
+	}
+
+	/** the name of the shard of an input file: its file name, without .gz and the extension */
+	static String shardName(Path input) {
+		return input.getFileName().toString().replaceFirst("\\.gz$", "").replaceFirst("(.)\\.[^.]*$", "$1");
+	}
+
+	/**
+	 * The base URI of a shard, so that the sentence URIs are unique over all shards:
+	 * <code>http://example.org/corpus#</code> becomes <code>http://example.org/corpus/NAME#</code>,
+	 * <code>http://example.org/corpus/</code> becomes <code>http://example.org/corpus/NAME#</code>.
+	 */
+	static String shardURI(String baseURI, String name) {
+		if (baseURI.endsWith("#"))
+			baseURI = baseURI.substring(0, baseURI.length() - 1);
+		if (!baseURI.endsWith("/"))
+			baseURI = baseURI + "/";
+		return baseURI + name + "#";
+	}
+
+	Path shardOutput(Shard input) {
+		return output.resolve(input.getName() + outputSuffix);
+	}
+
+	/** the config of the pipeline of a shard */
+	ObjectNode shardConfig(Shard input) {
+		String name = input.getName();
+		ObjectNode shard = config.deepCopy();
+		shard.remove("outputSuffix");
+		shard.remove("parallel");
+		shard.remove("split");
+		shard.remove("merge");
+		shard.put("input", input.getInput().toString());
+		if (input.getRange() != null)
+			shard.putArray("inputRange").add(input.getRange()[0]).add(input.getRange()[1]);
+		shard.put("output", shardOutput(input).toString());
+		if (checkpoint != null)
+			shard.put("checkpoint", checkpoint.resolve(name + ".checkpoint").toString());
+		for (JsonNode component : shard.withArray("pipeline"))
+			if (component.path("class").asText().equals(CoNLLStreamExtractor.class.getSimpleName()) && component.path("baseURI").isTextual())
+				((ObjectNode) component).put("baseURI", shardURI(component.get("baseURI").textValue(), name));
+		return shard;
+	}
+
+	/**
+	 * Run the pipelines of all shards, and merge their outputs if all of them succeeded.
+	 * @return whether all shards succeeded
+	 */
+	public boolean run() throws IOException {
+		Files.createDirectories(output);
+		if (checkpoint != null)
+			Files.createDirectories(checkpoint);
+		LOG.info("Processing " + shards.size() + " shards, " + parallel + " at a time");
+		ExecutorService executor = Executors.newFixedThreadPool(parallel);
+		List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+		for (Shard shard : shards)
+			results.add(executor.submit(() -> runShard(shard)));
+		executor.shutdown();
+		List<Shard> failed = new ArrayList<Shard>();
+		for (int i = 0; i < shards.size(); i++)
+			if (!CoNLLRDFComponent.await(results.get(i)))
+				failed.add(shards.get(i));
+		if (!failed.isEmpty()) {
+			LOG.error(failed.size() + " of " + shards.size() + " shards failed: " + failed);
+			return false;
+		}
+		LOG.info("All " + shards.size() + " shards done");
+		if (merge != null) {
+			try (OutputStream out = Files.newOutputStream(merge)) {
+				for (Shard shard : shards)
+					Files.copy(shardOutput(shard), out);
+			}
+			LOG.info("Merged the shards into " + merge);
+		}
+		return true;
+	}
+
+	/**
+	 * Run the pipeline of a shard. Errors are logged, rather than thrown.
+	 * @return whether the shard succeeded
+	 */
+	private boolean runShard(Shard input) {
+		long start = System.currentTimeMillis();
+		try {
+			CoNLLRDFManager manager = new CoNLLRDFManagerFactory().parseJsonConf(shardConfig(input).toString());
+			manager.start();
+			manager.join();
+			if (manager.hasFailed()) {
+				LOG.error("Shard " + input + " failed");
+				return false;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			LOG.error("Shard " + input + " interrupted");
+			return false;
+		} catch (IOException | ParseException | RuntimeException e) {
+			LOG.error("Shard " + input + " failed", e);
+			return false;
+		}
+		LOG.info("Shard " + input + " done in " + (System.currentTimeMillis() - start) / 1000 + " seconds");
+		return true;
+	}
+
+	/** an input file, or a range of it */
+	public static class Shard {
+		private final Path input;
+		private final String name;
+		private final long[] range;
+
+		Shard(Path input, String name, long[] range) {
+			this.input = input;
+			this.name = name;
+			this.range = range;
+		}
+
+		public Path getInput() {
+			return input;
+		}
+
+		/** the name of the shard, that of its output */
+		public String getName() {
+			return name;
+		}
+
+		/** start and end offset in the input file, null for the whole file */
+		public long[] getRange() {
+			return range;
+		}
+
+		@Override
+		public String toString() {
+			return (range == null) ? input.toString() : input + "[" + range[0] + "," + range[1] + ")";
+		}
+	}
+}
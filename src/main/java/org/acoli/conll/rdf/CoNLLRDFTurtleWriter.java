@@ -0,0 +1,102 @@
+package org.acoli.conll.rdf;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.jena.atlas.io.IndentedWriter;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.riot.RIOT;
+import org.apache.jena.riot.system.PrefixMap;
+import org.apache.jena.riot.system.PrefixMapFactory;
+import org.apache.jena.riot.system.RiotLib;
+import org.apache.jena.riot.writer.TurtleShell;
+
+/**
+ * Writes a stream of CoNLL-RDF sentences as Turtle, declaring each namespace prefix once per stream.
+ * A sentence is preceded only by the prefixes it uses which were not declared before, or were declared for another namespace.
+ * Apart from that, a sentence is written as by Jena's Turtle writer.
+ * As readers split the stream at comment and prefix lines, a sentence without either declares one of its prefixes again.
+ *
+ * Readers have to carry the prefixes over from one sentence to the next, cf. {@link #inheritPrefixes(String, Map)}.
+ */
+public class CoNLLRDFTurtleWriter {
+	private static final Pattern PREFIX = Pattern.compile("(?:@prefix|PREFIX)\\s+([^:\\s]*):.*");
+
+	// namespace by prefix, as declared on the stream so far
+	private final Map<String, String> declared = new HashMap<String, String>();
+
+	/**
+	 * Write the comments of a sentence, the prefixes of m not declared yet, and the triples of m.
+	 */
+	public void write(List<String> comments, Model m, Writer out) throws IOException {
+		for (String comment : comments)
+			out.write(comment + "\n");
+		PrefixMap added = PrefixMapFactory.create();
+		for (Map.Entry<String, String> prefix : m.getNsPrefixMap().entrySet())
+			if (!prefix.getValue().equals(declared.put(prefix.getKey(), prefix.getValue())))
+				added.add(prefix.getKey(), prefix.getValue());
+		if (comments.isEmpty() && added.isEmpty()) {
+			// the start of the sentence
+			Map.Entry<String, String> prefix = new TreeMap<String, String>(m.getNsPrefixMap()).firstEntry();
+			if (prefix != null)
+				added.add(prefix.getKey(), prefix.getValue());
+		}
+		IndentedWriter iOut = RiotLib.create(out);
+		new Shell(iOut, PrefixMapFactory.create(m.getNsPrefixMap())).write(m.getGraph(), added);
+		iOut.flush();
+	}
+
+	/**
+	 * Complete a sentence read from a Turtle stream: prepend the prefixes declared by earlier sentences which the sentence
+	 * does not declare itself, and add its own declarations to them.
+	 * A sentence declaring all the prefixes declared before is left as it is.
+	 * @param buffer the lines of the sentence
+	 * @param declared the prefix lines declared so far, by prefix, updated
+	 * @return the sentence, parseable on its own
+	 */
+	static String inheritPrefixes(String buffer, Map<String, String> declared) {
+		Map<String, String> own = new LinkedHashMap<String, String>();
+		for (String line : buffer.split("\n")) {
+			line = line.trim();
+			String prefix = prefixLabel(line);
+			if (prefix != null)
+				own.put(prefix, line + "\n");
+		}
+		StringBuilder inherited = new StringBuilder();
+		for (Map.Entry<String, String> prefix : declared.entrySet())
+			if (!own.containsKey(prefix.getKey()))
+				inherited.append(prefix.getValue());
+		declared.putAll(own);
+		return (inherited.length() == 0) ? buffer : inherited + buffer;
+	}
+
+	/** the prefix declared by a trimmed line of Turtle, null if it is no prefix declaration */
+	static String prefixLabel(String line) {
+		if (!(line.startsWith("@prefix") || line.startsWith("PREFIX")))
+			return null;
+		Matcher prefix = PREFIX.matcher(line);
+		return prefix.matches() ? prefix.group(1) : null;
+	}
+
+	/** Jena's Turtle writer, with the prefixes written left to the caller */
+	private static class Shell extends TurtleShell {
+		Shell(IndentedWriter out, PrefixMap prefixMap) {
+			super(out, prefixMap, null, RIOT.getContext());
+		}
+
+		void write(Graph graph, PrefixMap prefixes) {
+			writePrefixes(prefixes);
+			if (!prefixes.isEmpty() && !graph.isEmpty())
+				out.println();
+			writeGraphTTL(graph);
+		}
+	}
+}
@@ -17,29 +17,36 @@ package org.acoli.conll.rdf;
 
 import static org.acoli.conll.rdf.CoNLLRDFCommandLine.*;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintStream;
 import java.io.StringReader;
 import java.io.StringWriter;
-import java.io.UnsupportedEncodingException;
 import java.io.Writer;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import java.util.zip.GZIPInputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.lang3.tuple.ImmutablePair;
@@ -47,12 +54,28 @@ import org.apache.commons.lang3.tuple.ImmutableTriple;
 import org.apache.commons.lang3.tuple.MutableTriple;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.lang3.tuple.Triple;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.compose.Delta;
+import org.apache.jena.graph.compose.MultiUnion;
 import org.apache.jena.query.Dataset;
 import org.apache.jena.query.DatasetFactory;
 import org.apache.jena.query.QueryParseException;
+import org.apache.jena.query.TxnType;
 import org.apache.jena.rdf.listeners.ChangedListener;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.riot.RiotException;
+import org.apache.jena.sparql.graph.GraphReadOnly;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.TDB2Factory;
+import org.apache.jena.tdb2.loader.DataLoader;
+import org.apache.jena.tdb2.loader.LoaderFactory;
+import org.apache.jena.tdb2.loader.base.LoaderOps;
+import org.apache.jena.tdb2.sys.TDBInternal;
 import org.apache.jena.update.Update;
 import org.apache.jena.update.UpdateAction;
 import org.apache.jena.update.UpdateFactory;
@@ -68,7 +91,10 @@ import org.apache.logging.log4j.Logger;
 public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 	static final Logger LOG = LogManager.getLogger(CoNLLRDFUpdater.class);
 
-	private final Dataset dataset;
+	// read-only views of the external graphs by name, linked into the dataset of each thread
+	private final Map<String, Model> graphs = new LinkedHashMap<String, Model>();
+	// on-disk store of the external graphs in TDB2 mode, null otherwise
+	private final Dataset store;
 
 	// Configuration Variables with defaults set
 	private boolean prefixDeduplication = false;
@@ -77,29 +103,136 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 	private int lookback_snts = 0;
 	private File graphOutputDir = null;
 	private File triplesOutputDir = null;
+	// seconds between two stats lines on stderr, none if 0
+	private int statsInterval = 0;
+	// budgets per sentence, none if 0
+	private long timeBudget = 0;
+	private int iterationBudget = 0;
+	private boolean markAborted = false;
 
 	//for updates
 	private final List<Triple<String, String, String>> updates = Collections.synchronizedList(new ArrayList<Triple<String, String, String>>());
+	// the parsed update scripts, in the same order as updates. Shared by all threads, as they are not modified by execution.
+	private final List<UpdateRequest> updateRequests = Collections.synchronizedList(new ArrayList<UpdateRequest>());
 	//For graphsout and triplesout
 	private final List<String> graphOutputSentences = Collections.synchronizedList(new ArrayList<String>());
 	private final List<String> triplesOutputSentences = Collections.synchronizedList(new ArrayList<String>());
 
 	// for thread handling
-	private boolean running = false;
 	private final List<UpdateThread> updateThreads = Collections.synchronizedList(new ArrayList<UpdateThread>());
-	// Buffer providing each thread with its respective sentence(s) to process
-	// <List:lookbackBuffer>, <String:currentSentence>, <List:lookaheadBuffer>
-	private final List<Triple<List<String>, String, List<String>>> sentBufferThreads = Collections.synchronizedList(new ArrayList<Triple<List<String>, String, List<String>>>());
+	// Jobs for the worker threads, bounded to hold back the reader while all workers are busy.
+	// Each job provides a sentence to process along with its sequence number in the stream:
+	// <Long:sequenceNumber>, <Triple:<List:lookbackBuffer>, <CoNLLRDFSentence:currentSentence>, <List:lookaheadBuffer>>
+	private BlockingQueue<Pair<Long, Triple<List<CoNLLRDFSentence>, CoNLLRDFSentence, List<CoNLLRDFSentence>>>> jobQueue = null;
+	// marks the end of the job queue, each worker terminates on taking it
+	private static final Pair<Long, Triple<List<CoNLLRDFSentence>, CoNLLRDFSentence, List<CoNLLRDFSentence>>> END_OF_JOBS = new ImmutablePair<Long, Triple<List<CoNLLRDFSentence>, CoNLLRDFSentence, List<CoNLLRDFSentence>>>(-1L, null);
+	// number of sentences handed to the worker threads so far
+	private long scheduledSentences = 0;
+	// sentences per thread which may be processed ahead of the next sentence to write
+	private static final int OUTPUT_WINDOW_PER_THREAD = 4;
+	private ReorderBuffer sentBufferOut = null;
+	private Thread outputWriter = null;
+	// failure of the output writer, rethrown to the reading thread
+	private volatile Throwable outputWriterFailure = null;
+	// declares the prefixes once per output stream if prefix deduplication is active
+	private CoNLLRDFTurtleWriter turtleWriter = null;
 
-	private final List<String> sentBufferLookahead = Collections.synchronizedList(new ArrayList<String>());
-	private final List<String> sentBufferLookback = Collections.synchronizedList(new ArrayList<String>());
-	// Buffer for outputting sentences in original order
-	private final List<String> sentBufferOut = Collections.synchronizedList(new ArrayList<String>()); 
+	// named graphs of the preceding and following sentences
+	static final String LOOKBACK_GRAPH = "https://github.com/acoli-repo/conll-rdf/lookback";
+	static final String LOOKAHEAD_GRAPH = "https://github.com/acoli-repo/conll-rdf/lookahead";
+	// graph of the TDB2 store recording the source each stored graph was loaded from
+	static final String SOURCES_GRAPH = "https://github.com/acoli-repo/conll-rdf/sources";
+	private static final Node SOURCE = NodeFactory.createURI(SOURCES_GRAPH + "#source");
+	private final List<CoNLLRDFSentence> sentBufferLookahead = Collections.synchronizedList(new ArrayList<CoNLLRDFSentence>());
+	private final List<CoNLLRDFSentence> sentBufferLookback = Collections.synchronizedList(new ArrayList<CoNLLRDFSentence>());
 
 	//for statistics
-	private final List<List<Pair<Integer,Long>>> dRTs = Collections.synchronizedList(new ArrayList<List<Pair<Integer,Long>>>());
-	// iterations and execution time of each update in seconds
+	private CoNLLRDFUpdaterMetrics metrics = null;
+	private ScheduledExecutorService statsPrinter = null;
 
+	/**
+	 * Buffer for outputting sentences in original order.
+	 * A ring of result slots indexed by sequence number, covering a bounded window
+	 * of sentences starting with the next one to write.
+	 */
+	private static class ReorderBuffer {
+		private final CoNLLRDFSentence[] results;
+		private final boolean[] completed;
+		// number of completed sentences not taken yet
+		private int size = 0;
+		// sequence number of the next sentence to write
+		private long next = 0;
+		// total number of sentences, once known
+		private long end = Long.MAX_VALUE;
+		// no more sentences will be taken
+		private boolean failed = false;
+
+		ReorderBuffer(int window) {
+			results = new CoNLLRDFSentence[window];
+			completed = new boolean[window];
+		}
+
+		/**
+		 * Block until the given sentence falls into the window, or the buffer failed.
+		 */
+		synchronized void awaitSlot(long seq) throws InterruptedException {
+			while (!failed && seq >= next + results.length) wait();
+		}
+
+		/**
+		 * No more sentences will be taken, release all threads waiting for a slot.
+		 */
+		synchronized void fail() {
+			failed = true;
+			notifyAll();
+		}
+
+		/**
+		 * Deliver the result of a sentence, <code>null</code> if it failed.
+		 */
+		synchronized void complete(long seq, CoNLLRDFSentence result) {
+			int slot = (int) (seq % results.length);
+			results[slot] = result;
+			completed[slot] = true;
+			size++;
+			if (seq == next) notifyAll();
+		}
+
+		/**
+		 * Number of completed sentences waiting to be written.
+		 */
+		synchronized int size() {
+			return size;
+		}
+
+		/**
+		 * No sentences beyond the given count will be delivered.
+		 */
+		synchronized void close(long count) {
+			end = count;
+			notifyAll();
+		}
+
+		/**
+		 * Block until the next sentence in order is complete and remove it.
+		 * @return the result of the next sentence (<code>null</code> if it failed)
+		 * 			or {@link CoNLLRDFSentence#END_OF_STREAM} once all sentences are written
+		 */
+		synchronized CoNLLRDFSentence take() throws InterruptedException {
+			int slot = (int) (next % results.length);
+			while (!completed[slot]) {
+				if (next >= end) return CoNLLRDFSentence.END_OF_STREAM;
+				wait();
+			}
+			CoNLLRDFSentence result = results[slot];
+			results[slot] = null;
+			completed[slot] = false;
+			size--;
+			next++;
+			notifyAll();
+			return result;
+		}
+	}
 
 	private class UpdateThread extends Thread {
 		
@@ -112,7 +245,8 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 		 * 
 		 * In the current implementation, each thread manages its own in-memory Dataset.
 		 * This is the fastest approach since no concurring access on a single Datasets occurs.
-		 * However: lots of RAM may be needed.
+		 * Only the default graph and the lookback and lookahead graphs are private to the thread,
+		 * the external graphs of the Updater are linked into the Dataset and shared read-only by all threads.
 		 * 
 		 * @param updater
 		 * 				The calling Updater (= ThreadHandler)
@@ -120,105 +254,95 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 		 * 				The id of this Thread.
 		 */
 		public UpdateThread(CoNLLRDFUpdater updater, int id) {
+			super("CoNLLRDFUpdater-" + id);
 			this.updater = updater;
 			threadID = id;
-			memDataset = DatasetFactory.create();
-			Iterator<String> iter = updater.dataset.listNames();
-			while(iter.hasNext()) {
-				String graph = iter.next();
-				memDataset.addNamedModel(graph, updater.dataset.getNamedModel(graph));
-			}
-			memDataset.addNamedModel("https://github.com/acoli-repo/conll-rdf/lookback", ModelFactory.createDefaultModel());
-			memDataset.addNamedModel("https://github.com/acoli-repo/conll-rdf/lookahead", ModelFactory.createDefaultModel());
+			memDataset = updater.createThreadDataset();
+			clearWindows();
 		}
 		
 		/**
 		 * Run the update thread.
-		 * Load the buffer, execute the updates with all iterations and graphsout, unload the buffer.
+		 * In TDB2 mode, the external graphs are read in a single read transaction spanning all jobs of the thread.
 		 */
 		public void run() {
-			while (updater.running) {
-				//Execute Thread
+			if (store != null)
+				store.begin(TxnType.READ);
+			try {
+				processJobs();
+			} finally {
+				if (store != null)
+					store.end();
+			}
+		}
 
-				LOG.trace("NOW Processing on thread "+threadID+": outputbuffersize "+sentBufferOut.size());
-				Triple<List<String>, String, List<String>> sentBufferThread = sentBufferThreads.get(threadID);
-				StringWriter out = new StringWriter();
+		/**
+		 * Take jobs from the job queue until it ends. For each job: load the buffer,
+		 * execute the updates with all iterations and graphsout, unload the buffer.
+		 */
+		private void processJobs() {
+			while (true) {
+				final Pair<Long, Triple<List<CoNLLRDFSentence>, CoNLLRDFSentence, List<CoNLLRDFSentence>>> job;
+				try {
+					job = jobQueue.take();
+				} catch (InterruptedException e) {
+					LOG.warn("Thread "+threadID+" interrupted while waiting for a sentence.");
+					return;
+				}
+				if (job == END_OF_JOBS) break;
+
+				LOG.trace("NOW Processing on thread "+threadID+": sentence "+job.getLeft());
+				Triple<List<CoNLLRDFSentence>, CoNLLRDFSentence, List<CoNLLRDFSentence>> sentBufferThread = job.getRight();
+				CoNLLRDFSentence out = null;
 				try {
 					loadBuffer(sentBufferThread);
-					
-					List<Pair<Integer,Long> > ret = executeUpdates(updates);
-					if (dRTs.get(threadID).isEmpty())
-						dRTs.get(threadID).addAll(ret);
-					else
-						for (int x = 0; x < ret.size(); ++x)
-							dRTs.get(threadID).set(x, new ImmutablePair<Integer, Long>(
-									dRTs.get(threadID).get(x).getKey() + ret.get(x).getKey(),
-									dRTs.get(threadID).get(x).getValue() + ret.get(x).getValue()));
-					
-					unloadBuffer(sentBufferThread, out);
+					String aborted = executeUpdates(updates, job.getLeft() + 1);
+					if (aborted != null) {
+						// emit the sentence as it was read
+						metrics.recordAborted();
+						memDataset.getDefaultModel().removeAll();
+						sentBufferThread.getMiddle().addTo(memDataset.getDefaultModel());
+					}
+					out = unloadBuffer(sentBufferThread, (aborted != null && markAborted) ? "# CoNLLRDFUpdater: " + aborted : null);
 				} catch (Exception e) {
 //					memDataset.begin(ReadWrite.WRITE);
 					memDataset.getDefaultModel().removeAll();
-					memDataset.getNamedModel("https://github.com/acoli-repo/conll-rdf/lookback").removeAll();
-					memDataset.getNamedModel("https://github.com/acoli-repo/conll-rdf/lookahead").removeAll();
+					clearWindows();
 //					memDataset.commit();
 //					memDataset.end();
 					e.printStackTrace();
 //					continue;
 				}
 
-				// synchronized write access to sentBuffer in order to avoid corruption
-				synchronized(updater) {
-				LOG.trace("NOW PRINTING on thread "+threadID+": outputbuffersize "+sentBufferOut.size());
-				for (int i = 0; i < sentBufferOut.size(); i++) {
-					if (sentBufferOut.get(i).equals(String.valueOf(threadID))) {
-						sentBufferOut.set(i, out.toString());
-						break;
-					}
-				}				
-				
-				//go to sleep and let Updater take control
-					LOG.trace("Updater notified by "+threadID);
-					updater.notify();
-
-				}
-				try {
-					synchronized (this) {
-						LOG.trace("Waiting: "+threadID);
-						wait();
-					}
-				} catch (InterruptedException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
-				}
+				metrics.recordSentence(out == null);
+				sentBufferOut.complete(job.getLeft(), out);
 			}
+			LOG.trace("Terminating: "+threadID);
 		}
 		
 		/**
 		 * Loads Data to this thread's working model.
+		 * The lookback and lookahead sentences are parsed once for all threads and linked in as a union,
+		 * the current sentence is copied into the default graph.
 		 * @param buffer 
 		 * 			the model to be read.
 		 * @throws Exception
 		 */
-		private void loadBuffer(Triple<List<String>, String, List<String>> sentBufferThread) throws Exception { //TODO: adjust for TXN-Models
-			//check validity of current sentence
-			isValidUTF8(sentBufferThread.getMiddle(), "Input data encoding issue for \"" + sentBufferThread.getMiddle() + "\"");
+		private void loadBuffer(Triple<List<CoNLLRDFSentence>, CoNLLRDFSentence, List<CoNLLRDFSentence>> sentBufferThread) throws Exception { //TODO: adjust for TXN-Models
 			//load ALL
 			try {
 //				memDataset.begin(ReadWrite.WRITE);
 				
 				// for lookback
-				for (String sent:sentBufferThread.getLeft()) {
-					memDataset.getNamedModel("https://github.com/acoli-repo/conll-rdf/lookback").read(new StringReader(sent),null, "TTL");
-				}
+				memDataset.addNamedModel(LOOKBACK_GRAPH, window(sentBufferThread.getLeft()));
 				
-				// for current sentence
-				memDataset.getDefaultModel().read(new StringReader(sentBufferThread.getMiddle()),null, "TTL");
+				// for current sentence, parsed once if it is part of the windows of other sentences
+				if (lookahead_snts > 0 || lookback_snts > 0)
+					sentBufferThread.getMiddle().getSharedGraph();
+				sentBufferThread.getMiddle().addTo(memDataset.getDefaultModel());
 
 				// for lookahead
-				for (String sent:sentBufferThread.getRight()) {
-					memDataset.getNamedModel("https://github.com/acoli-repo/conll-rdf/lookahead").read(new StringReader(sent),null, "TTL");
-				}
+				memDataset.addNamedModel(LOOKAHEAD_GRAPH, window(sentBufferThread.getRight()));
 				
 //				memDataset.commit();
 //				Model m = ModelFactory.createDefaultModel().read(new StringReader(buffer),null, "TTL");
@@ -233,35 +357,70 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 			
 		}
 
+		/**
+		 * A view of the union of the given sentences, which does not copy their graphs.
+		 * Updates may modify the view, the changes are kept in the view and discarded along with it.
+		 */
+		private Model window(List<CoNLLRDFSentence> sentences) {
+			if (sentences.isEmpty())
+				return ModelFactory.createDefaultModel();
+			MultiUnion union = new MultiUnion();
+			for (CoNLLRDFSentence sent : sentences) {
+				union.addGraph(sent.getSharedGraph());
+			}
+			return ModelFactory.createModelForGraph(new Delta(union));
+		}
+
+		/**
+		 * Release the lookback and lookahead sentences of the last job.
+		 */
+		private void clearWindows() {
+			memDataset.addNamedModel(LOOKBACK_GRAPH, ModelFactory.createDefaultModel());
+			memDataset.addNamedModel(LOOKAHEAD_GRAPH, ModelFactory.createDefaultModel());
+		}
+
 		/**
 		 * Unloads Data from this thread's working model.
 		 * Includes comments from original data.
-		 * @param buffer
+		 * @param sentBufferThread
 		 * 			Original data for extracting comments.
-		 * @param out
-		 * 			Output Writer.
+		 * @param diagnostic
+		 * 			A comment to add to the original ones, none if null.
+		 * @return
+		 * 			The resulting sentence, serialized unless it is handed on as an object.
+		 * 			null if the sentence could not be unloaded.
 		 * @throws Exception
 		 */
-		private void unloadBuffer(Triple<List<String>, String, List<String>> sentBufferThread, Writer out) throws Exception { //TODO: adjust for TXN-Models
-			String buffer = sentBufferThread.getMiddle();
+		private CoNLLRDFSentence unloadBuffer(Triple<List<CoNLLRDFSentence>, CoNLLRDFSentence, List<CoNLLRDFSentence>> sentBufferThread, String diagnostic) throws Exception { //TODO: adjust for TXN-Models
+			CoNLLRDFSentence sentence = sentBufferThread.getMiddle();
+			List<String> comments = sentence.getComments();
+			if (diagnostic != null) {
+				comments = new ArrayList<String>(comments);
+				comments.add(diagnostic);
+			}
 			try {
-				BufferedReader in = new BufferedReader(new StringReader(buffer));
-				String line;
-				while((line=in.readLine())!=null) {
-					line=line.trim();
-					if(line.startsWith("#")) out.write(line+"\n");
+				// prefix deduplication writes the model in output order
+				if (hasSentenceOutput() || prefixDeduplication) {
+					Model m = ModelFactory.createDefaultModel();
+					m.setNsPrefixes(memDataset.getDefaultModel().getNsPrefixMap());
+					m.add(memDataset.getDefaultModel());
+					return new CoNLLRDFSentence(comments, m);
+				}
+				StringWriter out = new StringWriter();
+				for (String comment : comments) {
+					out.write(comment+"\n");
 				}
 				memDataset.getDefaultModel().write(out, "TTL");
 				out.write("\n");
-				out.flush();
+				return new CoNLLRDFSentence(comments, out.toString());
 			} catch (Exception ex) {
 //				memDataset.abort();
-				LOG.error("Exception while unloading: " + buffer);
+				LOG.error("Exception while unloading: " + sentence);
+				return null;
 			} finally {
 //				memDataset.begin(ReadWrite.WRITE);
 				memDataset.getDefaultModel().removeAll();
-				memDataset.getNamedModel("https://github.com/acoli-repo/conll-rdf/lookback").removeAll();
-				memDataset.getNamedModel("https://github.com/acoli-repo/conll-rdf/lookahead").removeAll();
+				clearWindows();
 //				memDataset.commit();
 //				memDataset.end();
 			}
@@ -276,25 +435,20 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 		 * 			- update filename
 		 * 			- update script
 		 * 			- number of iterations
+		 * @param sentence
+		 * 			The number of the sentence in the input, for the metrics.
 		 * @return
-		 * 			List of pairs containing Execution info on each update:
-		 * 			- total no. of iterations
-		 * 			- total time
+		 * 			null if all updates were executed, otherwise why the sentence was aborted
+		 * 			when exceeding the time or iteration budget. The working model is left as is.
 		 */
-		private List<Pair<Integer, Long>> executeUpdates(List<Triple<String, String, String>> updates) { 
+		private String executeUpdates(List<Triple<String, String, String>> updates, long sentence) { 
 
+			final long sentenceStart = System.nanoTime();
 			String sent = new String();
 			boolean graphsout = false;
 			boolean triplesout = false;
 			if (graphOutputDir != null || triplesOutputDir != null) {
-				try {
-				sent = memDataset.getDefaultModel().listSubjectsWithProperty(
-								memDataset.getDefaultModel().getProperty("http://www.w3.org/1999/02/22-rdf-syntax-ns#type"), 
-								memDataset.getDefaultModel().getProperty("http://persistence.uni-leipzig.org/nlp2rdf/ontologies/nif-core#Sentence")
-							).next().getLocalName();
-				} catch (Exception e) {
-					sent = "none";
-				}
+				sent = readSentenceID();
 				if (graphOutputSentences.contains(sent)){
 					graphsout = true;
 				}
@@ -315,16 +469,14 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 						e.printStackTrace();
 					}
 			}
-			List<Pair<Integer,Long> > result = new ArrayList<Pair<Integer,Long> >();
 			int upd_id = 1;
 			int iter_id = 1;
 			for(Triple<String, String, String> update : updates) {
 				iter_id = 1;
-				Long startTime = System.currentTimeMillis();
+				final UpdateRequest updateRequest = updateRequests.get(upd_id - 1);
+				long startTime = System.nanoTime();
 				Model defaultModel = memDataset.getDefaultModel();
-				ChangedListener cL = new ChangedListener();
-				defaultModel.register(cL);
-				String oldModel = "";
+				GraphChangeTracker tracker = new GraphChangeTracker(defaultModel);
 				int frq = MAXITERATE, v = 0;
 				boolean change = true;
 				try {
@@ -335,8 +487,6 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 				}
 				while(v < frq && change) {
 					try {
-						UpdateRequest updateRequest;
-						updateRequest = UpdateFactory.create(update.getMiddle());
 						if (graphsout || triplesout) { //execute Update-block step by step and output intermediate results
 							int step = 1;
 							Model dM = memDataset.getDefaultModel();
@@ -374,27 +524,47 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 						LOG.error("Error while processing update No. "+upd_id+": "+update.getLeft());
 						e.printStackTrace();
 					}
-					
-					
-					if (oldModel.isEmpty()) {
-						change = cL.hasChanged();
-						LOG.trace("cl.hasChanged(): "+change);
-					} else {
-						change = !defaultModel.toString().equals(oldModel);
-						oldModel = "";
-					}
-					if (CHECKINTERVAL.contains(v))
-						oldModel = defaultModel.toString();
+
+					// stop at the fixpoint, repeating an update which changed nothing would change nothing either
+					change = tracker.hasChanged();
+					LOG.trace("tracker.hasChanged(): "+change);
 					v++;
 					iter_id++;
+
+					String aborted = null;
+					if (change && v < frq && iterationBudget > 0 && v >= iterationBudget)
+						aborted = "iteration budget of " + iterationBudget + " exceeded";
+					else if (timeBudget > 0 && System.nanoTime() - sentenceStart > timeBudget * 1000000)
+						aborted = "time budget of " + timeBudget + " ms exceeded";
+					if (aborted != null) {
+						aborted += " at update No. " + upd_id + ": " + update.getLeft() + ", sentence left unmodified";
+						LOG.warn("Sentence " + readSentenceID() + ": " + aborted);
+						metrics.recordUpdate(upd_id - 1, System.nanoTime() - startTime, v, sentence);
+						tracker.unregister();
+						return aborted;
+					}
 				}
 				if (v == MAXITERATE)
 					LOG.warn("Warning: MAXITERATE reached for " + update.getLeft() + ".");
-				result.add(new ImmutablePair<Integer, Long>(v, System.currentTimeMillis() - startTime));
-				defaultModel.unregister(cL);
+				metrics.recordUpdate(upd_id - 1, System.nanoTime() - startTime, v, sentence);
+				tracker.unregister();
 				upd_id++;
-			}			
-			return result;
+			}
+			return null;
+		}
+
+		/**
+		 * The ID of the sentence in the working model, <code>none</code> if there is no nif:Sentence.
+		 */
+		private String readSentenceID() {
+			try {
+				return memDataset.getDefaultModel().listSubjectsWithProperty(
+						memDataset.getDefaultModel().getProperty("http://www.w3.org/1999/02/22-rdf-syntax-ns#type"), 
+						memDataset.getDefaultModel().getProperty("http://persistence.uni-leipzig.org/nlp2rdf/ontologies/nif-core#Sentence")
+					).next().getLocalName();
+			} catch (Exception e) {
+				return "none";
+			}
 		}
 		
 		/**
@@ -490,31 +660,31 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 	 * @param type: The type of database to be used:
 	 * 				MEM: fully independent in-memory datasets per thread 
 	 * 						(fastest, no transactions, high RAM usage, no HDD)
-	 * 				TXN: single transactional in-memory dataset for all threads
-	 * 						(in development, medium speed and RAM, no HDD)
-	 * 				TDB2: single transactional TDB2-database for all threads
-	 * 						(in development, slow-medium speed, low RAM usage, high HDD usage)
+	 * 				TXN: as MEM for now, a single transactional in-memory dataset for all threads is in development
+	 * 				TDB2: external graphs in a TDB2 database on disk, read by all threads;
+	 * 						sentences are processed in memory as with MEM
+	 * 						(slower access to the external graphs, low RAM usage, high HDD usage)
 	 * 				default: MEM
 	 * @param path: 
 	 * 				path to database (only for TDB2 or other DB-backed modes)
+	 * 				The database is created if it does not exist. Graphs stored by an earlier run are reused,
+	 * 				unless the file they were loaded from changed.
 	 * @param threads
 	 * 				Maximum amount of threads for execution.
 	 * 				default: threads = number of logical cores available to runtime
 	 */
 	public CoNLLRDFUpdater(String type, String path, int threads) {
 		if (type.equals("TDB2")) {
-			//TODO
-			dataset = DatasetFactory.create();//TDB
-		} else if (type.equals("TXN")) {
-			dataset = DatasetFactory.createTxnMem();
+			if (path == null || path.isEmpty())
+				throw new IllegalArgumentException("TDB2 mode requires the path to the database");
+			store = TDB2Factory.connectDataset(path);
 		} else {
-			dataset = DatasetFactory.createTxnMem();
+			// the external graphs are linked into the threads instead of copied, so they can share them without transactions
+			store = null;
 		}
 //		memAccessor = DatasetAccessorFactory.create(memDataset);
 
 		setThreads(threads);
-
-		running = false;
 	}
 
 	public void setThreads(int threads) {
@@ -619,7 +789,8 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 	}
 
 	/**
-	 * Instruct the Updater to remove duplicates of RDF prefixes, to avoid issues with segmented data using a single prefix header.
+	 * Instruct the Updater to declare each RDF prefix once in its Turtle output, rather than once per sentence,
+	 * cf. {@link CoNLLRDFTurtleWriter}.
 	 */
 	public void activatePrefixDeduplication() {
 		this.prefixDeduplication = true;
@@ -628,6 +799,68 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 		return prefixDeduplication;
 	}
 
+	/**
+	 * Print the metrics of the running updater to stderr periodically, and once more in full at the end.
+	 * The metrics are available over JMX anyway, cf. {@link CoNLLRDFUpdaterMetrics}.
+	 * @param seconds
+	 * 			seconds between two stats lines, 0 for none
+	 */
+	public void setStatsInterval(int seconds) {
+		if (seconds < 0) seconds = 0;
+		this.statsInterval = seconds;
+	}
+	public int getStatsInterval() {
+		return statsInterval;
+	}
+
+	/**
+	 * Limit the wall time of the updates per sentence. A sentence exceeding the budget is aborted
+	 * after the current iteration and emitted as it was read, cf. {@link #setMarkAborted(boolean)}.
+	 * A single iteration is not interrupted.
+	 * @param millis
+	 * 			milliseconds per sentence, 0 for no limit
+	 */
+	public void setTimeBudget(long millis) {
+		if (millis < 0) millis = 0;
+		this.timeBudget = millis;
+	}
+	public long getTimeBudget() {
+		return timeBudget;
+	}
+
+	/**
+	 * Limit the iterations of each update per sentence. A sentence for which an update still changes the graph
+	 * after this many iterations is aborted and emitted as it was read, cf. {@link #setMarkAborted(boolean)}.
+	 * Unlike MAXITERATE, which keeps the graph as it is after the last iteration.
+	 * @param iterations
+	 * 			iterations per update, 0 for no limit
+	 */
+	public void setIterationBudget(int iterations) {
+		if (iterations < 0) iterations = 0;
+		this.iterationBudget = iterations;
+	}
+	public int getIterationBudget() {
+		return iterationBudget;
+	}
+
+	/**
+	 * Add a comment to the sentences aborted for exceeding a budget, naming the budget and the update.
+	 * Otherwise, they are emitted unmodified.
+	 */
+	public void setMarkAborted(boolean markAborted) {
+		this.markAborted = markAborted;
+	}
+	public boolean getMarkAborted() {
+		return markAborted;
+	}
+
+	/**
+	 * The metrics of the current or last run, <code>null</code> before the first run.
+	 */
+	public CoNLLRDFUpdaterMetrics getMetrics() {
+		return metrics;
+	}
+
 	/**
 	 * Load external RDF file into a named graph of the local dataset. 
 	 * This graph is permanent for the runtime and is accessed read-only by all threads.
@@ -649,27 +882,97 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 		if (graph == null) {
 			graph = url;
 		}
+		if (store != null) {
+			loadStoredGraph(url, graph.toString());
+			LOG.info("done...");
+			return;
+		}
 		Model m = ModelFactory.createDefaultModel();
 		try {
-			m.read(readInURI(url));
-			dataset.addNamedModel(graph.toString(), m);
+			readGraph(m, url);
+			graphs.put(graph.toString(), ModelFactory.createModelForGraph(new GraphReadOnly(m.getGraph())));
 		} catch (IOException ex) {
 			LOG.error("Exception while reading " + url + " into " + graph);
 			throw ex;
 		}
 		LOG.info("done...");
 	}
+
+	/**
+	 * Load an external RDF file into a named graph of the TDB2 store, unless the store already contains the graph
+	 * loaded from the same source, and keep a read-only view of it for the threads.
+	 * A graph loaded from a file is loaded again if the size or the modification time of the file changed.
+	 * It is kept if the file does not exist anymore.
+	 */
+	private void loadStoredGraph(URI url, String graph) throws IOException {
+		Node graphName = NodeFactory.createURI(graph);
+		Node sources = NodeFactory.createURI(SOURCES_GRAPH);
+		String stamp = sourceStamp(url);
+		boolean stored = Txn.calculateRead(store, () -> store.asDatasetGraph().containsGraph(graphName));
+		if (stored && (stamp == null || Txn.calculateRead(store,
+				() -> store.asDatasetGraph().contains(sources, graphName, SOURCE, NodeFactory.createLiteral(stamp))))) {
+			LOG.info(graph + " is stored already, not loading " + url + " again");
+		} else {
+			if (stored) {
+				LOG.info(url + " changed, loading " + graph + " again");
+				Txn.executeWrite(store, () -> store.asDatasetGraph().removeGraph(graphName));
+			}
+			// a graph not loaded completely is loaded again by the next run
+			Txn.executeWrite(store, () -> store.asDatasetGraph().deleteAny(sources, graphName, SOURCE, Node.ANY));
+			DataLoader loader = LoaderFactory.basicLoader(store.asDatasetGraph(), graphName, LoaderOps.nullOutput());
+			loader.startBulk();
+			try {
+				loader.load(url.toString());
+			} catch (RuntimeException ex) {
+				loader.finishException(ex);
+				LOG.error("Exception while reading " + url + " into " + graph);
+				throw new IOException("Failed to load " + url + " into the TDB2 store", ex);
+			}
+			loader.finishBulk();
+			LOG.info(loader.countTriples() + " triples stored");
+			if (stamp != null)
+				Txn.executeWrite(store, () -> store.asDatasetGraph().add(sources, graphName, SOURCE, NodeFactory.createLiteral(stamp)));
+		}
+		graphs.put(graph, ModelFactory.createModelForGraph(new GraphReadOnly(store.getNamedModel(graph).getGraph())));
+	}
+
+	/**
+	 * Identify the current state of the source of a stored graph: the URL, for a file with its size and modification time.
+	 * @return the stamp of the source, null if the file does not exist
+	 */
+	private static String sourceStamp(URI url) throws IOException {
+		if (!"file".equals(url.getScheme()))
+			return url.toString();
+		Path file = Paths.get(url);
+		if (!Files.exists(file))
+			return null;
+		return url + " " + Files.size(file) + " " + Files.getLastModifiedTime(file).toMillis();
+	}
+
 	public boolean hasGraph(String name) {
-		return dataset.containsNamedModel(name);
+		return graphs.containsKey(name);
 	}
+	/**
+	 * The read-only view of an external graph, shared by all threads.
+	 */
 	public Model getGraph(String name) {
-		//TODO return a copy instead of a reference
-		return dataset.getNamedModel(name);
+		return graphs.get(name);
+	}
+
+	/**
+	 * Create the dataset of an update thread, with the external graphs linked into it, not copied.
+	 */
+	Dataset createThreadDataset() {
+		Dataset memDataset = DatasetFactory.createGeneral();
+		for (Map.Entry<String, Model> graph : graphs.entrySet())
+			memDataset.addNamedModel(graph.getKey(), graph.getValue());
+		return memDataset;
 	}
 
 	/**
 	 * Define a set of updates to be executed for each sentence processed by this CoNLLRDFUpdater.
 	 * Existing updates will be overwritten by calling this function.
+	 * Each update script is parsed once here and reused for all sentences and iterations.
 	 * @param updatesRaw
 	 * 			The new set of updates as a List of String Triples. Each Triple has the following form:
 	 * 			<Name of Update>, <update script>OR<path to script>, <iterations>
@@ -677,7 +980,9 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 	 */
 	public void parseUpdates(List<Triple<String, String, String>> updatesRaw) throws IOException, ParseException {
 		updates.clear();
+		updateRequests.clear();
 		final List<Triple<String, String, String>> updatesOut = new ArrayList<Triple<String, String, String>>(updatesRaw.size());
+		final List<UpdateRequest> updateRequestsOut = new ArrayList<UpdateRequest>(updatesRaw.size());
 
 		int updateNo = 0;
 		for(Triple<String, String, String> update: updatesRaw) {
@@ -728,9 +1033,9 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 				LOG.debug("StringReader ok");
 			}
 
+			final UpdateRequest updateRequest;
 			try {
-				@SuppressWarnings("unused")
-				UpdateRequest qexec = UpdateFactory.create(updateScript);
+				updateRequest = UpdateFactory.create(updateScript);
 			} catch (QueryParseException e) {
 				LOG.error("Failed to parse argument as sparql");
 				// if update looks like a file, but can't be found
@@ -742,50 +1047,30 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 				}
 			}
 			updatesOut.add(new ImmutableTriple<String, String, String> (updateName, updateScript, updateIterations));
+			updateRequestsOut.add(updateRequest);
 			LOG.debug("Update parsed ok");
 		}
 		updates.addAll(Collections.synchronizedList(updatesOut));
+		updateRequests.addAll(updateRequestsOut);
 	}
 
 	/**
-	 * Tries to read from a specific URI.
-	 * Tries to read content directly or from GZIP
-	 * Validates content against UTF-8.
-	 * @param uri
-	 * 		the URI to be read
-	 * @return
-	 * 		the text content
-	 * @throws MalformedURLException
-	 * @throws IOException
+	 * Read an RDF file into a model. Gzipped files are inflated on a separate thread,
+	 * cf. {@link CoNLLRDFCompression#decompress(java.io.InputStream)}.
+	 * The syntax is guessed from the file name, Turtle by default.
 	 */
-	private static String readInURI(URI uri) throws MalformedURLException, IOException {
-		String result = null;
-		try {
-			result = uri.toString();
-			if (result != null && result.endsWith(".gz")) {
-				StringBuilder sb = new StringBuilder();
-				BufferedReader br = new BufferedReader(new InputStreamReader(new GZIPInputStream(uri.toURL().openStream())));
-				for (String line; (line = br.readLine()) != null; sb.append(line));
-				result = sb.toString();
-				isValidUTF8(result, "Given URI input (" + uri.getPath() + ") is not UTF-8 encoded");
-			}
-		} catch (Exception ex) {
-			LOG.error("Excpetion while reading " + uri.getPath());
-			throw ex;
+	private static void readGraph(Model m, URI uri) throws IOException {
+		String name = uri.toString();
+		if (!CoNLLRDFCompression.isCompressed(name)) {
+			m.read(name);
+			return;
+		}
+		Lang lang = RDFLanguages.filenameToLang(name.substring(0, name.length() - ".gz".length()), Lang.TTL);
+		try (InputStream in = CoNLLRDFCompression.decompress(uri.toURL().openStream())) {
+			RDFDataMgr.read(m, in, name, lang);
+		} catch (RiotException ex) {
+			throw new IOException("Failed to parse " + name, ex);
 		}
-		return result;
-	}
-	
-	private static void isValidUTF8(String s, String message) {
-		try 
-		{
-			s.getBytes("UTF-8");
-		} 
-		catch (UnsupportedEncodingException e)
-		{
-		    LOG.error(message + " - Encoding error: " + e.getMessage());
-		    System.exit(-1);
-		}		
 	}
 
 	/**
@@ -793,164 +1078,132 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 	 * Streams data from a buffered reader to a buffered writer. Distributes the processing 
 	 * across available threads. Each thread handles one sentence at a time.
 	 * Caches and outputs the resulting sentences in-order.
+	 * If a sentence input queue is set or the input is binary, sentences are taken from there instead of the reader.
+	 * If processing fails, the threads of the run are stopped before the exception is passed on.
+	 * In TDB2 mode, the database is released at the end, so an updater can run only once.
 	 * @throws IOException
 	 */
 	@Override
 	protected void processSentenceStream() throws IOException {
 		initThreads();
-		running = true;
-
-		
-		String prefixCache = new String();
-		String line;
-		String lastLine ="";
-		String buffer="";
-//		List<Pair<Integer,Long> > dRTs = new ArrayList<Pair<Integer,Long> >(); // iterations and execution time of each update in seconds
-// TODO Refactor @Leo
-		while((line = getInputStream().readLine())!=null) {
-			line=line.replaceAll("[\t ]+"," ").trim(); // TODO this will mess-up multiline strings with lines ending in whitespace
-
-			if(!buffer.trim().equals("") &&
-				(line.startsWith("@") || line.startsWith("#")) || (line.startsWith("PREFIX")) &&
-				!(lastLine.startsWith("@") || lastLine.startsWith("#") || (line.startsWith("PREFIX")))
-			) {
-				// If the buffer is not empty and the current line starts with @ or # or PREFIX
-				// and the previous line did not start with @ or # or PREFIX
-				// check if the buffer contains a ttl prefix
-				if (buffer.contains("@prefix") || buffer.contains("PREFIX"))  {
-					prefixCache = new String();
-					for (String buffLine:buffer.split("\n")) {
-						if (buffLine.trim().startsWith("@prefix") || buffLine.trim().startsWith("PREFIX")) {
-							prefixCache += buffLine+"\n";
-						}
-					}
-				} else {
-					buffer = prefixCache+buffer;
-				}
-
-				// GRAPH OUTPUT determine first sentence's id, if none were specified
-				if ((graphOutputDir != null) && (graphOutputSentences.isEmpty())) {
-					String sentID = readFirstSentenceID(buffer);
-					graphOutputSentences.add(sentID);
-					LOG.debug("Graph Output defaults to first sentence: " + sentID);
-				}
-				// TRIPLES OUTPUT determine first sentence's id, if none were specified
-				if ((triplesOutputDir != null) && (triplesOutputSentences.isEmpty())) {
-					String sentID = readFirstSentenceID(buffer);
-					triplesOutputSentences.add(sentID);
-					LOG.debug("Triples Output defaults to first sentence: " + sentID);
+		boolean completed = false;
+		try {
+			if (hasSentenceInput()) {
+				// the last sentence of the stream is handled as final sentence
+				CoNLLRDFSentence sentence = readSentence();
+				while (sentence != null) {
+					CoNLLRDFSentence next = readSentence();
+					if (next != null)
+						processSentence(sentence);
+					else
+						processFinalSentence(sentence);
+					sentence = next;
 				}
+			} else {
+				readSentenceStream();
+			}
 
-				//lookahead
-				//add ALL sentences to sentBufferLookahead
-				sentBufferLookahead.add(buffer);
-				if (sentBufferLookahead.size() > lookahead_snts) {
-					//READY TO PROCESS 
-					// remove first sentence from buffer and process it.
-					// !!if lookahead = 0 then only current buffer is in sentBufferLookahead!!
-					executeThread(sentBufferLookahead.remove(0));
-				}		
-				
-				//lookback
-				//needs to consider lookahead buffer. The full buffer size needs to be lookahead + lookback.
+			// LOOKAHEAD work down remaining buffer
+			while (sentBufferLookahead.size()>0) {
+				scheduleSentence(sentBufferLookahead.remove(0));
 				if (lookback_snts > 0) {
 					while (sentBufferLookback.size() >= lookback_snts + sentBufferLookahead.size()) sentBufferLookback.remove(0);
-					sentBufferLookback.add(buffer);
 				}
-
-				flushOutputBuffer(getOutputStream());
-				buffer="";
 			}
-			buffer=buffer+line+"\n";
-			lastLine=line;
+
+			//wait for threads to finish work
+			joinThreads();
+			joinOutputWriter();
+			completed = true;
+		} finally {
+			if (!completed)
+				abortThreads();
+			stopMetrics();
+			if (store != null)
+				// closes the database and releases its lock, which connectDataset keeps for the life of the JVM
+				TDBInternal.expel(store.asDatasetGraph());
 		}
+	}
 
+	/**
+	 * Splits the CoNLL-RDF text stream from the input stream into sentences and processes them, cf. {@link CoNLLRDFSentenceReader}.
+	 */
+	private void readSentenceStream() throws IOException {
+		// TODO collapsing whitespace will mess-up multiline strings with lines ending in whitespace
+		CoNLLRDFSentenceReader reader = new CoNLLRDFSentenceReader(getInputStream());
+		CoNLLRDFSentence sentence = reader.next();
+		for (CoNLLRDFSentence next; (next = reader.next()) != null; sentence = next)
+			processSentence(sentence);
 		// FINAL SENTENCE (with prefixes if necessary)
-		if (!(buffer.contains("@prefix") || buffer.contains("PREFIX")))  {
-			buffer = prefixCache+buffer;
+		processFinalSentence(sentence);
+	}
+
+	/**
+	 * Queue a sentence for processing and dispatch the next sentence whose lookahead is complete.
+	 */
+	private void processSentence(CoNLLRDFSentence sentence) throws IOException {
+		selectDefaultOutputSentences(sentence);
+
+		//lookahead
+		//add ALL sentences to sentBufferLookahead
+		sentBufferLookahead.add(sentence);
+		if (sentBufferLookahead.size() > lookahead_snts) {
+			//READY TO PROCESS 
+			// remove first sentence from buffer and process it.
+			// !!if lookahead = 0 then only current buffer is in sentBufferLookahead!!
+			scheduleSentence(sentBufferLookahead.remove(0));
+		}		
+		
+		//lookback
+		//needs to consider lookahead buffer. The full buffer size needs to be lookahead + lookback.
+		if (lookback_snts > 0) {
+			while (sentBufferLookback.size() >= lookback_snts + sentBufferLookahead.size()) sentBufferLookback.remove(0);
+			sentBufferLookback.add(sentence);
 		}
 
+	}
+
+	/**
+	 * Queue the last sentence of the stream, it is never part of a lookback window.
+	 */
+	private void processFinalSentence(CoNLLRDFSentence sentence) {
 		// To address the edge case of no comments or prefixes occuring after the first sentence of a stream
-		// GRAPH OUTPUT determine first sentence's id, if none were specified
+		selectDefaultOutputSentences(sentence);
+		sentBufferLookahead.add(sentence);
+	}
+
+	/**
+	 * GRAPH and TRIPLES OUTPUT determine first sentence's id, if none were specified
+	 */
+	private void selectDefaultOutputSentences(CoNLLRDFSentence sentence) {
 		if ((graphOutputDir != null) && (graphOutputSentences.isEmpty())) {
-			String sentID = readFirstSentenceID(buffer);
+			String sentID = readFirstSentenceID(sentence);
 			graphOutputSentences.add(sentID);
 			LOG.debug("Graph Output defaults to first sentence: " + sentID);
 		}
-		// TRIPLES OUTPUT determine first sentence's id, if none were specified
 		if ((triplesOutputDir != null) && (triplesOutputSentences.isEmpty())) {
-			String sentID = readFirstSentenceID(buffer);
+			String sentID = readFirstSentenceID(sentence);
 			triplesOutputSentences.add(sentID);
 			LOG.debug("Triples Output defaults to first sentence: " + sentID);
 		}
-
-		// LOOKAHEAD work down remaining buffer
-		sentBufferLookahead.add(buffer);
-		while (sentBufferLookahead.size()>0) {
-			executeThread(sentBufferLookahead.remove(0));
-			if (lookback_snts > 0) {
-				while (sentBufferLookback.size() >= lookback_snts + sentBufferLookahead.size()) sentBufferLookback.remove(0);
-			}
-		}
-			
-		
-		//wait for threads to finish work
-		boolean threadsRunning = true;
-		while(threadsRunning) {
-			threadsRunning = false;
-			for (UpdateThread t:updateThreads) {
-				if (t != null)
-				if (t.getState() == Thread.State.RUNNABLE || t.getState() == Thread.State.BLOCKED) {
-					threadsRunning = true;
-				}
-			}
-		}
-		//terminate all threads
-		running = false;
-		for (UpdateThread t:updateThreads) {
-			if (t != null)
-			if(t.getState() == Thread.State.NEW) {
-				t.start(); //in case of spontaneous resurrection, new threads should not have any work to do at this point
-			} else if (!(t.getState() == Thread.State.TERMINATED)) {
-				synchronized(t) {
-					t.notify();
-				}
-			}
-		}
-		
-		//sum up statistics
-		List<Pair<Integer,Long>> dRTs_sum = new ArrayList<Pair<Integer,Long> >();
-		for (List<Pair<Integer,Long>> dRT_thread:dRTs) {
-			if (dRTs_sum.isEmpty())
-				dRTs_sum.addAll(dRT_thread);
-			else
-				for (int x = 0; x < dRT_thread.size(); ++x)
-					dRTs_sum.set(x, new ImmutablePair<Integer, Long>(
-							dRTs_sum.get(x).getKey() + dRT_thread.get(x).getKey(),
-							dRTs_sum.get(x).getValue() + dRT_thread.get(x).getValue()));
-			
-		}
-		if (!dRTs_sum.isEmpty())
-			LOG.debug("Done - List of iterations and execution times for the updates done (in given order):\n\t\t" + dRTs_sum.toString());
-
-		//final flush
-		flushOutputBuffer(getOutputStream());
-		getOutputStream().close();
-		
 	}
 
 	/**
-	 * Retrieve the first "Sentence ID" (nif-core#Sentence -property) from the buffer and return it
+	 * Retrieve the first "Sentence ID" (nif-core#Sentence -property) from the sentence and return it
 	 */
-	private String readFirstSentenceID(String buffer) {
+	private String readFirstSentenceID(CoNLLRDFSentence sentence) {
 		Model m = ModelFactory.createDefaultModel();
-		String sentID = m.read(new StringReader(buffer),null, "TTL").listSubjectsWithProperty(
+		sentence.addTo(m);
+		String sentID = m.listSubjectsWithProperty(
 				m.getProperty("http://www.w3.org/1999/02/22-rdf-syntax-ns#type"), 
 				m.getProperty("http://persistence.uni-leipzig.org/nlp2rdf/ontologies/nif-core#Sentence")
 			).next().getLocalName();
 		return sentID;
 	}
 
+	/**
+	 * Start a fixed pool of worker threads, all fed by the same job queue.
+	 */
 	private void initThreads() {
 		// Use the processor cores available to runtime (but at least 1) as thread count, if an invalid thread count is provided.
 		if (threads <= 0) {
@@ -958,111 +1211,215 @@ public class CoNLLRDFUpdater extends CoNLLRDFComponent {
 			LOG.info("Falling back to default thread maximum.");
 		}
 		LOG.info("Executing on "+threads+" processor cores, max.");
+		// one job waiting per thread keeps all threads busy, more would only delay the output
+		jobQueue = new ArrayBlockingQueue<Pair<Long, Triple<List<CoNLLRDFSentence>, CoNLLRDFSentence, List<CoNLLRDFSentence>>>>(threads);
+		scheduledSentences = 0;
+		sentBufferOut = new ReorderBuffer(threads * OUTPUT_WINDOW_PER_THREAD);
+		turtleWriter = new CoNLLRDFTurtleWriter();
+		outputWriter = new Thread(new Runnable() {
+			public void run() {
+				writeOutput();
+			}
+		}, "CoNLLRDFUpdater-output");
+		outputWriter.start();
+		startMetrics();
 		for (int i = 0; i < threads; i++) {
-			updateThreads.add(null);
-			dataset.addNamedModel("http://thread"+i, ModelFactory.createDefaultModel());
-			sentBufferThreads.add(new ImmutableTriple<List<String>, String, List<String>>(
-					new ArrayList<String>(), new String(), new ArrayList<String>()));
-			dRTs.add(Collections.synchronizedList(new ArrayList<Pair<Integer,Long> >()));
+			UpdateThread t = new UpdateThread(this, i);
+			updateThreads.add(t);
+			t.start();
 		}
 	}
 
-	private synchronized void flushOutputBuffer(PrintStream out) {
-		LOG.trace("OutBufferSize: "+sentBufferOut.size());
+	/**
+	 * Register the metrics of this run and start printing them, if a stats interval is set.
+	 */
+	private void startMetrics() {
+		metrics = new CoNLLRDFUpdaterMetrics(Arrays.asList(getUpdateNames()), () -> jobQueue.size(),
+				() -> sentBufferLookahead.size(), () -> sentBufferOut.size());
+		metrics.register();
+		if (statsInterval > 0) {
+			statsPrinter = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread t = new Thread(r, "CoNLLRDFUpdater-stats");
+				t.setDaemon(true);
+				return t;
+			});
+			statsPrinter.scheduleAtFixedRate(() -> System.err.println(metrics.getStatsLine()),
+					statsInterval, statsInterval, TimeUnit.SECONDS);
+		}
+	}
 
-		String prefixCacheOut = new String();
+	/**
+	 * Stop printing the metrics and report them for all updates, in the given order.
+	 */
+	private void stopMetrics() {
+		if (statsPrinter != null) {
+			statsPrinter.shutdownNow();
+			statsPrinter = null;
+			System.err.println(metrics.getStatsTable());
+		} else {
+			LOG.debug("Done - " + metrics.getStatsTable());
+		}
+		metrics.unregister();
+	}
 
-		while (!sentBufferOut.isEmpty()) {
-			if (sentBufferOut.get(0).matches("\\d+")) break;
-			
-			String outString = new String();
-			if (prefixDeduplication) {
-				String prefixCacheTMP = new String();
-				for (String buffLine:sentBufferOut.remove(0).split("\n")) {
-					if (buffLine.trim().startsWith("@prefix") || buffLine.trim().startsWith("PREFIX")) {
-						prefixCacheTMP += buffLine+"\n";
-					} else if (!buffLine.trim().isEmpty()) {
-							outString += buffLine+"\n";
-					}
-				}
-				if (!prefixCacheTMP.equals(prefixCacheOut)) {
-					prefixCacheOut = prefixCacheTMP;
-					outString = prefixCacheTMP + outString + "\n";
+	/**
+	 * End the job queue and wait for all worker threads to finish their remaining jobs.
+	 * @throws InterruptedIOException if interrupted while waiting
+	 */
+	private void joinThreads() throws IOException {
+		try {
+			for (int i = 0; i < updateThreads.size(); i++) {
+				jobQueue.put(END_OF_JOBS);
+			}
+			for (UpdateThread t:updateThreads) {
+				t.join();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the update threads to finish");
+		}
+		updateThreads.clear();
+	}
+
+	/**
+	 * Stop the threads of a failed run: drop the pending jobs, end the job queue, interrupt the output writer
+	 * and wait for the worker threads to finish their current jobs.
+	 */
+	private void abortThreads() {
+		jobQueue.clear();
+		for (int i = 0; i < updateThreads.size(); i++) {
+			jobQueue.offer(END_OF_JOBS);
+		}
+		outputWriter.interrupt();
+		try {
+			for (UpdateThread t:updateThreads) {
+				t.join();
+			}
+			outputWriter.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		updateThreads.clear();
+	}
+
+	/**
+	 * Signal the end of the stream to the output writer and wait until it has written all sentences.
+	 * @throws InterruptedIOException if interrupted while waiting
+	 */
+	private void joinOutputWriter() throws IOException {
+		sentBufferOut.close(scheduledSentences);
+		try {
+			outputWriter.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the output to be written");
+		}
+		checkOutputWriter();
+	}
+
+	/**
+	 * Rethrow the failure of the output writer, if any.
+	 * @throws IOException the failure, wrapped unless it is an IOException
+	 */
+	private void checkOutputWriter() throws IOException {
+		Throwable failure = outputWriterFailure;
+		if (failure instanceof IOException)
+			throw (IOException) failure;
+		if (failure != null)
+			throw new IOException("Output writer failed: " + failure, failure);
+	}
+
+	/**
+	 * Run the output writer: write the results of the update threads in original order, as soon as they are complete.
+	 * The output is closed by this thread, as a piped output fails once the thread writing to it has ended.
+	 * Any failure is recorded and releases the reading thread, which rethrows it.
+	 */
+	private void writeOutput() {
+		CoNLLRDFSentence sentence;
+		outputWriterFailure = null;
+		try {
+			while ((sentence = sentBufferOut.take()) != CoNLLRDFSentence.END_OF_STREAM) {
+				writeOutputSentence(sentence, getOutputStream());
+				try {
+					sentenceWritten();
+				} catch (IOException e) {
+					LOG.error("Failed to save checkpoint: " + e.getMessage());
 				}
-			} else {
-				outString = sentBufferOut.remove(0);
 			}
-			if (!outString.endsWith("\n\n")) outString += "\n";
-			out.print(outString);
+			closeOutput();
+		} catch (InterruptedException e) {
+			LOG.warn("Output writer interrupted.");
+			outputWriterFailure = new InterruptedIOException("Output writer interrupted");
+			sentBufferOut.fail();
+		} catch (Throwable t) {
+			outputWriterFailure = t;
+			sentBufferOut.fail();
 		}
 	}
 
-	private void executeThread(String buffer) {
-		MutableTriple<List<String>, String, List<String>>sentBufferThread =
-				new MutableTriple<List<String>, String, List<String>>(
-				new ArrayList<String>(), new String(), new ArrayList<String>());
+	/**
+	 * Write a single result, to the sentence output, in binary or as Turtle text.
+	 * In text mode, only prefixes not declared before are written if prefix deduplication is active.
+	 */
+	private void writeOutputSentence(CoNLLRDFSentence sentence, PrintStream out) throws IOException {
+		if (hasSentenceOutput()) {
+			// sentences which failed to unload are dropped
+			if (sentence != null)
+				writeSentence(sentence);
+			return;
+		}
+
+		String outString = new String();
+		if (prefixDeduplication && sentence != null) {
+			StringWriter turtle = new StringWriter();
+			turtleWriter.write(sentence.getComments(), sentence.getModel(), turtle);
+			outString = turtle.toString();
+		} else {
+			outString = (sentence != null) ? sentence.toString() : "";
+		}
+		if (!outString.endsWith("\n\n")) outString += "\n";
+		out.print(outString);
+	}
+
+	/**
+	 * Hand a sentence to the worker threads, along with its lookback and lookahead.
+	 * Blocks while all threads are busy and the job queue is full.
+	 * @throws InterruptedIOException if interrupted while waiting
+	 * @throws IOException if the output writer failed
+	 */
+	private void scheduleSentence(CoNLLRDFSentence sentence) throws IOException {
+		MutableTriple<List<CoNLLRDFSentence>, CoNLLRDFSentence, List<CoNLLRDFSentence>>sentBufferThread =
+				new MutableTriple<List<CoNLLRDFSentence>, CoNLLRDFSentence, List<CoNLLRDFSentence>>(
+				new ArrayList<CoNLLRDFSentence>(), null, new ArrayList<CoNLLRDFSentence>());
 		//sentBufferLookback only needs to be filled up to the current sentence.
 		//All other sentences are for further lookahead iterations
 //		sentBufferThread.getLeft().addAll(sentBufferLookback);
 		for (int i = 0; i < sentBufferLookback.size() - sentBufferLookahead.size(); i++) {
 			sentBufferThread.getLeft().add(sentBufferLookback.get(i));
 		}
-		sentBufferThread.setMiddle(buffer);
+		sentBufferThread.setMiddle(sentence);
 		sentBufferThread.getRight().addAll(sentBufferLookahead);
-		int i = 0;
-
-		while(i < updateThreads.size()) {
-			LOG.trace("ThreadState " + i + ": "+((updateThreads.get(i)!=null)?updateThreads.get(i).getState():"null"));
-			if (updateThreads.get(i) == null) {
-				sentBufferThreads.set(i, sentBufferThread);
-				sentBufferOut.add(String.valueOf(i)); //add last sentences to the end of the output queue.
-				updateThreads.set(i, new UpdateThread(this, i));
-				updateThreads.get(i).start();
-				LOG.trace("restart "+i);
-				LOG.trace("OutBufferSize: "+sentBufferOut.size());
-				break;
-			} else 
-				if (updateThreads.get(i).getState() == Thread.State.WAITING) {
-				synchronized(updateThreads.get(i)) {
-				sentBufferThreads.set(i, sentBufferThread);
-				sentBufferOut.add(String.valueOf(i)); //add last sentences to the end of the output queue.
-				updateThreads.get(i).notify();
-				}
-				LOG.trace("wake up "+i);
-				break;
-			} else 
-				if (updateThreads.get(i).getState() == Thread.State.NEW) {
-				sentBufferThreads.set(i, sentBufferThread);
-				sentBufferOut.add(String.valueOf(i)); //add last sentences to the end of the output queue.
-				updateThreads.get(i).start();
-				LOG.trace("start "+i);
-				LOG.trace("OutBufferSize: "+sentBufferOut.size());
-				break;
-			} else 
-				if (updateThreads.get(i).getState() == Thread.State.TERMINATED) {
-				sentBufferThreads.set(i, sentBufferThread);
-				sentBufferOut.add(String.valueOf(i)); //add last sentences to the end of the output queue.
-				updateThreads.set(i, new UpdateThread(this, i));
-				updateThreads.get(i).start();
-				LOG.trace("restart "+i);
-				LOG.trace("OutBufferSize: "+sentBufferOut.size());
-				break;
-			}
-			
-			i++;
-			if (i >= updateThreads.size()) {
-				try {
-					synchronized (this) {
-//						System.err.println("Updater waiting");
-						wait(20);
-					}
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				} finally {
-					i = 0;
-				}
-			}
+
+		long seq = scheduledSentences++;
+		try {
+			sentBufferOut.awaitSlot(seq);
+			checkOutputWriter();
+			jobQueue.put(new ImmutablePair<Long, Triple<List<CoNLLRDFSentence>, CoNLLRDFSentence, List<CoNLLRDFSentence>>>(seq, sentBufferThread));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a free update thread");
 		}
+		LOG.trace("Scheduled sentence: "+seq);
+	}
+
+	@Override
+	protected boolean acceptsSentenceInput() {
+		return true;
+	}
+
+	@Override
+	protected boolean producesSentenceOutput() {
+		return true;
 	}
 
 	public static void main(String[] args) throws IOException {
@@ -22,9 +22,8 @@ public class CoNLLRDFUpdaterFactory extends CoNLLRDFComponentFactory {
 	static Logger LOG = LogManager.getLogger(CoNLLRDFUpdaterFactory.class);
 	@Override
 	public CoNLLRDFUpdater buildFromCLI(String[] args) throws IOException, ParseException {
-		CoNLLRDFUpdater updater = new CoNLLRDFUpdater();
 		final CommandLine cmd = new CoNLLRDFCommandLine(
-				"CoNLLRDFUpdater [-loglevel LEVEL] [-threads T] [-lookahead N] [-lookback N] [-custom [-model URI [GRAPH]]* [-graphsout DIR [SENT_ID ...]] [-triplesout DIR [SENT_ID ...]] -updates [UPDATE ...]]",
+				"CoNLLRDFUpdater [-loglevel LEVEL] [-threads T] [-lookahead N] [-lookback N] [-stats SECONDS] [-budget MS] [-budgetIterations N [-markAborted]] [-tdb2 DIR] [-binary] [-custom [-model URI [GRAPH]]* [-graphsout DIR [SENT_ID ...]] [-triplesout DIR [SENT_ID ...]] -updates [UPDATE ...]]",
 				"read TTL from stdin => update CoNLL-RDF", new Option[] {
 						// Define cli options in the correct order for the help-message
 						Option.builder("loglevel").hasArg().desc("set log level to LEVEL").argName("level").build(),
@@ -35,7 +34,18 @@ public class CoNLLRDFUpdaterFactory extends CoNLLRDFComponentFactory {
 								.type(Number.class).build(),
 						Option.builder("lookback").hasArg().desc("cache N preceeding sentences in lookback graph")
 								.type(Number.class).build(),
-						new Option("prefixDeduplication", false, "Remove duplicates of TTL-Prefixes"),
+						Option.builder("stats").hasArg().desc("print update metrics to stderr every SECONDS")
+								.argName("seconds").type(Number.class).build(),
+						Option.builder("budget").hasArg().desc("abort sentences whose updates take longer than MS milliseconds")
+								.argName("ms").type(Number.class).build(),
+						Option.builder("budgetIterations").hasArg()
+								.desc("abort sentences for which an update takes more than N iterations")
+								.type(Number.class).build(),
+						new Option("markAborted", false, "add a comment to the sentences aborted for a budget"),
+						new Option("prefixDeduplication", false, "declare each TTL-Prefix once, not for every sentence"),
+						Option.builder("tdb2").hasArg().desc("keep the models in a TDB2 database in DIR instead of memory")
+								.argName("dir").build(),
+						new Option("binary", false, "read and write binary CoNLL-RDF instead of Turtle, cf. CoNLLRDFBinary"),
 						Option.builder("custom").hasArg(false).desc("use custom update scripts")
 								./* required(). */build(),
 						Option.builder("model").hasArgs().desc("to load additional Models into local graph").build(),
@@ -48,6 +58,8 @@ public class CoNLLRDFUpdaterFactory extends CoNLLRDFComponentFactory {
 								.desc("followed by SPARQL scripts paired with {iterations/u}").build() },
 				CoNLLRDFUpdater.LOG).parseArgs(args);
 
+		CoNLLRDFUpdater updater = cmd.hasOption("tdb2") ? new CoNLLRDFUpdater("TDB2", cmd.getOptionValue("tdb2"), 0)
+				: new CoNLLRDFUpdater();
 		if (cmd.hasOption("threads")) {
 			updater.setThreads(((Number) cmd.getParsedOptionValue("threads")).intValue());
 		}
@@ -57,9 +69,24 @@ public class CoNLLRDFUpdaterFactory extends CoNLLRDFComponentFactory {
 		if (cmd.hasOption("lookback")) {
 			updater.activateLookback(((Number) cmd.getParsedOptionValue("lookback")).intValue());
 		}
+		if (cmd.hasOption("stats")) {
+			updater.setStatsInterval(((Number) cmd.getParsedOptionValue("stats")).intValue());
+		}
+		if (cmd.hasOption("budget")) {
+			updater.setTimeBudget(((Number) cmd.getParsedOptionValue("budget")).longValue());
+		}
+		if (cmd.hasOption("budgetIterations")) {
+			updater.setIterationBudget(((Number) cmd.getParsedOptionValue("budgetIterations")).intValue());
+		}
+		if (cmd.hasOption("markAborted")) {
+			updater.setMarkAborted(true);
+		}
 		if (cmd.hasOption("prefixDeduplication")) {
 			updater.activatePrefixDeduplication();
 		}
+		if (cmd.hasOption("binary")) {
+			updater.setBinary(true);
+		}
 		// READ GRAPHSOUT PARAMETERS
 		if (cmd.hasOption("graphsout")) {
 			String[] graphsoutArgs = cmd.getOptionValues("graphsout");
@@ -113,7 +140,11 @@ public class CoNLLRDFUpdaterFactory extends CoNLLRDFComponentFactory {
 		int threads = 0;
 		if (conf.get("threads") != null)
 			threads = conf.get("threads").asInt(0);
-		CoNLLRDFUpdater updater = new CoNLLRDFUpdater("","",threads);
+		CoNLLRDFUpdater updater;
+		if (conf.path("tdb2").isTextual())
+			updater = new CoNLLRDFUpdater("TDB2", conf.get("tdb2").asText(), threads);
+		else
+			updater = new CoNLLRDFUpdater("","",threads);
 
 		// READ GRAPHSOUT PARAMETERS
 		if (conf.get("graphsoutDIR") != null) {
@@ -153,12 +184,31 @@ public class CoNLLRDFUpdaterFactory extends CoNLLRDFComponentFactory {
 				updater.activateLookback(lookback_snts);
 		}
 
+		// READ STATS INTERVAL
+		if (conf.get("stats") != null) {
+			updater.setStatsInterval(conf.get("stats").asInt(0));
+		}
+
+		// READ BUDGETS
+		if (conf.get("budget") != null) {
+			updater.setTimeBudget(conf.get("budget").asLong(0));
+		}
+		if (conf.get("budgetIterations") != null) {
+			updater.setIterationBudget(conf.get("budgetIterations").asInt(0));
+		}
+		if (conf.get("markAborted") != null) {
+			updater.setMarkAborted(conf.get("markAborted").asBoolean());
+		}
+
 		// READ PREFIX DEDUPLICATION
 		if (conf.get("prefixDeduplication") != null) {
 			Boolean prefixDeduplication = conf.get("prefixDeduplication").asBoolean();
 			if (prefixDeduplication)
 				updater.activatePrefixDeduplication();
 		}
+		if (conf.get("binary") != null) {
+			updater.setBinary(conf.get("binary").asBoolean());
+		}
 
 		// READ ALL UPDATES
 		// should be <#UPDATEFILENAMEORSTRING, #UPDATESTRING, #UPDATEITER>
@@ -0,0 +1,324 @@
+package org.acoli.conll.rdf;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Live metrics of a CoNLLRDFUpdater: per update, histograms of the wall time and the iterations per sentence,
+ * the slowest sentence and the number of times MAXITERATE was reached; the depths of the updater's queues.
+ * Registered as MBean <code>org.acoli.conll.rdf:type=CoNLLRDFUpdater,name=N</code> while the updater is running,
+ * and optionally printed to stderr periodically, cf. {@link CoNLLRDFUpdater#setStatsInterval(int)}.
+ */
+public class CoNLLRDFUpdaterMetrics implements CoNLLRDFUpdaterMetricsMXBean {
+	static Logger LOG = LogManager.getLogger(CoNLLRDFUpdaterMetrics.class);
+	private static final AtomicInteger INSTANCES = new AtomicInteger();
+	// number of updates shown on the stats line, the ones with the highest total time
+	static final int STATS_LINE_UPDATES = 3;
+
+	private final List<UpdateMetrics> updates = new ArrayList<UpdateMetrics>();
+	private final LongAdder sentences = new LongAdder();
+	private final LongAdder failedSentences = new LongAdder();
+	private final LongAdder abortedSentences = new LongAdder();
+	private final long start = System.nanoTime();
+	private final IntSupplier jobQueueDepth;
+	private final IntSupplier lookaheadDepth;
+	private final IntSupplier outputBufferDepth;
+	private ObjectName name = null;
+
+	/**
+	 * @param updateNames the names of the updates, in the order of execution
+	 */
+	CoNLLRDFUpdaterMetrics(List<String> updateNames, IntSupplier jobQueueDepth, IntSupplier lookaheadDepth, IntSupplier outputBufferDepth) {
+		for (String updateName : updateNames)
+			updates.add(new UpdateMetrics(updateName));
+		this.jobQueueDepth = jobQueueDepth;
+		this.lookaheadDepth = lookaheadDepth;
+		this.outputBufferDepth = outputBufferDepth;
+	}
+
+	/**
+	 * Record an update applied to a sentence.
+	 * @param update the index of the update
+	 * @param nanos the wall time of all iterations
+	 * @param iterations the number of iterations
+	 * @param sentence the number of the sentence in the input, starting with 1
+	 */
+	void recordUpdate(int update, long nanos, int iterations, long sentence) {
+		updates.get(update).record(nanos, iterations, sentence);
+	}
+
+	void recordSentence(boolean failed) {
+		sentences.increment();
+		if (failed)
+			failedSentences.increment();
+	}
+
+	/** a sentence was aborted for exceeding a budget */
+	void recordAborted() {
+		abortedSentences.increment();
+	}
+
+	/** register as MBean, failures are logged */
+	void register() {
+		try {
+			name = new ObjectName("org.acoli.conll.rdf:type=CoNLLRDFUpdater,name=" + INSTANCES.incrementAndGet());
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+		} catch (JMException e) {
+			LOG.warn("Could not register the updater metrics: " + e.getMessage());
+			name = null;
+		}
+	}
+
+	/** the name of the MBean, <code>null</code> if not registered */
+	ObjectName getObjectName() {
+		return name;
+	}
+
+	void unregister() {
+		if (name == null)
+			return;
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			server.unregisterMBean(name);
+		} catch (JMException e) {
+			LOG.warn("Could not unregister the updater metrics: " + e.getMessage());
+		}
+		name = null;
+	}
+
+	@Override
+	public long getSentences() {
+		return sentences.sum();
+	}
+
+	@Override
+	public long getFailedSentences() {
+		return failedSentences.sum();
+	}
+
+	@Override
+	public long getAbortedSentences() {
+		return abortedSentences.sum();
+	}
+
+	@Override
+	public double getSentencesPerSecond() {
+		return getSentences() / Math.max((System.nanoTime() - start) / 1e9, 1e-3);
+	}
+
+	@Override
+	public int getJobQueueDepth() {
+		return jobQueueDepth.getAsInt();
+	}
+
+	@Override
+	public int getLookaheadDepth() {
+		return lookaheadDepth.getAsInt();
+	}
+
+	@Override
+	public int getOutputBufferDepth() {
+		return outputBufferDepth.getAsInt();
+	}
+
+	@Override
+	public List<UpdateStatistics> getUpdates() {
+		List<UpdateStatistics> statistics = new ArrayList<UpdateStatistics>();
+		for (UpdateMetrics update : updates)
+			statistics.add(update.snapshot());
+		return statistics;
+	}
+
+	@Override
+	public String getStatsLine() {
+		StringBuilder line = new StringBuilder("CoNLLRDFUpdater: ").append(getSentences()).append(" sentences (")
+				.append(String.format("%.1f", getSentencesPerSecond())).append("/s), ").append(getFailedSentences())
+				.append(" failed, ").append(getAbortedSentences()).append(" aborted; queued ").append(getJobQueueDepth()).append(", lookahead ").append(getLookaheadDepth())
+				.append(", output ").append(getOutputBufferDepth());
+		List<UpdateStatistics> statistics = getUpdates();
+		statistics.sort(Comparator.comparingLong(UpdateStatistics::getTotalMillis).reversed());
+		for (UpdateStatistics update : statistics.subList(0, Math.min(STATS_LINE_UPDATES, statistics.size())))
+			line.append(" | ").append(update);
+		return line.toString();
+	}
+
+	/** one line per update, in the order of execution */
+	String getStatsTable() {
+		StringBuilder table = new StringBuilder(getStatsLine().replaceFirst(" \\|.*", ""));
+		for (UpdateStatistics update : getUpdates())
+			table.append("\n\t").append(update);
+		return table.toString();
+	}
+
+	/** index of the log2 bucket of a value: 0 for 0, i for [2^(i-1), 2^i) */
+	static int bucket(long value) {
+		return 64 - Long.numberOfLeadingZeros(value);
+	}
+
+	/**
+	 * Estimate the value below which the given share of all values falls, interpolating linearly within its log2 bucket.
+	 * @param max the maximum of all values, which the estimate does not exceed
+	 */
+	static double percentile(long[] histogram, double share, double max) {
+		long count = 0;
+		for (long c : histogram)
+			count += c;
+		double rank = share * count;
+		long seen = 0;
+		for (int i = 0; i < histogram.length; i++) {
+			if (histogram[i] > 0 && seen + histogram[i] >= rank) {
+				double lower = (i == 0) ? 0 : 1L << (i - 1);
+				double upper = (i == 0) ? 0 : 1L << i;
+				return Math.min(max, lower + (upper - lower) * (rank - seen) / histogram[i]);
+			}
+			seen += histogram[i];
+		}
+		return 0;
+	}
+
+	/** the accumulated metrics of an update */
+	private static class UpdateMetrics {
+		private final String name;
+		private long sentences = 0;
+		private long totalNanos = 0;
+		private long maxNanos = 0;
+		private long slowestSentence = 0;
+		private long iterations = 0;
+		private int maxIterations = 0;
+		private long maxIterateHits = 0;
+		// by log2 of the wall time in microseconds
+		private final long[] timeHistogram = new long[40];
+		// by log2 of the iterations
+		private final long[] iterationHistogram = new long[bucket(CoNLLRDFComponent.MAXITERATE) + 1];
+
+		UpdateMetrics(String name) {
+			this.name = name;
+		}
+
+		synchronized void record(long nanos, int iterations, long sentence) {
+			sentences++;
+			totalNanos += nanos;
+			if (nanos > maxNanos) {
+				maxNanos = nanos;
+				slowestSentence = sentence;
+			}
+			this.iterations += iterations;
+			maxIterations = Math.max(maxIterations, iterations);
+			if (iterations >= CoNLLRDFComponent.MAXITERATE)
+				maxIterateHits++;
+			timeHistogram[Math.min(bucket(nanos / 1000), timeHistogram.length - 1)]++;
+			iterationHistogram[Math.min(bucket(iterations), iterationHistogram.length - 1)]++;
+		}
+
+		synchronized UpdateStatistics snapshot() {
+			return new UpdateStatistics(name, sentences, totalNanos, maxNanos, slowestSentence, iterations, maxIterations,
+					maxIterateHits, timeHistogram.clone(), iterationHistogram.clone());
+		}
+	}
+
+	/**
+	 * The statistics of an update at some point of the run. Wall times are per sentence, including all iterations.
+	 * The histograms count the sentences by the log2 of the wall time in microseconds, and of the iterations:
+	 * bucket 0 holds 0, bucket i holds [2^(i-1), 2^i).
+	 */
+	public static class UpdateStatistics {
+		private final String name;
+		private final long sentences;
+		private final long totalNanos;
+		private final long maxNanos;
+		private final long slowestSentence;
+		private final long iterations;
+		private final int maxIterations;
+		private final long maxIterateHits;
+		private final long[] timeHistogram;
+		private final long[] iterationHistogram;
+
+		UpdateStatistics(String name, long sentences, long totalNanos, long maxNanos, long slowestSentence, long iterations,
+				int maxIterations, long maxIterateHits, long[] timeHistogram, long[] iterationHistogram) {
+			this.name = name;
+			this.sentences = sentences;
+			this.totalNanos = totalNanos;
+			this.maxNanos = maxNanos;
+			this.slowestSentence = slowestSentence;
+			this.iterations = iterations;
+			this.maxIterations = maxIterations;
+			this.maxIterateHits = maxIterateHits;
+			this.timeHistogram = timeHistogram;
+			this.iterationHistogram = iterationHistogram;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getSentences() {
+			return sentences;
+		}
+
+		public long getTotalMillis() {
+			return totalNanos / 1000000;
+		}
+
+		public double getMeanMillis() {
+			return (sentences == 0) ? 0 : totalNanos / 1e6 / sentences;
+		}
+
+		public double getMaxMillis() {
+			return maxNanos / 1e6;
+		}
+
+		/** the median wall time, estimated from the histogram, at most the maximum */
+		public double getMedianMillis() {
+			return percentile(timeHistogram, 0.5, maxNanos / 1e3) / 1e3;
+		}
+
+		/** the 99th percentile of the wall time, estimated from the histogram, at most the maximum */
+		public double getP99Millis() {
+			return percentile(timeHistogram, 0.99, maxNanos / 1e3) / 1e3;
+		}
+
+		/** number of the sentence with the highest wall time, in the input of the updater */
+		public long getSlowestSentence() {
+			return slowestSentence;
+		}
+
+		public long getIterations() {
+			return iterations;
+		}
+
+		public int getMaxIterations() {
+			return maxIterations;
+		}
+
+		/** number of sentences for which the update stopped at MAXITERATE */
+		public long getMaxIterateHits() {
+			return maxIterateHits;
+		}
+
+		public long[] getTimeHistogram() {
+			return timeHistogram.clone();
+		}
+
+		public long[] getIterationHistogram() {
+			return iterationHistogram.clone();
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s: %d ms total, median %.3f ms, p99 %.3f ms, max %.3f ms (sentence %d), max %d iterations, %d MAXITERATE",
+					name, getTotalMillis(), getMedianMillis(), getP99Millis(), getMaxMillis(), slowestSentence, maxIterations, maxIterateHits);
+		}
+	}
+}
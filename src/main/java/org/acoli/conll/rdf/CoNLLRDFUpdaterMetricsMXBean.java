@@ -0,0 +1,35 @@
+package org.acoli.conll.rdf;
+
+import java.util.List;
+
+/**
+ * Metrics of a running CoNLLRDFUpdater, as exposed over JMX, cf. {@link CoNLLRDFUpdaterMetrics}.
+ */
+public interface CoNLLRDFUpdaterMetricsMXBean {
+	/** sentences updated so far */
+	long getSentences();
+
+	/** sentences which failed and were dropped */
+	long getFailedSentences();
+
+	/** sentences emitted unmodified for exceeding the time or iteration budget */
+	long getAbortedSentences();
+
+	/** sentences updated per second, since the start */
+	double getSentencesPerSecond();
+
+	/** sentences waiting for an update thread */
+	int getJobQueueDepth();
+
+	/** sentences held back for the lookahead of earlier sentences */
+	int getLookaheadDepth();
+
+	/** updated sentences waiting to be written in order */
+	int getOutputBufferDepth();
+
+	/** statistics of each update, in the order of execution */
+	List<CoNLLRDFUpdaterMetrics.UpdateStatistics> getUpdates();
+
+	/** the current metrics on a single line */
+	String getStatsLine();
+}
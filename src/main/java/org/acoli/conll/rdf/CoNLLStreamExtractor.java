@@ -18,8 +18,8 @@ package org.acoli.conll.rdf;
 import java.io.*;
 import java.net.*;
 import java.util.*;
+import java.util.concurrent.*;
 
-import org.apache.jena.rdf.listeners.ChangedListener;
 import org.apache.jena.rdf.model.*;
 import org.apache.jena.update.*;
 import org.apache.logging.log4j.LogManager;
@@ -42,7 +42,38 @@ public class CoNLLStreamExtractor extends CoNLLRDFComponent {
 	private List<String> columns = new ArrayList<String>();
 	private boolean readColumnComment = false;
 	private String select = null;
+	// number of the first sentence, > 1 if resuming a run
+	private int firstSentence = 1;
 	List<Pair<String, String>> updates = new ArrayList<Pair<String, String>>();
+	// parsed update scripts, by script
+	private final Map<String, UpdateRequest> updateRequests = new ConcurrentHashMap<String, UpdateRequest>();
+	// number of conversion threads, the input is converted sequentially if <= 1
+	private int threads = 1;
+	// number of sentences to read ahead per thread, while waiting for the next sentence in order
+	private static final int OUTPUT_WINDOW_PER_THREAD = 4;
+	// declares the prefixes once per output stream, null to write them for every sentence
+	private CoNLLRDFTurtleWriter turtleWriter = null;
+
+	/** a sentence as read from the input, and the result of its conversion */
+	private static class SentenceJob {
+		final String conll;
+		final int number;
+		// input lines read up to the end of the sentence
+		final long lines;
+		final ArrayList<String> comments;
+		final List<String> commentLines;
+		List<Pair<Integer, Long>> dRTs;
+		Model model;
+		String text;
+
+		SentenceJob(String conll, int number, long lines, List<String> comments, List<String> commentLines) {
+			this.conll = conll;
+			this.number = number;
+			this.lines = lines;
+			this.comments = new ArrayList<String>(comments);
+			this.commentLines = new ArrayList<String>(commentLines);
+		}
+	}
 
 	public String getBaseURI() {
 		return baseURI;
@@ -64,6 +95,17 @@ public class CoNLLStreamExtractor extends CoNLLRDFComponent {
 		readColumnComment = read;
 	}
 
+	public int getFirstSentence() {
+		return firstSentence;
+	}
+
+	/**
+	 * Number the sentences starting from the given one, e.g., when resuming a run from a checkpoint.
+	 */
+	public void setFirstSentence(int firstSentence) {
+		this.firstSentence = firstSentence;
+	}
+
 	public String getSelect() {
 		return select;
 	}
@@ -80,6 +122,28 @@ public class CoNLLStreamExtractor extends CoNLLRDFComponent {
 		this.updates = updates;
 	}
 
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Convert the sentences on the given number of threads. The output keeps the order of the input.
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	/**
+	 * Declare each RDF prefix once in the Turtle output, rather than once per sentence, cf. {@link CoNLLRDFTurtleWriter}.
+	 */
+	public void activatePrefixDeduplication() {
+		turtleWriter = new CoNLLRDFTurtleWriter();
+	}
+
+	public boolean getPrefixDeduplication() {
+		return turtleWriter != null;
+	}
+
 	@Override
 	protected void processSentenceStream() throws IOException {
 		if (readColumnComment) {
@@ -90,60 +154,152 @@ public class CoNLLStreamExtractor extends CoNLLRDFComponent {
 				throw new IOException("Missing required Argument Fields/Columns not found as global.columns either");
 			}
 		}
-		CoNLL2RDF conll2rdf = new CoNLL2RDF(baseURI, columns.toArray(new String[columns.size()]));
+		ExecutorService executor = null;
+		if (threads > 1) {
+			LOG.info("converting on " + threads + " threads");
+			executor = Executors.newFixedThreadPool(threads);
+		}
+		// one converter per thread, CoNLL2RDF is not thread-safe
+		BlockingQueue<CoNLL2RDF> converters = new ArrayBlockingQueue<CoNLL2RDF>(Math.max(threads, 1));
+		for (int i = 0; i < Math.max(threads, 1); i++)
+			converters.add(new CoNLL2RDF(baseURI, columns.toArray(new String[columns.size()])));
+		// sentences in conversion, in input order. Bounded to hold back the reader if the output is lagging behind.
+		Deque<Future<SentenceJob>> pending = new ArrayDeque<Future<SentenceJob>>();
 		List<Pair<Integer,Long> > dRTs = new ArrayList<Pair<Integer,Long> >(); // iterations and execution time of each update in seconds
 		LOG.info("process input ..");
 		BufferedReader in = getInputStream();
 		OutputStreamWriter out = new OutputStreamWriter(getOutputStream());
-		String buffer = "";
+		StringBuilder buffer = new StringBuilder();
+		boolean bufferHasRows = false;
+		// sentence numbers are assigned by the reader, only buffers with tokens make up a sentence
+		int sent = firstSentence;
+		boolean bufferHasTokens = false;
+		long lines = 0;
 		ArrayList<String> comments = new ArrayList<>();
-		for(String line = ""; line !=null; line=in.readLine()) {
-			if(line.contains("#")) {
-				out.write(line.replaceAll("^[^#]*#", "#") + "\n");
-				comments.add(line.replaceAll("^[^#]*#", ""));
-			}
-			line=line.replaceAll("<[\\/]?[psPS]( [^>]*>|>)","").trim(); // in this way, we can also read sketch engine data and split at s and p elements
-			if(!(line.matches("^<[^>]*>$")))							// but we skip all other XML elements, as used by Sketch Engine or TreeTagger chunker
-				if(line.equals("") && !buffer.trim().equals("")) {
-					Model m = conll2rdf.conll2model(new StringReader(buffer+"\n"));
-					if(m!=null) { // null if an error occurred
-						List<Pair<Integer,Long> > ret = update(m, updates);
-						if (dRTs.isEmpty())
-							dRTs = ret;
-						else
-							for (int x = 0; x < ret.size(); ++x)
-								dRTs.set(x, new ImmutablePair<Integer, Long>(dRTs.get(x).getKey() + ret.get(x).getKey(), dRTs.get(x).getValue() + ret.get(x).getValue()));
-						if (comments.size() > 0) {
-							m = injectSentenceComments(m, comments);
-							comments.clear();
+		// comment lines not yet handed on, only used with a sentence output queue, multiple threads or prefix deduplication
+		ArrayList<String> commentLines = new ArrayList<>();
+		try {
+			for(boolean eof = false; !eof; ) {
+				String line = in.readLine();
+				if (line == null) { // the last sentence may lack a final empty line
+					eof = true;
+					line = "";
+				} else {
+					lines++;
+				}
+				String comment = CoNLLLineLexer.getComment(line);
+				if(comment != null) {
+					if (hasSentenceOutput() || executor != null || turtleWriter != null)
+						commentLines.add(comment);
+					else
+						out.write(comment + "\n");
+					comments.add(comment.substring(1));
+				}
+				line=CoNLLLineLexer.stripSentenceMarkup(line).trim(); // in this way, we can also read sketch engine data and split at s and p elements
+				if(!CoNLLLineLexer.isMarkup(line))							// but we skip all other XML elements, as used by Sketch Engine or TreeTagger chunker
+					if(line.isEmpty() && bufferHasRows) {
+						SentenceJob sentence = new SentenceJob(buffer.append('\n').toString(), sent, lines, comments, commentLines);
+						comments.clear();
+						commentLines.clear();
+						if (executor == null) {
+							write(convert(sentence, converters.peek(), false), commentLines, dRTs, out);
+						} else {
+							if (pending.size() >= threads * OUTPUT_WINDOW_PER_THREAD)
+								write(await(pending.poll()), commentLines, dRTs, out);
+							pending.add(executor.submit(() -> {
+								CoNLL2RDF conll2rdf = converters.take();
+								try {
+									// with prefix deduplication, Turtle is written in output order
+									return convert(sentence, conll2rdf, !hasSentenceOutput() && (turtleWriter == null || select != null));
+								} finally {
+									converters.put(conll2rdf);
+								}
+							}));
 						}
-						print(m,select, out);
+						if (bufferHasTokens)
+							sent++;
+						buffer.setLength(0);
+						bufferHasRows = false;
+						bufferHasTokens = false;
+					} else {
+						buffer.append(line).append('\n');
+						bufferHasRows |= !line.isEmpty();
+						bufferHasTokens |= !CoNLLLineLexer.stripComment(line).trim().isEmpty();
 					}
-					buffer="";
-				} else
-					buffer=buffer+line+"\n";
+			}
+			while (!pending.isEmpty())
+				write(await(pending.poll()), commentLines, dRTs, out);
+		} finally {
+			if (executor != null)
+				executor.shutdownNow();
 		}
-		if(!buffer.trim().equals("")) {
-			Model m = conll2rdf.conll2model(new StringReader(buffer+"\n"));
-			List<Pair<Integer,Long> > ret = update(m, updates);
-			if (dRTs.isEmpty())
-				dRTs = ret;
-			else
-				for (int x = 0; x < ret.size(); ++x)
-					dRTs.set(x, new ImmutablePair<Integer, Long>(dRTs.get(x).getKey() + ret.get(x).getKey(), dRTs.get(x).getValue() + ret.get(x).getValue()));
-			if (comments.size() > 0) {
-				m = injectSentenceComments(m, comments);
-				comments.clear();
+		if (!commentLines.isEmpty()) {
+			// trailing comments without a sentence
+			if (hasSentenceOutput()) {
+				writeSentence(new CoNLLRDFSentence(new ArrayList<String>(commentLines), ModelFactory.createDefaultModel()));
+			} else {
+				for (String comment : commentLines)
+					out.write(comment + "\n");
+				out.flush();
 			}
-			print(m,select,out);
 		}
 		if (!dRTs.isEmpty())
 			LOG.debug("Done - List of interations and execution times for the updates done (in given order):\n\t\t" + dRTs.toString());
 
-		getOutputStream().close();
+		closeOutput();
 	
 	}
 
+	/**
+	 * Convert a sentence, apply the updates and inject its comments. Called by the worker threads if running on multiple threads.
+	 * @param render print the result to the text of the sentence, rather than keeping its model
+	 * @return the sentence, without model or text if an error occurred
+	 */
+	private SentenceJob convert(SentenceJob sentence, CoNLL2RDF conll2rdf, boolean render) throws IOException {
+		conll2rdf.setSentence(sentence.number);
+		Model m = conll2rdf.conll2model(new StringReader(sentence.conll));
+		if (m == null) // null if an error occurred
+			return sentence;
+		sentence.dRTs = update(m, updates);
+		if (sentence.comments.size() > 0)
+			m = injectSentenceComments(m, sentence.comments);
+		if (render) {
+			StringWriter text = new StringWriter();
+			print(m, select, text);
+			sentence.text = text.toString();
+		} else {
+			sentence.model = m;
+		}
+		return sentence;
+	}
+
+	/**
+	 * Write a converted sentence, or hand it on to the sentence output queue, and add up the iterations and execution times of its updates.
+	 * @param commentLines the pending comment lines, the comment lines of the sentence are added
+	 */
+	private void write(SentenceJob sentence, List<String> commentLines, List<Pair<Integer,Long> > dRTs, Writer out) throws IOException {
+		commentLines.addAll(sentence.commentLines);
+		if (sentence.model == null && sentence.text == null)
+			return; // keep the comments for the next sentence
+		List<Pair<Integer,Long> > ret = sentence.dRTs;
+		if (dRTs.isEmpty())
+			dRTs.addAll(ret);
+		else
+			for (int x = 0; x < ret.size(); ++x)
+				dRTs.set(x, new ImmutablePair<Integer, Long>(dRTs.get(x).getKey() + ret.get(x).getKey(), dRTs.get(x).getValue() + ret.get(x).getValue()));
+		sentenceRead(sentence.lines, sentence.number);
+		if (sentence.text != null) {
+			for (String comment : commentLines)
+				out.write(comment + "\n");
+			commentLines.clear();
+			out.write(sentence.text);
+			out.flush();
+		} else {
+			print(sentence.model, select, commentLines, out);
+		}
+		sentenceWritten();
+	}
+
 	/**
 	 * Adds a list of conll comments to a sentence model as a rdfs:comment property separated by escaped newlines.
 	 * @param model a RDF Model representing a sentence
@@ -226,9 +382,7 @@ public class CoNLLStreamExtractor extends CoNLLRDFComponent {
 		List<Pair<Integer, Long>> result = new ArrayList<Pair<Integer, Long>>();
 		for (Pair<String, String> update : updates) {
 			Long startTime = System.currentTimeMillis();
-			ChangedListener cL = new ChangedListener();
-			m.register(cL);
-			String oldModel = "";
+			GraphChangeTracker tracker = new GraphChangeTracker(m);
 			int frq = MAXITERATE, v = 0;
 			boolean change = true;
 			try {
@@ -238,24 +392,25 @@ public class CoNLLStreamExtractor extends CoNLLRDFComponent {
 					throw e;
 			}
 			while(v < frq && change) {
-				UpdateAction.execute(UpdateFactory.create(update.getKey()), m);
-				if (oldModel.isEmpty())
-					change = cL.hasChanged();
-				else {
-					change = !m.toString().equals(oldModel);
-					oldModel = "";
-				}
-				if (CHECKINTERVAL.contains(v))
-					oldModel = m.toString();
+				UpdateAction.execute(getUpdateRequest(update.getKey()), m);
+				// stop at the fixpoint, repeating an update which changed nothing would change nothing either
+				change = tracker.hasChanged();
 				v++;
 			}
 			if (v == MAXITERATE)
 				LOG.warn("Warning: MAXITERATE reached.");
 			result.add(new ImmutablePair<Integer, Long>(v, System.currentTimeMillis() - startTime));
-			m.unregister(cL);
+			tracker.unregister();
 		}
 		return result;
 	}
+
+	/**
+	 * Parse an update script on first use, subsequent calls return the same UpdateRequest.
+	 */
+	private UpdateRequest getUpdateRequest(String update) {
+		return updateRequests.computeIfAbsent(update, UpdateFactory::create);
+	}
 		
 	/** run either SELECT statement (cf. https://jena.apache.org/documentation/query/app_api.html) and return CoNLL-like TSV or just TTL <br>
 	 *  Note: this CoNLL-like export has limitations, of course: it will export one property per column, hence, collapsed dependencies or 
@@ -286,6 +441,31 @@ public class CoNLLStreamExtractor extends CoNLLRDFComponent {
 		}
 	}
 
+	/**
+	 * Hand a sentence on to the sentence output queue, if one is set. Write it to out otherwise.
+	 * @param commentLines the pending comment lines, handed on with the sentence and cleared
+	 */
+	private void print(Model m, String select, List<String> commentLines, Writer out) throws IOException {
+		if (hasSentenceOutput()) {
+			writeSentence(new CoNLLRDFSentence(new ArrayList<String>(commentLines), m));
+			commentLines.clear();
+		} else if (turtleWriter != null && select == null) {
+			turtleWriter.write(commentLines, m, out);
+			out.flush();
+			commentLines.clear();
+		} else {
+			for (String comment : commentLines)
+				out.write(comment + "\n");
+			commentLines.clear();
+			print(m, select, out);
+		}
+	}
+
+	@Override
+	protected boolean producesSentenceOutput() {
+		return select == null;
+	}
+
 	public Pair<String, String> parseUpdate(String updateArg) throws IOException {
 		String freq;
 		// TODO Move this code for parsing Options to CoNLLRDFCommandLine
@@ -24,12 +24,16 @@ public class CoNLLStreamExtractorFactory extends CoNLLRDFComponentFactory {
 		//FIXME
 		List<Pair<String, String>> updates = new ArrayList<Pair<String, String>>();
 
-		final CommandLine cmd = new CoNLLRDFCommandLine("synopsis: CoNLLStreamExtractor baseURI FIELD1[.. FIELDn] [-u SPARQL_UPDATE1..m] [-s SPARQL_SELECT]\n"
+		final CommandLine cmd = new CoNLLRDFCommandLine("synopsis: CoNLLStreamExtractor baseURI FIELD1[.. FIELDn] [-threads T] [-binary] [-prefixDeduplication] [-u SPARQL_UPDATE1..m] [-s SPARQL_SELECT]\n"
 		+ "\tbaseURI       CoNLL base URI, cf. CoNLL2RDF\n"
 		+ "\tFIELDi        CoNLL field label, cf. CoNLL2RDF",
 		"reads CoNLL from stdin, splits sentences, creates CoNLL RDF, applies SPARQL queries",
 		new Option[] {
 			Option.builder("s").hasArg().hasArgs().desc("SPARQL SELECT statement to produce TSV output").build(),
+			Option.builder("threads").hasArg().desc("convert on T threads, keeping the order of the input\ndefault: 1")
+					.type(Number.class).build(),
+			new Option("binary", false, "write binary CoNLL-RDF instead of Turtle, cf. CoNLLRDFBinary"),
+			new Option("prefixDeduplication", false, "declare each TTL-Prefix once, not for every sentence"),
 			Option.builder("u").hasArgs().argName("sparql_update").desc("DEPRECATED - please use CoNLLRDFUpdater instead!").build()
 			/* "SPARQL_UPDATE SPARQL UPDATE (DELETE/INSERT) query, either literally or its location (file/uri).
 			Can be followed by an optional integer in {}-parentheses = number of repetitions" */
@@ -57,6 +61,20 @@ public class CoNLLStreamExtractorFactory extends CoNLLRDFComponentFactory {
 			extractor.setSelect(parseSelectOptionLegacy(sparqlStringOrFile));
 		}
 
+		if (cmd.hasOption("threads")) {
+			extractor.setThreads(((Number) cmd.getParsedOptionValue("threads")).intValue());
+		}
+
+		if (cmd.hasOption("binary")) {
+			if (cmd.hasOption("s"))
+				throw new ParseException("-binary cannot be combined with -s");
+			extractor.setBinary(true);
+		}
+
+		if (cmd.hasOption("prefixDeduplication")) {
+			extractor.activatePrefixDeduplication();
+		}
+
 		if (cmd.hasOption("u")) {
 			LOG.warn("using -u to provide updates is deprecated");
 			for (String arg : cmd.getOptionValues("u")) {
@@ -70,6 +88,7 @@ public class CoNLLStreamExtractorFactory extends CoNLLRDFComponentFactory {
 		LOG.info("running CoNLLStreamExtractor");
 		LOG.info("\tbaseURI:       " + extractor.getBaseURI());
 		LOG.info("\tCoNLL columns: " + extractor.getColumns());
+		LOG.info("\tthreads:       " + extractor.getThreads());
 
 		return extractor;
 	}
@@ -83,6 +102,12 @@ public class CoNLLStreamExtractorFactory extends CoNLLRDFComponentFactory {
 		for (JsonNode col:conf.withArray("columns")) {
 			ex.getColumns().add(col.asText());
 		}
+		if (conf.get("threads") != null)
+			ex.setThreads(conf.get("threads").asInt(1));
+		if (conf.get("binary") != null)
+			ex.setBinary(conf.get("binary").asBoolean());
+		if (conf.get("prefixDeduplication") != null && conf.get("prefixDeduplication").asBoolean())
+			ex.activatePrefixDeduplication();
 
 		return ex;
 	}
@@ -20,6 +20,7 @@ import java.nio.charset.*;
 import java.util.*;
 import java.util.regex.Pattern;
 import java.lang.reflect.*;
+import org.apache.jena.graph.Graph;
 import org.apache.jena.rdf.model.*;	// Jena 3.x
 //import com.hp.hpl.jena.rdf.model.*;		// Jena 2.x
 import org.apache.logging.log4j.LogManager;
@@ -59,6 +60,11 @@ abstract class Format2RDF {
 	protected int pos=0; 
 	
 	protected final static Pattern empty = Pattern.compile("^(O|-|--|_|__)?$");	
+
+
+	/** the prefixes declared by writePrefixes, as resolved by a Turtle parser, in order of declaration */
+	private Model prefixes = null;
+	private List<String> prefixNames = null;
 	
 	/**
 	 * @param baseURI namespace for word and sentence IDs,<br>
@@ -145,6 +151,32 @@ abstract class Format2RDF {
 		out.flush();
 	}
 	
+	/** true for local names which a Turtle parser reads verbatim as part of a prefixed name: <code>[A-Za-z0-9_]([A-Za-z0-9_.-]*[A-Za-z0-9_-])?</code> */
+	protected static boolean isSimpleLocalName(String name) {
+		if(name.isEmpty() || name.charAt(name.length()-1)=='.')
+			return false;
+		for(int i = 0; i<name.length(); i++) {
+			char c = name.charAt(i);
+			if(!((c>='A' && c<='Z') || (c>='a' && c<='z') || (c>='0' && c<='9') || c=='_' || (i>0 && (c=='-' || c=='.'))))
+				return false;
+		}
+		return true;
+	}
+
+	/** the namespace declared by writePrefixes for the given prefix, resolved against the baseURI */
+	protected String getNamespace(String prefix) throws IOException {
+		if(prefixes==null) {
+			StringWriter declarations = new StringWriter();
+			writePrefixes(declarations);
+			prefixes = ModelFactory.createDefaultModel().read(new StringReader(declarations.toString()), baseURI, "TTL");
+			prefixNames = new ArrayList<String>();
+			for(String line : declarations.toString().split("\n"))
+				if(line.trim().matches("^(PREFIX|@prefix)\\s+[^:\\s]*:.*"))
+					prefixNames.add(line.trim().replaceFirst("^(PREFIX|@prefix)\\s+([^:\\s]*):.*","$2"));
+		}
+		return prefixes.getNsPrefixURI(prefix);
+	}
+
 	/** same as CoNLL2RDF, but instantiated with a null Writer */
 	public Format2RDF(String baseURI, String[] fields) throws IOException {
 		this(baseURI, fields, new OutputStreamWriter(System.out));
@@ -228,8 +260,27 @@ abstract class Format2RDF {
 
 	/**
 	 * like conll2ttl, but note that we don't write anything to the default Writer out, but rather return a Jena Default Model<br>
-	 * of course, we don't get the NLP-friendly output format, then */
+	 * of course, we don't get the NLP-friendly output format, then<br>
+	 * If supported by the format, the triples are added to the model directly (see conll2graph),
+	 * otherwise the output of conll2ttl is parsed. */
 	public Model conll2model(Reader in) throws IOException {
+		StringBuilder conll = new StringBuilder();
+		char[] chunk = new char[8192];
+		for(int n = in.read(chunk); n>=0; n = in.read(chunk))
+			conll.append(chunk, 0, n);
+		int sent = this.sent, tok = this.tok, pos = this.pos;
+		Model model = ModelFactory.createDefaultModel();
+		if(conll2graph(new StringReader(conll.toString()), model.getGraph())) {
+			getNamespace("");
+			for(String prefix : prefixNames)
+				model.setNsPrefix(prefix, prefixes.getNsPrefixURI(prefix));
+			return model;
+		}
+		// start over with the Turtle serialization
+		this.sent = sent;
+		this.tok = tok;
+		this.pos = pos;
+		in = new StringReader(conll.toString());
 		StringWriter stringWriter = new StringWriter();
 		this.conll2ttl(in,stringWriter);
 		try {
@@ -241,6 +292,14 @@ abstract class Format2RDF {
 		}
 	}
 	
+	/**
+	 * Continue with the given sentence number, e.g., if the sentences of a stream are converted by different instances.
+	 */
+	void setSentence(int sent) {
+		this.sent = sent;
+		this.tok = 0;
+	}
+
 	/**
 	 * Process CoNLL data from <code>in</code>, given the baseURI, column labels and writer out specified at the constructor<br>
 	 * Note that multiple sources can be processed with the same CoNLL2RDF instance. URIs are generated from sequentially updated
@@ -258,4 +317,15 @@ abstract class Format2RDF {
 	 * NOTE: make sure to finish the input with a newline character
 	 */
 	abstract void conll2ttl(Reader in, Writer out) throws IOException;
-}
\ No newline at end of file
+
+	/**
+	 * Add the triples conll2ttl would produce for the same input directly to a graph, without writing and parsing Turtle.<br>
+	 * Must produce exactly the same triples as parsing the output of conll2ttl, hence it may give up on input which
+	 * would not be represented verbatim in Turtle (e.g., column labels which are not valid local names).
+	 * Prefixes are not added.
+	 * @return false if not supported for this format or input, then conll2model falls back to conll2ttl
+	 */
+	protected boolean conll2graph(Reader in, Graph graph) throws IOException {
+		return false;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,105 @@
+package org.acoli.conll.rdf;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.sparql.util.graph.GraphListenerBase;
+import org.apache.jena.util.iterator.ExtendedIterator;
+
+/**
+ * Detects whether a graph has changed between two calls of {@link #hasChanged()},
+ * e.g. to find the fixpoint of an iterated update.
+ *
+ * Keeps an order-independent fingerprint of the graph: the number of triples and the sum of their hashes.
+ * The fingerprint is maintained with every single triple added or removed, so a check costs O(changes)
+ * instead of a serialization of the whole graph. Bulk changes fall back to recomputing the fingerprint.
+ * Triples added while already present (or removed while absent) do not count as a change.
+ */
+class GraphChangeTracker extends GraphListenerBase {
+	private final Graph graph;
+	// fingerprint of the current state
+	private int size;
+	private int hash;
+	private boolean recompute = false;
+	// fingerprint at the last check
+	private int checkedSize;
+	private int checkedHash;
+
+	/**
+	 * Start tracking changes to the graph of the given Model.
+	 * Call {@link #unregister()} when done.
+	 */
+	GraphChangeTracker(Model model) {
+		graph = model.getGraph();
+		fingerprint();
+		checkedSize = size;
+		checkedHash = hash;
+		graph.getEventManager().register(this);
+	}
+
+	/**
+	 * @return true if the graph differs from its state at the last check (or at construction)
+	 */
+	boolean hasChanged() {
+		if (recompute)
+			fingerprint();
+		boolean changed = size != checkedSize || hash != checkedHash;
+		checkedSize = size;
+		checkedHash = hash;
+		return changed;
+	}
+
+	void unregister() {
+		graph.getEventManager().unregister(this);
+	}
+
+	private void fingerprint() {
+		int h = 0;
+		ExtendedIterator<Triple> triples = graph.find();
+		try {
+			while (triples.hasNext())
+				h += triples.next().hashCode();
+		} finally {
+			triples.close();
+		}
+		hash = h;
+		size = graph.size();
+		recompute = false;
+	}
+
+	// listeners are notified after the triple was added, a graph of unchanged size already contained it
+	@Override
+	public void notifyAddTriple(Graph g, Triple t) {
+		int s = graph.size();
+		if (s != size) {
+			size = s;
+			hash += t.hashCode();
+		}
+	}
+
+	@Override
+	public void notifyDeleteTriple(Graph g, Triple t) {
+		int s = graph.size();
+		if (s != size) {
+			size = s;
+			hash -= t.hashCode();
+		}
+	}
+
+	// bulk changes, called for each triple
+	@Override
+	protected void addEvent(Triple t) {
+		recompute = true;
+	}
+
+	@Override
+	protected void deleteEvent(Triple t) {
+		recompute = true;
+	}
+
+	// e.g. removeAll or remove by pattern
+	@Override
+	public void notifyEvent(Graph source, Object value) {
+		recompute = true;
+	}
+}
@@ -0,0 +1,97 @@
+package org.acoli.conll.rdf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.junit.jupiter.api.Test;
+
+public class CoNLL2RDFTest {
+	static final String BASE = "http://example.org/corpus#";
+
+	/** the model as parsed from conll2ttl, i.e., without using conll2graph */
+	static Model parseTurtle(String[] fields, String... sentences) throws IOException {
+		CoNLL2RDF converter = new CoNLL2RDF(BASE, fields);
+		Model model = ModelFactory.createDefaultModel();
+		for (String sentence : sentences) {
+			StringWriter ttl = new StringWriter();
+			converter.conll2ttl(new StringReader(sentence), ttl);
+			model.add(ModelFactory.createDefaultModel().read(new StringReader(ttl.toString()), BASE, "TTL"));
+		}
+		return model;
+	}
+
+	static Model convert(String[] fields, String... sentences) throws IOException {
+		CoNLL2RDF converter = new CoNLL2RDF(BASE, fields);
+		Model model = ModelFactory.createDefaultModel();
+		for (String sentence : sentences) {
+			Model m = converter.conll2model(new StringReader(sentence));
+			assertNotNull(m);
+			model.add(m);
+			model.setNsPrefixes(m.getNsPrefixMap());
+		}
+		return model;
+	}
+
+	static void assertSameTriples(String[] fields, String... sentences) throws IOException {
+		Model expected = parseTurtle(fields, sentences);
+		Model actual = convert(fields, sentences);
+		assertTrue(expected.isIsomorphicWith(actual));
+		assertEquals(expected.getNsPrefixMap(), actual.getNsPrefixMap());
+	}
+
+	@Test
+	void givenDependencies_thenSameTriplesAsTurtle() throws IOException {
+		String[] fields = { "ID", "WORD", "LEMMA", "POS", "HEAD", "EDGE" };
+		assertSameTriples(fields,
+				"1\tThe\tthe\tDT\t2\tdet\n2\tdog\tdog\tNN\t3\tnsubj\n3\tbarks\tbark\tVBZ\t0\troot\n4\t\"\t\"\t''\t3\tpunct\n\n",
+				"1\tR&B\tR&B\tNN\t0\troot\n1.1\ta\\b\t_\t_\t_\t_\n\n");
+	}
+
+	@Test
+	void givenNoIdAndNoHead_thenSameTriplesAsTurtle() throws IOException {
+		String[] fields = { "WORD", "POS" };
+		assertSameTriples(fields, "Hello\tUH\nworld\tNN\n\n", "Bye\tUH\n");
+	}
+
+	@Test
+	void givenManyPredicates_thenArgumentsAttachedToTheirPredicate() throws IOException {
+		// 12 predicates, argument columns 0..11
+		String[] fields = { "ID", "WORD", "PRED", "PRED-ARGs" };
+		StringBuilder sentence = new StringBuilder();
+		for (int i = 1; i <= 12; i++) {
+			sentence.append(i + "\tw" + i + "\tp" + i);
+			for (int j = 0; j < 12; j++)
+				sentence.append("\t" + (j == i - 1 ? "A0" : "_"));
+			sentence.append("\n");
+		}
+		assertSameTriples(fields, sentence + "\n", sentence.toString());
+
+		Model model = convert(fields, sentence + "\n");
+		assertTrue(model.contains(model.createResource(BASE + "s1_10"),
+				model.createProperty("http://ufal.mff.cuni.cz/conll2009-st/task-description.html#A0"), model.createResource(BASE + "s1_10")));
+	}
+
+	@Test
+	void givenUnsupportedLocalName_thenFallBackToTurtle() throws IOException {
+		// a valid local name in Turtle 1.1, but not handled by conll2graph
+		String[] fields = { "ID", "WORD", "UD:POS" };
+		CoNLL2RDF converter = new CoNLL2RDF(BASE, fields);
+		assertFalse(converter.conll2graph(new StringReader("1\tHi\tUH\n\n"), ModelFactory.createDefaultModel().getGraph()));
+		assertSameTriples(fields, "1\tHi\tUH\n\n", "1\tBye\tUH\n\n");
+	}
+
+	@Test
+	void givenArgumentWithoutPredicate_thenNull() throws IOException {
+		String[] fields = { "ID", "WORD", "PRED", "PRED-ARGs" };
+		assertNull(new CoNLL2RDF(BASE, fields).conll2model(new StringReader("1\tw1\t_\tA0\n\n")));
+	}
+}
@@ -0,0 +1,43 @@
+package org.acoli.conll.rdf;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class CoNLLLineLexerTest {
+	static final String[] LINES = { "", "a", "\t", "\t\t", "a\tb", "a\t\tb", "a\tb\t\t", "\ta", "<s>", "<s id=\"1\">a\tb</s>",
+			"<>", "<", "<a>b>", "<doc id=\"x\">", "a # comment", "# sent_id = 1", "#", "x#y#z", "</p>" };
+
+	@Test
+	void splitColumnsEqualsSplit() {
+		for (String line : LINES)
+			assertArrayEquals(line.split("\t"), CoNLLLineLexer.splitColumns(line), line);
+	}
+
+	@Test
+	void isMarkupEqualsRegex() {
+		for (String line : LINES)
+			assertEquals(line.matches("^<[^>]*>$"), CoNLLLineLexer.isMarkup(line), line);
+	}
+
+	@Test
+	void stripSentenceMarkupEqualsRegex() {
+		for (String line : LINES)
+			assertEquals(line.replaceAll("<[\\/]?[psPS]( [^>]*>|>)", ""), CoNLLLineLexer.stripSentenceMarkup(line), line);
+	}
+
+	@Test
+	void commentsEqualRegex() {
+		for (String line : LINES) {
+			assertEquals(line.contains("#") ? line.replaceAll("^[^#]*#", "#") : null, CoNLLLineLexer.getComment(line), line);
+			assertEquals(line.replaceFirst("#.*", ""), CoNLLLineLexer.stripComment(line), line);
+		}
+	}
+
+	@Test
+	void isEmptyValueEqualsPattern() {
+		for (String value : new String[] { "", "O", "-", "--", "_", "__", "___", "OO", "a", "0", "-_" })
+			assertEquals(Format2RDF.empty.matcher(value).matches(), CoNLLLineLexer.isEmptyValue(value), value);
+	}
+}
@@ -0,0 +1,99 @@
+package org.acoli.conll.rdf;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CoNLLMappedReaderTest {
+	static final String CONLL = "# global.columns = ID WORD HEAD\n1\tGröße\t0\n\n\n# sent_id = 2\r\n1\tzwei\t0\r\n\r\n1\tdrei\t0\n2\t€\t1";
+
+	static List<String> lines(BufferedReader reader) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		for (String line; (line = reader.readLine()) != null; )
+			lines.add(line);
+		return lines;
+	}
+
+	static Path write(Path dir, String content) throws IOException {
+		return Files.write(dir.resolve("in.conllu"), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void givenSmallWindows_thenSameLinesAsBufferedReader(@TempDir Path dir) throws IOException {
+		Path file = write(dir, CONLL);
+		List<String> expected = lines(new BufferedReader(new StringReader(CONLL)));
+		for (long window : new long[] { 1, 5, 16, CoNLLMappedReader.DEFAULT_WINDOW })
+			try (CoNLLMappedReader reader = new CoNLLMappedReader(file, 0, Long.MAX_VALUE, window)) {
+				assertEquals(expected, lines(reader), "window " + window);
+			}
+	}
+
+	@Test
+	void givenNoBlankLineWithinChunk_thenMappedOncePerChunk(@TempDir Path dir) throws IOException {
+		// vertical text with <s> markup has no blank lines at all
+		StringBuilder vertical = new StringBuilder();
+		for (int i = 0; vertical.length() < 3 * CoNLLMappedReader.CHUNK; i++)
+			vertical.append("<s id=\"").append(i).append("\">\nword\tNN\n</s>\n");
+		Path file = write(dir, vertical.toString());
+		List<String> expected = lines(new BufferedReader(new StringReader(vertical.toString())));
+		try (CoNLLMappedReader reader = new CoNLLMappedReader(file, 0, Long.MAX_VALUE, 4096)) {
+			assertEquals(expected, lines(reader));
+			assertTrue(reader.maps <= 4, "windows mapped: " + reader.maps);
+		}
+	}
+
+	@Test
+	void givenMark_thenColumnsFoundAndReset(@TempDir Path dir) throws IOException {
+		try (CoNLLMappedReader reader = new CoNLLMappedReader(write(dir, CONLL))) {
+			assertEquals(Arrays.asList("ID", "WORD", "HEAD"), CoNLLStreamExtractor.findFieldsFromComments(reader, 1));
+			assertEquals("# global.columns = ID WORD HEAD", reader.readLine());
+			reader.readLine();
+			reader.mark(1);
+			assertEquals("", reader.readLine());
+			assertEquals("", reader.readLine());
+			assertEquals("# sent_id = 2", reader.readLine());
+			reader.reset();
+			assertEquals("", reader.readLine());
+		}
+	}
+
+	@Test
+	void givenSplit_thenRangesAtSentenceBoundaries(@TempDir Path dir) throws IOException {
+		Path file = write(dir, CONLL);
+		long[] offsets = CoNLLMappedReader.split(file, 3);
+		byte[] bytes = Files.readAllBytes(file);
+		assertEquals(0, offsets[0]);
+		assertEquals(bytes.length, offsets[offsets.length - 1]);
+		assertTrue(offsets.length > 2, Arrays.toString(offsets));
+		List<String> all = new ArrayList<String>();
+		for (int i = 0; i < offsets.length - 1; i++) {
+			if (i > 0)
+				assertEquals('\n', bytes[(int) offsets[i] - 1]);
+			try (CoNLLMappedReader reader = new CoNLLMappedReader(file, offsets[i], offsets[i + 1])) {
+				assertEquals(offsets[i], reader.getStart());
+				all.addAll(lines(reader));
+			}
+		}
+		assertEquals(lines(new BufferedReader(new StringReader(CONLL))), all);
+
+		// offsets are moved to the next boundary
+		try (CoNLLMappedReader reader = new CoNLLMappedReader(file, 1, bytes.length)) {
+			assertEquals("", reader.readLine());
+			assertEquals("# sent_id = 2", reader.readLine());
+		}
+		assertArrayEquals(new long[] { 0, 3 }, CoNLLMappedReader.split(write(dir, "1\t\n"), 4));
+	}
+}
@@ -0,0 +1,143 @@
+package org.acoli.conll.rdf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.cli.ParseException;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CoNLLRDFBinaryTest {
+
+	static Model model(String turtle) {
+		return ModelFactory.createDefaultModel().read(new StringReader(turtle), null, "TTL");
+	}
+
+	@Test
+	void givenSentences_thenRoundTrip() throws IOException {
+		Model m = model("@prefix : <http://example.org/> .\n:s1_1 :WORD \"Größe\" ; :HEAD :s1_0 .");
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		CoNLLRDFBinary.writeHeader(out);
+		CoNLLRDFBinary.write(new CoNLLRDFSentence(Arrays.asList("# sent_id = 1", "# text = Größe"), m), out);
+		CoNLLRDFBinary.write(new CoNLLRDFSentence(Collections.<String>emptyList(), ModelFactory.createDefaultModel()), out);
+
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		assertTrue(CoNLLRDFBinary.readHeader(in));
+		CoNLLRDFSentence first = CoNLLRDFBinary.read(in);
+		assertEquals(Arrays.asList("# sent_id = 1", "# text = Größe"), first.getComments());
+		assertTrue(first.getModel().isIsomorphicWith(m));
+		assertEquals("http://example.org/", first.getModel().getNsPrefixURI(""));
+		CoNLLRDFSentence second = CoNLLRDFBinary.read(in);
+		assertTrue(second.getComments().isEmpty());
+		assertTrue(second.getModel().isEmpty());
+		assertNull(CoNLLRDFBinary.read(in));
+	}
+
+	@Test
+	void givenTurtle_thenRejected() {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream("@prefix : <http://example.org/> .".getBytes(StandardCharsets.UTF_8)));
+		assertThrows(IOException.class, () -> CoNLLRDFBinary.readHeader(in));
+	}
+
+	@Test
+	void givenEmptyOrTruncatedStream_thenEndOrError() throws IOException {
+		assertEquals(false, CoNLLRDFBinary.readHeader(new DataInputStream(new ByteArrayInputStream(new byte[0]))));
+		assertThrows(IOException.class, () -> CoNLLRDFBinary.readHeader(new DataInputStream(new ByteArrayInputStream(Arrays.copyOf(CoNLLRDFBinary.MAGIC, 2)))));
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		CoNLLRDFBinary.write(new CoNLLRDFSentence(Arrays.asList("# 1"), model("<http://example.org/a> <http://example.org/b> 1 .")),
+				new DataOutputStream(bytes));
+		byte[] truncated = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 1);
+		assertThrows(EOFException.class, () -> CoNLLRDFBinary.read(new DataInputStream(new ByteArrayInputStream(truncated))));
+	}
+
+	@Test
+	void givenGarbageLength_thenCorruptNotAllocated() {
+		// a length word of about 1.2 GB, as read from Turtle text
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream("@pre".getBytes(StandardCharsets.US_ASCII)));
+		IOException e = assertThrows(IOException.class, () -> CoNLLRDFBinary.read(in));
+		assertTrue(e.getMessage().startsWith("Corrupt binary CoNLL-RDF"), e.getMessage());
+	}
+
+	@Test
+	void givenBinaryUpdater_thenSameAsTurtle() throws IOException, ParseException {
+		CoNLLRDFUpdater updater = CoNLLRDFUpdaterTest.updater(CoNLLRDFUpdaterTest.LOOP);
+		updater.setIterationBudget(10);
+		updater.setBinary(true);
+		updater.setBinaryInputStream(new ByteArrayInputStream(toBinary(CoNLLRDFUpdaterTest.TTL)));
+		ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		updater.setOutputStream(new PrintStream(binary));
+		updater.processSentenceStream();
+
+		CoNLLRDFUpdater text = CoNLLRDFUpdaterTest.updater(CoNLLRDFUpdaterTest.LOOP);
+		text.setIterationBudget(10);
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(binary.toByteArray()));
+		assertTrue(CoNLLRDFBinary.readHeader(in));
+		for (String sentence : CoNLLRDFUpdaterTest.update(text).split("(?=# sent_id = )")) {
+			CoNLLRDFSentence expected = new CoNLLRDFSentence(sentence);
+			CoNLLRDFSentence actual = CoNLLRDFBinary.read(in);
+			assertEquals(expected.getComments(), actual.getComments());
+			assertTrue(expected.getModel().isIsomorphicWith(actual.getModel()), sentence);
+		}
+		assertNull(CoNLLRDFBinary.read(in));
+	}
+
+	@Test
+	void givenBinaryInputFile_thenReadByFirstComponent(@TempDir Path dir) throws IOException, ParseException, InterruptedException {
+		byte[] binary = toBinary(CoNLLRDFUpdaterTest.TTL);
+		Files.write(dir.resolve("in.bin"), binary);
+		try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(dir.resolve("in.bin.gz")))) {
+			out.write(binary);
+		}
+		for (String input : Arrays.asList("in.bin", "in.bin.gz")) {
+			Path output = dir.resolve(input + ".out");
+			CoNLLRDFManager manager = new CoNLLRDFManagerFactory().parseJsonConf("{\"input\":\"" + dir.resolve(input)
+					+ "\",\"output\":\"" + output + "\",\"pipeline\":[{\"class\":\"CoNLLRDFUpdater\",\"binary\":true,\"updates\":[]}]}");
+			manager.start();
+			manager.join();
+			assertFalse(manager.hasFailed(), input);
+
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(output)));
+			assertTrue(CoNLLRDFBinary.readHeader(in), input);
+			for (int i = 1; i <= 3; i++)
+				assertEquals(Arrays.asList("# sent_id = " + i), CoNLLRDFBinary.read(in).getComments(), input);
+			assertNull(CoNLLRDFBinary.read(in), input);
+		}
+	}
+
+	/** one record per <code># sent_id</code> comment, each with the prefixes of the Turtle */
+	static byte[] toBinary(String turtle) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		CoNLLRDFBinary.writeHeader(out);
+		String[] sentences = turtle.split("(?=# sent_id = )");
+		for (int i = 1; i < sentences.length; i++) {
+			CoNLLRDFSentence sentence = new CoNLLRDFSentence(sentences[0] + sentences[i]);
+			CoNLLRDFBinary.write(new CoNLLRDFSentence(sentence.getComments(), sentence.getModel()), out);
+		}
+		out.flush();
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,154 @@
+package org.acoli.conll.rdf;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.cli.ParseException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CoNLLRDFCompressionTest {
+
+	/** a few MB of CoNLL, more than a block */
+	static byte[] conll() {
+		StringBuilder conll = new StringBuilder();
+		for (int i = 1; conll.length() < 3 * CoNLLRDFCompression.BLOCK; i++)
+			conll.append("# sent_id = ").append(i).append("\n1\tGröße\t0\n2\t").append(i * 7919 % 1000).append("\t1\n\n");
+		return conll.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		for (int n; (n = in.read(buffer)) >= 0; )
+			out.write(buffer, 0, n);
+		in.close();
+		return out.toByteArray();
+	}
+
+	static byte[] gzip(byte[] data) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (OutputStream out = new GZIPOutputStream(bytes)) {
+			out.write(data);
+		}
+		return bytes.toByteArray();
+	}
+
+	/** a BGZF member, as written by bgzip */
+	static byte[] bgzf(byte[] data, int off, int len) {
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		deflater.setInput(data, off, len);
+		deflater.finish();
+		byte[] deflated = new byte[len + 1024];
+		int size = deflater.deflate(deflated);
+		deflater.end();
+		CRC32 crc = new CRC32();
+		crc.update(data, off, len);
+		ByteBuffer member = ByteBuffer.allocate(18 + size + 8).order(ByteOrder.LITTLE_ENDIAN);
+		member.put(new byte[] { 31, (byte) 139, 8, 4, 0, 0, 0, 0, 0, (byte) 255, 6, 0, 'B', 'C', 2, 0 });
+		member.putShort((short) (18 + size + 8 - 1));
+		member.put(deflated, 0, size);
+		member.putInt((int) crc.getValue());
+		member.putInt(len);
+		return member.array();
+	}
+
+	static byte[] bgzf(byte[] data) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		for (int off = 0; off < data.length; off += 0xff00) {
+			byte[] member = bgzf(data, off, Math.min(0xff00, data.length - off));
+			bytes.write(member, 0, member.length);
+		}
+		byte[] eof = bgzf(data, 0, 0);
+		bytes.write(eof, 0, eof.length);
+		return bytes.toByteArray();
+	}
+
+	@Test
+	void givenCompressedOutput_thenRoundTrip() throws IOException {
+		byte[] conll = conll();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (OutputStream out = CoNLLRDFCompression.compress(bytes)) {
+			out.write(conll, 0, 10);
+			out.write(conll[10]);
+			out.write(conll, 11, conll.length - 11);
+		}
+		assertArrayEquals(conll, readAll(new GZIPInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+		assertArrayEquals(conll, readAll(CoNLLRDFCompression.decompress(new ByteArrayInputStream(bytes.toByteArray()))));
+	}
+
+	@Test
+	void givenFailingCompressedOutput_thenCloseFails() {
+		PrintStream out = new PrintStream(CoNLLRDFCompression.compress(new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				throw new IOException("No space left on device");
+			}
+		}));
+		out.print("1\tone\t0\n");
+		// the error of the compressing thread surfaces on close only
+		assertThrows(IOException.class, () -> CoNLLRDFComponent.close(out));
+	}
+
+	@Test
+	void givenMultiMemberGzip_thenAllMembers() throws IOException {
+		byte[] conll = conll();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		bytes.write(gzip(Arrays.copyOf(conll, 1000)));
+		bytes.write(gzip(Arrays.copyOfRange(conll, 1000, conll.length)));
+		assertArrayEquals(conll, readAll(CoNLLRDFCompression.decompress(new ByteArrayInputStream(bytes.toByteArray()))));
+		assertEquals(-1, CoNLLRDFCompression.decompress(new ByteArrayInputStream(gzip(new byte[0]))).read());
+	}
+
+	@Test
+	void givenBgzf_thenInflatedInParallel() throws IOException {
+		byte[] conll = conll();
+		byte[] bgzf = bgzf(conll);
+		assertTrue(CoNLLRDFCompression.isBgzf(bgzf));
+		assertArrayEquals(conll, readAll(new GZIPInputStream(new ByteArrayInputStream(bgzf))));
+		assertArrayEquals(conll, readAll(CoNLLRDFCompression.decompress(new ByteArrayInputStream(bgzf), 3)));
+
+		// a wrong checksum in the second member
+		byte[] corrupt = bgzf.clone();
+		int second = (bgzf[16] & 0xff | (bgzf[17] & 0xff) << 8) + 1;
+		int trailer = second + (bgzf[second + 16] & 0xff | (bgzf[second + 17] & 0xff) << 8) + 1 - 8;
+		corrupt[trailer] ^= 1;
+		assertThrows(IOException.class, () -> readAll(CoNLLRDFCompression.decompress(new ByteArrayInputStream(corrupt), 3)));
+		assertThrows(IOException.class, () -> readAll(CoNLLRDFCompression.decompress(new ByteArrayInputStream(Arrays.copyOf(bgzf, 100)), 3)));
+	}
+
+	@Test
+	void givenGzOutputSuffix_thenShardsCompressedAndMerged(@TempDir Path dir) throws IOException, ParseException {
+		Files.createDirectories(dir.resolve("in"));
+		Files.write(dir.resolve("in/one.conllu.gz"), bgzf("1\tone\t0\n\n1\tone\t0\n".getBytes(StandardCharsets.UTF_8)));
+		CoNLLRDFShardsTest.write(dir.resolve("in/two.conllu"), "1\ttwo\t0\n");
+		String config = CoNLLRDFShardsTest.config(dir, dir.resolve("in") + "/*.conllu*")
+				.replace("merged.ttl", "merged.ttl.gz").replace("\"parallel\"", "\"outputSuffix\":\".ttl.gz\",\"parallel\"");
+		assertTrue(CoNLLRDFShards.parseJsonConf(config).run());
+
+		String one = new String(readAll(new GZIPInputStream(Files.newInputStream(dir.resolve("out/one.ttl.gz")))), StandardCharsets.UTF_8);
+		String two = new String(readAll(new GZIPInputStream(Files.newInputStream(dir.resolve("out/two.ttl.gz")))), StandardCharsets.UTF_8);
+		assertTrue(one.contains(":s2_1"), one);
+		assertTrue(two.contains("@prefix : <http://example.org/corpus/two#>"), two);
+		assertEquals(one + two, new String(readAll(new GZIPInputStream(Files.newInputStream(dir.resolve("merged.ttl.gz")))), StandardCharsets.UTF_8));
+	}
+}
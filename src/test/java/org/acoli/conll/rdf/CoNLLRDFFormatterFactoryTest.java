@@ -107,4 +107,11 @@ public class CoNLLRDFFormatterFactoryTest {
 		assertEquals(new LinkedList<String>(Arrays.asList("WORD", "POS", "PARSE", "NER", "COREF", "PRED", "PRED-ARGS")),
 				formatter.getModules().get(0).getCols());
 	}
+
+	@Test
+	void optionThreads() throws ParseException, IOException {
+		CoNLLRDFFormatter formatter = new CoNLLRDFFormatterFactory().buildFromCLI(new String[] { "-conll", "WORD", "-threads", "4" });
+		assertEquals(4, formatter.getThreads());
+		assertEquals(1, new CoNLLRDFFormatterFactory().buildFromCLI(new String[] { "-conll", "WORD" }).getThreads());
+	}
 }
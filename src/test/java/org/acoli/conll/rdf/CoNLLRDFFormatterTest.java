@@ -0,0 +1,172 @@
+package org.acoli.conll.rdf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import org.acoli.conll.rdf.CoNLLRDFFormatter.Mode;
+import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.junit.jupiter.api.Test;
+
+public class CoNLLRDFFormatterTest {
+	static final String PREFIXES = "@prefix : <http://example.org/c#> .\n"
+			+ "@prefix conll: <http://ufal.mff.cuni.cz/conll2009-st/task-description.html#> .\n"
+			+ "@prefix nif: <http://persistence.uni-leipzig.org/nlp2rdf/ontologies/nif-core#> .\n"
+			+ "@prefix olia: <http://purl.org/olia/olia.owl#> .\n";
+
+	static Model parse(String ttl) {
+		return ModelFactory.createDefaultModel().read(new StringReader(PREFIXES + ttl), null, "TTL");
+	}
+
+	/** the depth of a word, as printed by extractCoNLLGraph, must be the number of nodes reachable over conll:HEAD */
+	static void assertDepthsAsSparql(Model m) {
+		String grammar = CoNLLRDFFormatter.extractCoNLLGraph(m, true);
+		assertTrue(!grammar.isEmpty());
+		for (String line : grammar.split("\n")) {
+			String id = line.substring(0, line.indexOf(CoNLLRDFFormatter.ANSI_WHITE)).trim();
+			String dots = line.substring(line.indexOf(CoNLLRDFFormatter.ANSI_WHITE), line.indexOf(CoNLLRDFFormatter.ANSI_RESET));
+			int depth = QueryExecutionFactory.create("SELECT (COUNT(DISTINCT ?head) AS ?depth) WHERE { <http://example.org/c#" + id
+					+ "> <http://ufal.mff.cuni.cz/conll2009-st/task-description.html#HEAD>+ ?head }", m)
+					.execSelect().next().getLiteral("depth").getInt();
+			assertEquals(depth, dots.split(" \\.", -1).length - 1, id);
+		}
+	}
+
+	@Test
+	void givenTree_thenDepthAsSparql() {
+		assertDepthsAsSparql(parse(":s1_1 a nif:Word ; conll:WORD \"The\" ; conll:HEAD :s1_2 ; nif:nextWord :s1_2 .\n"
+				+ ":s1_2 a nif:Word ; conll:WORD \"dog\" ; conll:HEAD :s1_3 ; nif:nextWord :s1_3 .\n"
+				+ ":s1_3 a nif:Word ; conll:WORD \"barks\" ; conll:HEAD :s1_0 ; nif:nextWord :s1_4 .\n"
+				+ ":s1_4 a nif:Word ; conll:WORD \".\" ; conll:HEAD :s1_3 .\n"));
+	}
+
+	@Test
+	void givenCycleAndSeveralHeads_thenDepthAsSparql() {
+		assertDepthsAsSparql(parse(":s1_1 a nif:Word ; conll:HEAD :s1_2 ; nif:nextWord :s1_2 .\n"
+				+ ":s1_2 a nif:Word ; conll:HEAD :s1_3 ; nif:nextWord :s1_3 .\n"
+				+ ":s1_3 a nif:Word ; conll:HEAD :s1_2 ; nif:nextWord :s1_4 .\n"
+				+ ":s1_4 a nif:Word ; conll:HEAD :s1_1 , :s1_5 ; nif:nextWord :s1_5 .\n"
+				+ ":s1_5 a nif:Word ; conll:HEAD :s1_0 .\n"));
+		// a chain of heads into a cycle which was visited before
+		assertDepthsAsSparql(parse(":s1_1 a nif:Word ; conll:HEAD :s1_2 ; nif:nextWord :s1_2 .\n"
+				+ ":s1_2 a nif:Word ; conll:HEAD :s1_1 ; nif:nextWord :s1_3 .\n"
+				+ ":s1_3 a nif:Word ; conll:HEAD :s1_4 ; nif:nextWord :s1_4 .\n"
+				+ ":s1_4 a nif:Word ; conll:HEAD :s1_1 .\n"));
+	}
+
+	static void assertConllAsSparql(String ttl, String... cols) throws IOException {
+		Model m = parse(ttl);
+		List<String> columns = Arrays.asList(cols);
+		StringWriter expected = new StringWriter();
+		CoNLLRDFFormatter.printSparql(m, "", CoNLLRDFFormatter.columnsAsSelect(columns), expected);
+		StringWriter actual = new StringWriter();
+		CoNLLRDFFormatter.printConll(m, "", columns, actual);
+		assertEquals(expected.toString(), actual.toString());
+	}
+
+	@Test
+	void givenSentences_thenConllAsColumnsAsSelect() throws IOException {
+		String ttl = ":s1_0 a nif:Sentence ; nif:nextSentence :s2_0 .\n"
+				+ ":s1_1 a nif:Word ; conll:WORD \"The\" ; conll:POS \"DT\" ; conll:HEAD :s1_2 ; conll:EDGE \"det\" ; nif:nextWord :s1_2 .\n"
+				+ ":s1_2 a nif:Word ; conll:WORD \"dog\" ; conll:POS \"NN\" ; conll:HEAD :s1_0 ; conll:EDGE \"root\" ; nif:nextWord :s1_3 .\n"
+				+ ":s1_3 a nif:Word ; conll:WORD \"barks\" ; conll:HEAD :s1_2 .\n"
+				+ ":s1_4 a nif:Word ; conll:WORD \"no head\" .\n"
+				+ ":s2_0 a nif:Sentence .\n"
+				+ ":s2_2 a nif:Word ; conll:WORD \"Bye\" ; conll:HEAD :s2_0 ; conll:POS \"UH\"@en .\n";
+		assertConllAsSparql(ttl, "WORD", "POS", "HEAD", "EDGE");
+		assertConllAsSparql(ttl, "EDGE", "WORD", "HEAD");
+		assertConllAsSparql(ttl, "HEAD", "WORD");
+	}
+
+	@Test
+	void givenSeveralValues_thenConllAsColumnsAsSelect() throws IOException {
+		String ttl = ":s1_0 a nif:Sentence .\n"
+				+ ":s1_1 a nif:Word ; conll:WORD \"The\" ; conll:POS \"DT\" , \"X\" , [] ; conll:LEMMA \"the\" , \"THE\" ;"
+				+ " conll:HEAD :s1_2 , <http://example.org/h> ; nif:nextWord :s1_2 .\n"
+				+ ":s1_2 a nif:Word ; conll:WORD \"dog\" ; conll:HEAD :s1_0 ; conll:EDGE \"root\" , \"r\" .\n";
+		assertConllAsSparql(ttl, "WORD", "POS", "LEMMA", "HEAD", "EDGE");
+		assertConllAsSparql(ttl, "LEMMA", "EDGE", "POS");
+	}
+
+	@Test
+	void givenWords_thenCanonicalTurtle() throws IOException {
+		Model m = parse(":s1_10 a nif:Word ; conll:WORD \"dog\" ; conll:POS \"NN\" ; conll:HEAD :s1_2 ; nif:nextWord :s1_11 .\n"
+				+ ":s1_2 conll:POS \"DT\" ; a nif:Word , olia:Determiner ; conll:WORD \"the\" ; conll:EDGE \"det\" ; conll:MISC [ conll:X 1 ] .\n"
+				+ ":s1_0 a nif:Sentence .\n");
+		StringWriter out = new StringWriter();
+		CoNLLRDFFormatter.printTurtle(m, "# sent_id = 1\t\n", Arrays.asList("HEAD", "POS"), out);
+		assertEquals("# sent_id = 1\n"
+				+ "@prefix : <http://example.org/c#> .\n"
+				+ "@prefix conll: <http://ufal.mff.cuni.cz/conll2009-st/task-description.html#> .\n"
+				+ "@prefix nif: <http://persistence.uni-leipzig.org/nlp2rdf/ontologies/nif-core#> .\n"
+				+ "@prefix olia: <http://purl.org/olia/olia.owl#> .\n"
+				+ ":s1_0 a nif:Sentence .\n"
+				+ ":s1_2 a nif:Word, olia:Determiner; conll:WORD \"the\"; conll:POS \"DT\"; conll:EDGE \"det\"; conll:MISC [ conll:X 1 ] .\n"
+				+ ":s1_10 a nif:Word; conll:WORD \"dog\"; conll:HEAD :s1_2; conll:POS \"NN\"; nif:nextWord :s1_11 .\n",
+				out.toString());
+		assertTrue(parse(out.toString()).isIsomorphicWith(m));
+	}
+
+	@Test
+	void givenBlankNodes_thenAllTriplesWritten() throws IOException {
+		Model m = parse(":s1_1 a nif:Word ; conll:HEAD _:a ; conll:EDGE _:a .\n"
+				+ "_:a conll:WORD \"shared\" .\n"
+				+ "_:b conll:WORD \"free\" ; conll:MISC [ conll:X 1 ] .\n"
+				+ "_:c conll:HEAD _:d . _:d conll:HEAD _:c .\n");
+		StringWriter out = new StringWriter();
+		CoNLLRDFFormatter.printTurtle(m, "", Arrays.asList("WORD"), out);
+		assertTrue(parse(out.toString()).isIsomorphicWith(m), out.toString());
+	}
+
+	@Test
+	void givenNumbers_thenComparedByValue() {
+		assertTrue(CoNLLRDFFormatter.compareNumerically(":s1_2", ":s1_10") < 0);
+		assertTrue(CoNLLRDFFormatter.compareNumerically(":s2_1", ":s10_1") < 0);
+		assertTrue(CoNLLRDFFormatter.compareNumerically(":s1_1", ":s1_1a") < 0);
+		assertEquals(0, CoNLLRDFFormatter.compareNumerically(":s01_1", ":s1_1"));
+	}
+
+	@Test
+	void givenAnnotations_thenSortedByProperty() {
+		String grammar = CoNLLRDFFormatter.extractCoNLLGraph(parse(
+				":s1_1 a nif:Word , olia:Noun ; conll:WORD \"dog\" ; conll:POS \"NNX\" , \"NN\" ; conll:LEMMA \"dog\" ;"
+				+ " conll:EDGE \"subj\" , \"nsubj\" , \"obj\" .\n"), true);
+		String plain = grammar.replaceAll("\u001B\\[[0-9]+m", "");
+		assertTrue(plain.contains("nsubj dog  LEMMA dog POS NN NNX olia:Noun"), plain);
+	}
+
+	/** -rdf and -grammar to the output stream of the formatter, -conll to a stream of its own */
+	static String format(String ttl, int threads) throws IOException {
+		CoNLLRDFFormatter formatter = new CoNLLRDFFormatter();
+		formatter.setThreads(threads);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream conll = new ByteArrayOutputStream();
+		formatter.setInputStream(new BufferedReader(new StringReader(ttl)));
+		formatter.setOutputStream(new PrintStream(out));
+		formatter.addModule(Mode.CONLLRDF);
+		formatter.addModule(Mode.CONLL).setCols(Arrays.asList("ID", "WORD", "HEAD"));
+		formatter.addModule(Mode.CONLL).setOutputStream(new PrintStream(conll));
+		formatter.addModule(Mode.GRAMMAR);
+		formatter.processSentenceStream();
+		return out + "\n----\n" + conll;
+	}
+
+	@Test
+	void givenThreads_thenSameOutputAsSequential() throws IOException {
+		String ttl = CoNLLStreamExtractorTest.extract(CoNLLStreamExtractorTest.corpus().replace("# global comment",
+				"# global.columns = ID WORD HEAD"), 1, null);
+		String sequential = format(ttl, 1);
+		assertTrue(sequential.contains(":s40_1 rdf:type nif:Word"), sequential);
+		assertEquals(sequential, format(ttl, 4));
+	}
+}
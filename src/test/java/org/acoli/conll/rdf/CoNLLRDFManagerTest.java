@@ -1,11 +1,22 @@
 package org.acoli.conll.rdf;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static uk.org.webcompere.modelassert.json.JsonAssertions.assertJson;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
 
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -16,6 +27,7 @@ import org.apache.commons.cli.ParseException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 public class CoNLLRDFManagerTest {
 	CoNLLRDFManager manager;
@@ -80,6 +92,114 @@ public class CoNLLRDFManagerTest {
 		// fail("Unimplemented");
 	}
 
+	@Test
+	void givenModelHandoff_thenLinkComponentsWithQueues() throws IOException, ParseException {
+		String given = "{\"input\":\"System.in\",\"output\":\"System.out\",\"handoff\":\"model\",\"pipeline\":["
+				+ "{\"class\":\"CoNLLStreamExtractor\",\"baseURI\":\"URI\",\"columns\":[\"COL1\",\"COL2\"]},"
+				+ "{\"class\":\"CoNLLRDFUpdater\"},"
+				+ "{\"class\":\"CoNLLRDFFormatter\"}]}";
+		manager = new CoNLLRDFManagerFactory().parseJsonConf(given);
+		CoNLLRDFComponent extractor = manager.getComponentStack().get(0);
+		CoNLLRDFComponent updater = manager.getComponentStack().get(1);
+		CoNLLRDFComponent formatter = manager.getComponentStack().get(2);
+
+		assertEquals(CoNLLRDFManager.Handoff.MODEL, manager.getHandoff());
+		assertNull(extractor.getSentenceInput());
+		assertNotNull(extractor.getSentenceOutput());
+		assertSame(extractor.getSentenceOutput(), updater.getSentenceInput());
+		assertSame(updater.getSentenceOutput(), formatter.getSentenceInput());
+		assertNull(formatter.getSentenceOutput());
+	}
+
+	@Test
+	void givenModelHandoff_whenNextComponentReadsText_thenUsePipedStreams() throws IOException, ParseException {
+		String given = "{\"input\":\"System.in\",\"output\":\"System.out\",\"handoff\":\"MODEL\",\"pipeline\":["
+				+ "{\"class\":\"CoNLLStreamExtractor\",\"baseURI\":\"URI\",\"columns\":[\"COL1\",\"COL2\"]},"
+				+ "{\"class\":\"SimpleLineBreakSplitter\"}]}";
+		manager = new CoNLLRDFManagerFactory().parseJsonConf(given);
+
+		assertNull(manager.getComponentStack().get(0).getSentenceOutput());
+		assertNull(manager.getComponentStack().get(1).getSentenceInput());
+	}
+
+	@Test
+	void givenDefaultHandoff_thenUsePipedStreams() throws IOException, ParseException {
+		String given = "{\"input\":\"System.in\",\"output\":\"System.out\",\"pipeline\":["
+				+ "{\"class\":\"CoNLLRDFUpdater\"},"
+				+ "{\"class\":\"CoNLLRDFFormatter\"}]}";
+		manager = new CoNLLRDFManagerFactory().parseJsonConf(given);
+
+		assertEquals(CoNLLRDFManager.Handoff.TEXT, manager.getHandoff());
+		assertNull(manager.getComponentStack().get(0).getSentenceOutput());
+		assertNull(manager.getComponentStack().get(1).getSentenceInput());
+	}
+
+	@Test
+	void whenUnknownHandoff_thenThrowException() {
+		String given = "{\"input\":\"System.in\",\"output\":\"System.out\",\"handoff\":\"pigeon\",\"pipeline\":[{\"class\":\"CoNLLRDFFormatter\"}]}";
+		assertThrows(JsonParseException.class, () -> {
+			manager = new CoNLLRDFManagerFactory().parseJsonConf(given);
+		});
+	}
+
+	/** reads the given number of lines, then fails as if the JVM died */
+	static class FailingReader extends BufferedReader {
+		private int lines;
+
+		FailingReader(BufferedReader in, int lines) {
+			super(in);
+			this.lines = lines;
+		}
+
+		@Override
+		public String readLine() throws IOException {
+			if (lines-- <= 0)
+				throw new IllegalStateException("JVM died");
+			return super.readLine();
+		}
+	}
+
+	static CoNLLRDFManager run(Path input, Path output, Path checkpoint, int failAfterLines) throws Exception {
+		CoNLLRDFManager manager = new CoNLLRDFManagerFactory().parseJsonConf("{\"input\":\"" + input + "\",\"output\":\"" + output
+				+ "\",\"checkpoint\":\"" + checkpoint + "\",\"checkpointInterval\":3,\"pipeline\":["
+				+ "{\"class\":\"CoNLLStreamExtractor\",\"baseURI\":\"http://example.org/corpus#\",\"columns\":[\"ID\",\"WORD\",\"HEAD\"],\"threads\":2}]}");
+		if (failAfterLines > 0)
+			manager.getComponentStack().get(0).setInputStream(new FailingReader(manager.getInput(), failAfterLines));
+		manager.start();
+		manager.join();
+		return manager;
+	}
+
+	@Test
+	void givenCheckpoint_whenResumed_thenSameOutputAsUninterrupted(@TempDir Path dir) throws Exception {
+		Path input = dir.resolve("corpus.conll.gz");
+		try (Writer out = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(input)), StandardCharsets.UTF_8)) {
+			out.write(CoNLLStreamExtractorTest.corpus());
+		}
+		Path expected = dir.resolve("expected.ttl");
+		run(input, expected, dir.resolve("expected.checkpoint"), 0);
+		assertFalse(Files.exists(dir.resolve("expected.checkpoint")));
+
+		Path output = dir.resolve("output.ttl");
+		Path checkpoint = dir.resolve("output.checkpoint");
+		run(input, output, checkpoint, 100);
+		assertTrue(Files.exists(checkpoint));
+		CoNLLRDFManager resumed = run(input, output, checkpoint, 0);
+		assertTrue(resumed.getCheckpoint().isResuming());
+		assertTrue(resumed.getCheckpoint().getSentence() > 3);
+		assertEquals(new String(Files.readAllBytes(expected), StandardCharsets.UTF_8), new String(Files.readAllBytes(output), StandardCharsets.UTF_8));
+		assertFalse(Files.exists(checkpoint));
+	}
+
+	@Test
+	void givenCheckpoint_whenFirstComponentNoExtractor_thenThrowException(@TempDir Path dir) {
+		String given = "{\"input\":\"System.in\",\"output\":\"" + dir.resolve("out.ttl") + "\",\"checkpoint\":\"" + dir.resolve("checkpoint")
+				+ "\",\"pipeline\":[{\"class\":\"CoNLLRDFFormatter\"}]}";
+		assertThrows(IllegalArgumentException.class, () -> {
+			manager = new CoNLLRDFManagerFactory().parseJsonConf(given);
+		});
+	}
+
 	@Test
 	@Disabled("Unimplemented Check")
 	void whenFormatterNotLast_thenThrowException() {
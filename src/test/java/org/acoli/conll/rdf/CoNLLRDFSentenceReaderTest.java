@@ -0,0 +1,78 @@
+package org.acoli.conll.rdf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class CoNLLRDFSentenceReaderTest {
+
+	/** the sentences as split by concatenating the lines, the way CoNLLRDFUpdater used to */
+	static List<String> split(String turtle) throws IOException {
+		List<String> sentences = new ArrayList<String>();
+		Map<String, String> prefixes = new LinkedHashMap<String, String>();
+		BufferedReader in = new BufferedReader(new StringReader(turtle));
+		String line;
+		String lastLine = "";
+		String buffer = "";
+		while ((line = in.readLine()) != null) {
+			line = line.replaceAll("[\t ]+", " ").trim();
+			if (!buffer.trim().equals("") && (line.startsWith("@") || line.startsWith("#") || line.startsWith("PREFIX"))
+					&& !(lastLine.startsWith("@") || lastLine.startsWith("#") || lastLine.startsWith("PREFIX"))) {
+				sentences.add(CoNLLRDFTurtleWriter.inheritPrefixes(buffer, prefixes));
+				buffer = "";
+			}
+			buffer = buffer + line + "\n";
+			lastLine = line;
+		}
+		sentences.add(CoNLLRDFTurtleWriter.inheritPrefixes(buffer, prefixes));
+		return sentences;
+	}
+
+	static void assertSplitAsBefore(String turtle) throws IOException {
+		CoNLLRDFSentenceReader reader = new CoNLLRDFSentenceReader(new BufferedReader(new StringReader(turtle)));
+		for (String expected : split(turtle)) {
+			CoNLLRDFSentence sentence = reader.next();
+			assertEquals(expected, sentence.toString());
+			assertEquals(new CoNLLRDFSentence(expected).getComments(), sentence.getComments());
+		}
+		assertNull(reader.next());
+		assertNull(reader.next());
+	}
+
+	@Test
+	void givenTurtle_thenSentencesAsBefore() throws IOException {
+		assertSplitAsBefore("");
+		assertSplitAsBefore("\n\n");
+		assertSplitAsBefore(CoNLLRDFUpdaterTest.TTL);
+		assertSplitAsBefore("PREFIX : <http://example.org/a#>\n:s1_0 :p\t\"a  b\" .\n\n# c\nPREFIX : <http://example.org/b#>\n:s2_0 :p 1 .\n"
+				+ "@prefix x: <http://example.org/x#> .\n  x:s3_0 :p 2 .  \r\n\t# c\n");
+		String conll = CoNLLStreamExtractorTest.corpus();
+		assertSplitAsBefore(CoNLLStreamExtractorTest.extract(conll, 1, null));
+		assertSplitAsBefore(CoNLLStreamExtractorTest.extract(conll, 1, null, true));
+	}
+
+	@Test
+	void givenWhitespace_thenNormalizedAsReplaceAll() {
+		for (String line : Arrays.asList("", " ", "a", " a ", "a  b", "a\t\tb", "\ta \t b\r", "a \r b", "\u0001a b\u0001"))
+			assertEquals(line.replaceAll("[\t ]+", " ").trim(), CoNLLRDFSentenceReader.normalize(line), line);
+		Random random = new Random(42);
+		char[] chars = { 'a', ' ', '\t', '\r', '"' };
+		for (int i = 0; i < 1000; i++) {
+			StringBuilder line = new StringBuilder();
+			for (int j = random.nextInt(8); j > 0; j--)
+				line.append(chars[random.nextInt(chars.length)]);
+			assertEquals(line.toString().replaceAll("[\t ]+", " ").trim(), CoNLLRDFSentenceReader.normalize(line.toString()), line.toString());
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package org.acoli.conll.rdf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.cli.ParseException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CoNLLRDFShardsTest {
+
+	static void write(Path file, String conll) throws IOException {
+		if (file.toString().endsWith(".gz")) {
+			try (Writer out = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(file)), StandardCharsets.UTF_8)) {
+				out.write(conll);
+			}
+		} else {
+			Files.write(file, conll.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	static String read(Path file) throws IOException {
+		return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+	}
+
+	static String config(Path dir, String input) {
+		return "{\"input\":\"" + input + "\",\"output\":\"" + dir.resolve("out") + "\",\"merge\":\"" + dir.resolve("merged.ttl")
+				+ "\",\"parallel\":2,\"pipeline\":[{\"class\":\"CoNLLStreamExtractor\",\"baseURI\":\"http://example.org/corpus#\","
+				+ "\"columns\":[\"ID\",\"WORD\",\"HEAD\"]},{\"class\":\"CoNLLRDFFormatter\"}]}";
+	}
+
+	@Test
+	void givenShardURI_thenNameBeforeFragment() {
+		assertEquals("http://example.org/corpus/en-ud-dev#", CoNLLRDFShards.shardURI("http://example.org/corpus#", "en-ud-dev"));
+		assertEquals("http://example.org/corpus/en-ud-dev#", CoNLLRDFShards.shardURI("http://example.org/corpus/", "en-ud-dev"));
+		assertEquals("en-ud-dev", CoNLLRDFShards.shardName(Paths.get("ud/en-ud-dev.conllu.gz")));
+		assertEquals("README", CoNLLRDFShards.shardName(Paths.get("README")));
+	}
+
+	@Test
+	void givenGlob_thenShardsInOrderAndMerged(@TempDir Path dir) throws IOException, ParseException {
+		Files.createDirectories(dir.resolve("in/b"));
+		write(dir.resolve("in/b/two.conllu.gz"), "1\ttwo\t0\n");
+		write(dir.resolve("in/one.conllu"), "1\tone\t0\n\n1\tone\t0\n");
+		write(dir.resolve("in/notes.txt"), "not CoNLL\n");
+		String config = config(dir, dir.resolve("in") + "/**.conllu*");
+		assertTrue(CoNLLRDFShards.isSharded(config));
+
+		CoNLLRDFShards shards = CoNLLRDFShards.parseJsonConf(config);
+		assertEquals(Arrays.asList(dir.resolve("in/b/two.conllu.gz"), dir.resolve("in/one.conllu")), shards.getInputs());
+		assertTrue(shards.run());
+		String two = read(dir.resolve("out/two.ttl"));
+		String one = read(dir.resolve("out/one.ttl"));
+		assertTrue(two.contains("@prefix : <http://example.org/corpus/two#>"), two);
+		assertTrue(one.contains(":s2_1"), one);
+		assertEquals(two + one, read(dir.resolve("merged.ttl")));
+	}
+
+	@Test
+	void givenSplit_thenRangesAsShards(@TempDir Path dir) throws IOException, ParseException {
+		Files.createDirectories(dir.resolve("in"));
+		StringBuilder conll = new StringBuilder();
+		for (int i = 1; i <= 30; i++)
+			conll.append("# sent_id = ").append(i).append("\n1\tw").append(i).append("\t0\n\n");
+		write(dir.resolve("in/big.conllu"), conll.toString());
+		write(dir.resolve("in/small.conllu.gz"), "1\tsmall\t0\n");
+		String config = config(dir, dir.resolve("in").toString()).replace("\"parallel\":2", "\"parallel\":2,\"split\":3");
+
+		CoNLLRDFShards shards = CoNLLRDFShards.parseJsonConf(config);
+		List<String> names = new ArrayList<String>();
+		for (CoNLLRDFShards.Shard shard : shards.getShards())
+			names.add(shard.getName());
+		assertEquals(Arrays.asList("big-1", "big-2", "big-3", "small"), names);
+		assertTrue(shards.run());
+		String merged = read(dir.resolve("merged.ttl"));
+		for (int i = 1; i <= 30; i++)
+			assertTrue(merged.contains("\"w" + i + "\""), merged);
+		assertTrue(read(dir.resolve("out/big-2.ttl")).contains("@prefix : <http://example.org/corpus/big-2#>"));
+		assertTrue(merged.indexOf("\"w10\"") < merged.indexOf("\"w11\"") && merged.indexOf("\"w30\"") < merged.indexOf("\"small\""), merged);
+	}
+
+	@Test
+	void givenFailingShard_thenOtherShardsDoneAndNotMerged(@TempDir Path dir) throws IOException, ParseException {
+		Files.createDirectories(dir.resolve("in"));
+		write(dir.resolve("in/good.conllu"), "1\tgood\t0\n");
+		Files.write(dir.resolve("in/bad.conllu.gz"), "1\tnot gzipped\t0\n".getBytes(StandardCharsets.UTF_8));
+		String config = config(dir, dir.resolve("in").toString());
+		assertTrue(CoNLLRDFShards.isSharded(config));
+		assertFalse(CoNLLRDFShards.parseJsonConf(config).run());
+		assertTrue(read(dir.resolve("out/good.ttl")).contains("\"good\""));
+		assertFalse(Files.exists(dir.resolve("merged.ttl")));
+	}
+}
@@ -0,0 +1,82 @@
+package org.acoli.conll.rdf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.junit.jupiter.api.Test;
+
+public class CoNLLRDFTurtleWriterTest {
+
+	static Model model(String turtle) {
+		return ModelFactory.createDefaultModel().read(new StringReader(turtle), null, "TTL");
+	}
+
+	static final List<Model> SENTENCES = Arrays.asList(
+			model("@prefix : <http://example.org/a#> . @prefix nif: <http://persistence.uni-leipzig.org/nlp2rdf/ontologies/nif-core#> .\n"
+					+ ":s1_0 a nif:Sentence ; :next [ :x 1 ] ."),
+			model("@prefix : <http://example.org/a#> . @prefix nif: <http://persistence.uni-leipzig.org/nlp2rdf/ontologies/nif-core#> .\n"
+					+ ":s2_0 a nif:Sentence ."),
+			model("@prefix : <http://example.org/a#> . @prefix olia: <http://purl.org/olia/olia.owl#> .\n:s3_1 a olia:Noun ."),
+			model("@prefix : <http://example.org/b#> .\n:s4_0 :p \"q\" ."),
+			ModelFactory.createDefaultModel());
+
+	static String write(CoNLLRDFTurtleWriter writer, int i) throws IOException {
+		StringWriter out = new StringWriter();
+		writer.write(Collections.singletonList("# sent_id = " + (i + 1)), SENTENCES.get(i), out);
+		return out.toString();
+	}
+
+	@Test
+	void givenSentences_thenPrefixesDeclaredOnce() throws IOException {
+		CoNLLRDFTurtleWriter writer = new CoNLLRDFTurtleWriter();
+		StringWriter jena = new StringWriter();
+		SENTENCES.get(0).write(jena, "TTL");
+		assertEquals("# sent_id = 1\n" + jena, write(writer, 0));
+
+		String second = write(writer, 1);
+		assertFalse(second.contains("@prefix"), second);
+		assertTrue(second.contains(":s2_0"), second);
+		String third = write(writer, 2);
+		assertTrue(third.contains("@prefix olia:"), third);
+		assertFalse(third.contains("@prefix :"), third);
+		String fourth = write(writer, 3);
+		assertTrue(fourth.contains("<http://example.org/b#>"), fourth);
+		assertEquals("# sent_id = 5\n", write(writer, 4));
+
+		// without comments, the start of a sentence is marked by a prefix
+		StringWriter out = new StringWriter();
+		writer.write(Collections.<String>emptyList(), SENTENCES.get(2), out);
+		assertTrue(out.toString().startsWith("@prefix :"), out.toString());
+	}
+
+	@Test
+	void givenInheritedPrefixes_thenSentencesParsedOnTheirOwn() throws IOException {
+		CoNLLRDFTurtleWriter writer = new CoNLLRDFTurtleWriter();
+		Map<String, String> declared = new LinkedHashMap<String, String>();
+		for (int i = 0; i < SENTENCES.size(); i++) {
+			Model sentence = model(CoNLLRDFTurtleWriter.inheritPrefixes(write(writer, i), declared));
+			assertTrue(sentence.isIsomorphicWith(SENTENCES.get(i)), "sentence " + (i + 1));
+			for (Map.Entry<String, String> prefix : SENTENCES.get(i).getNsPrefixMap().entrySet())
+				assertEquals(prefix.getValue(), sentence.getNsPrefixURI(prefix.getKey()));
+		}
+		assertEquals("http://example.org/b#", model(CoNLLRDFTurtleWriter.inheritPrefixes("", declared)).getNsPrefixURI(""));
+
+		// sentences declaring all prefixes are not changed
+		String full = "@prefix : <http://example.org/a#> .\n:s1_0 :p 1 .\n";
+		declared.clear();
+		assertEquals(full, CoNLLRDFTurtleWriter.inheritPrefixes(full, declared));
+		assertEquals(full, CoNLLRDFTurtleWriter.inheritPrefixes(full, declared));
+	}
+}
@@ -56,6 +56,30 @@ public class CoNLLRDFUpdaterFactoryTest {
 		assertEquals(7, updater.getLookback());
 	}
 
+	// stats
+	@Test
+	void setStats() throws IOException, ParseException {
+		final CoNLLRDFUpdater updater = new CoNLLRDFUpdaterFactory().buildFromCLI(new String[] { "-stats", "10" });
+		assertEquals(10, updater.getStatsInterval());
+	}
+
+	// budget
+	@Test
+	void setBudget() throws IOException, ParseException {
+		final CoNLLRDFUpdater updater = new CoNLLRDFUpdaterFactory()
+				.buildFromCLI(new String[] { "-budget", "500", "-budgetIterations", "20", "-markAborted" });
+		assertEquals(500, updater.getTimeBudget());
+		assertEquals(20, updater.getIterationBudget());
+		assertEquals(true, updater.getMarkAborted());
+	}
+
+	// binary
+	@Test
+	void setBinary() throws IOException, ParseException {
+		assertEquals(true, new CoNLLRDFUpdaterFactory().buildFromCLI(new String[] { "-binary" }).getBinary());
+		assertEquals(false, new CoNLLRDFUpdaterFactory().buildFromCLI(new String[] {}).getBinary());
+	}
+
 	// prefixDeduplication
 	@Test
 	void setPrefixDeduplication() throws IOException, ParseException {
@@ -0,0 +1,117 @@
+package org.acoli.conll.rdf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.lang3.tuple.ImmutableTriple;
+import org.junit.jupiter.api.Test;
+
+public class CoNLLRDFUpdaterMetricsTest {
+
+	@Test
+	void givenValues_thenLog2Buckets() {
+		assertEquals(0, CoNLLRDFUpdaterMetrics.bucket(0));
+		assertEquals(1, CoNLLRDFUpdaterMetrics.bucket(1));
+		assertEquals(3, CoNLLRDFUpdaterMetrics.bucket(7));
+		assertEquals(4, CoNLLRDFUpdaterMetrics.bucket(8));
+		long[] histogram = new long[] { 0, 90, 0, 9, 1 };
+		assertEquals(1 + 50 / 90.0, CoNLLRDFUpdaterMetrics.percentile(histogram, 0.5, 12), 1e-9);
+		assertEquals(8, CoNLLRDFUpdaterMetrics.percentile(histogram, 0.99, 12), 1e-9);
+		// not above the maximum
+		assertEquals(12, CoNLLRDFUpdaterMetrics.percentile(histogram, 1, 12), 1e-9);
+		assertEquals(0, CoNLLRDFUpdaterMetrics.percentile(new long[4], 0.5, 0));
+	}
+
+	@Test
+	void givenRecords_thenStatistics() {
+		CoNLLRDFUpdaterMetrics metrics = new CoNLLRDFUpdaterMetrics(Arrays.asList("a", "b"), () -> 1, () -> 2, () -> 3);
+		metrics.recordUpdate(0, 2000000, 1, 1);
+		metrics.recordUpdate(0, 9000000, 2, 2);
+		metrics.recordUpdate(1, 1000, CoNLLRDFComponent.MAXITERATE, 2);
+		metrics.recordSentence(false);
+		metrics.recordSentence(true);
+
+		assertEquals(2, metrics.getSentences());
+		assertEquals(1, metrics.getFailedSentences());
+		CoNLLRDFUpdaterMetrics.UpdateStatistics a = metrics.getUpdates().get(0);
+		assertEquals(2, a.getSentences());
+		assertEquals(11, a.getTotalMillis());
+		assertEquals(9.0, a.getMaxMillis());
+		assertEquals(2, a.getSlowestSentence());
+		assertEquals(3, a.getIterations());
+		assertEquals(0, a.getMaxIterateHits());
+		assertEquals(1, a.getTimeHistogram()[CoNLLRDFUpdaterMetrics.bucket(9000)]);
+		assertTrue(a.getMedianMillis() >= 1 && a.getMedianMillis() <= a.getMaxMillis(), a.toString());
+		assertEquals(9.0, a.getP99Millis(), a.toString());
+		CoNLLRDFUpdaterMetrics.UpdateStatistics b = metrics.getUpdates().get(1);
+		assertEquals(1, b.getMaxIterateHits());
+		assertEquals(1, b.getIterationHistogram()[b.getIterationHistogram().length - 1]);
+
+		String line = metrics.getStatsLine();
+		assertTrue(line.contains("queued 1, lookahead 2, output 3"), line);
+		assertTrue(line.indexOf("| a:") < line.indexOf("| b:"), line);
+	}
+
+	@Test
+	void givenUpdaterRun_thenMetricsPerUpdate() throws IOException, ParseException, JMException {
+		CoNLLRDFUpdater updater = new CoNLLRDFUpdater("", "", 2);
+		updater.parseUpdates(Arrays.asList(
+				new ImmutableTriple<String, String, String>("once", "PREFIX : <http://example.org/> INSERT DATA { :a :b :c }", "1"),
+				new ImmutableTriple<String, String, String>("unbounded", "PREFIX : <http://example.org/> INSERT { [] :b :c } WHERE { }", "*")));
+		String ttl = "@prefix : <http://example.org/> ."
+				+ "\n@prefix nif: <http://persistence.uni-leipzig.org/nlp2rdf/ontologies/nif-core#> ."
+				+ "\n# 1\n:s1_0 a nif:Sentence .\n# 2\n:s2_0 a nif:Sentence .\n# 3\n:s3_0 a nif:Sentence .\n";
+		updater.setInputStream(new BufferedReader(new StringReader(ttl)));
+		updater.setOutputStream(new PrintStream(new ByteArrayOutputStream()));
+		assertNull(updater.getMetrics());
+		int registered = registered();
+		updater.processSentenceStream();
+
+		CoNLLRDFUpdaterMetrics metrics = updater.getMetrics();
+		assertEquals(3, metrics.getSentences());
+		assertEquals(0, metrics.getFailedSentences());
+		List<CoNLLRDFUpdaterMetrics.UpdateStatistics> updates = metrics.getUpdates();
+		assertEquals(2, updates.size());
+		assertEquals(3, updates.get(0).getSentences());
+		assertEquals(3, updates.get(0).getIterations());
+		assertEquals(0, updates.get(0).getMaxIterateHits());
+		assertEquals(3, updates.get(1).getMaxIterateHits());
+		assertEquals(CoNLLRDFComponent.MAXITERATE, updates.get(1).getMaxIterations());
+		assertEquals(registered, registered());
+	}
+
+	static int registered() throws JMException {
+		return ManagementFactory.getPlatformMBeanServer()
+				.queryNames(new ObjectName("org.acoli.conll.rdf:type=CoNLLRDFUpdater,*"), null).size();
+	}
+
+	@Test
+	void givenRegistered_thenAttributesOverJMX() throws JMException {
+		CoNLLRDFUpdaterMetrics metrics = new CoNLLRDFUpdaterMetrics(Arrays.asList("a"), () -> 0, () -> 0, () -> 0);
+		metrics.recordUpdate(0, 1000, 1, 1);
+		metrics.recordSentence(false);
+		metrics.register();
+		try {
+			ObjectName name = metrics.getObjectName();
+			assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Sentences"));
+			Object[] updates = (Object[]) ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Updates");
+			assertEquals(1, updates.length);
+		} finally {
+			metrics.unregister();
+		}
+	}
+}
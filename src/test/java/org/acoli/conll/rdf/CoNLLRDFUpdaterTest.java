@@ -0,0 +1,245 @@
+package org.acoli.conll.rdf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.lang3.tuple.ImmutableTriple;
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.shared.AddDeniedException;
+import org.apache.jena.tdb2.sys.DatabaseConnection;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CoNLLRDFUpdaterTest {
+	// the loop update never reaches a fixpoint on the second sentence
+	static final String TTL = "@prefix : <http://example.org/> ."
+			+ "\n@prefix nif: <http://persistence.uni-leipzig.org/nlp2rdf/ontologies/nif-core#> ."
+			+ "\n# sent_id = 1\n:s1_0 a nif:Sentence ."
+			+ "\n# sent_id = 2\n:s2_0 a nif:Sentence ; :loop true ."
+			+ "\n# sent_id = 3\n:s3_0 a nif:Sentence .\n";
+
+	// adds a node per iteration
+	static final String LOOP = "PREFIX : <http://example.org/> INSERT { ?s :next [] } WHERE { ?s :loop true }";
+	// doubles the nodes per iteration
+	static final String EXPLODE = "PREFIX : <http://example.org/> INSERT { ?o :next [] } WHERE { ?s :loop true . ?o ?p ?v }";
+
+	static CoNLLRDFUpdater updater(String loop) throws IOException, ParseException {
+		CoNLLRDFUpdater updater = new CoNLLRDFUpdater("", "", 2);
+		updater.parseUpdates(Arrays.asList(
+				new ImmutableTriple<String, String, String>("seen",
+						"PREFIX : <http://example.org/> PREFIX nif: <http://persistence.uni-leipzig.org/nlp2rdf/ontologies/nif-core#> "
+						+ "INSERT { ?s :seen true } WHERE { ?s a nif:Sentence }", "1"),
+				new ImmutableTriple<String, String, String>("loop", loop, "*")));
+		return updater;
+	}
+
+	static String update(CoNLLRDFUpdater updater) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		updater.setInputStream(new BufferedReader(new StringReader(TTL)));
+		updater.setOutputStream(new PrintStream(out));
+		updater.processSentenceStream();
+		return out.toString();
+	}
+
+	@Test
+	void givenFailingOutput_thenRunFails() throws IOException, ParseException {
+		CoNLLRDFUpdater updater = updater(LOOP);
+		StringBuilder ttl = new StringBuilder("@prefix : <http://example.org/> .\n");
+		for (int i = 1; i <= 100; i++)
+			ttl.append("# sent_id = ").append(i).append("\n:s").append(i).append("_0 :p ").append(i).append(" .\n");
+		updater.setInputStream(new BufferedReader(new StringReader(ttl.toString())));
+		updater.setOutputStream(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+				throw new IllegalStateException("output rejected");
+			}
+		}));
+		// the reader is released once the window is full instead of waiting for the writer
+		IOException e = assertTimeoutPreemptively(Duration.ofSeconds(60),
+				() -> assertThrows(IOException.class, updater::processSentenceStream));
+		assertTrue(e.getCause() instanceof IllegalStateException, e.toString());
+	}
+
+	@Test
+	void givenFailingInput_thenThreadsStopped() throws IOException, ParseException {
+		CoNLLRDFUpdater updater = updater(LOOP);
+		updater.setInputStream(new BufferedReader(new Reader() {
+			private final Reader ttl = new StringReader(TTL);
+
+			@Override
+			public int read(char[] cbuf, int off, int len) throws IOException {
+				int n = ttl.read(cbuf, off, Math.min(len, 10));
+				if (n < 0)
+					throw new IOException("input lost");
+				return n;
+			}
+
+			@Override
+			public void close() {
+			}
+		}));
+		updater.setOutputStream(new PrintStream(new ByteArrayOutputStream()));
+		assertThrows(IOException.class, updater::processSentenceStream);
+		assertNull(updater.getMetrics().getObjectName());
+		for (Thread t : Thread.getAllStackTraces().keySet())
+			assertFalse(t.getName().startsWith("CoNLLRDFUpdater-"), t.getName());
+	}
+
+	@Test
+	void givenWindows_thenNeighboursVisibleAndUnchanged() throws IOException, ParseException {
+		CoNLLRDFUpdater updater = new CoNLLRDFUpdater("", "", 2);
+		updater.activateLookahead(1);
+		updater.activateLookback(1);
+		String prefixes = "PREFIX : <http://example.org/> PREFIX nif: <http://persistence.uni-leipzig.org/nlp2rdf/ontologies/nif-core#> ";
+		updater.parseUpdates(Arrays.asList(
+				new ImmutableTriple<String, String, String>("link", prefixes + "INSERT { ?s :previous ?p } WHERE { ?s a nif:Sentence . "
+						+ "GRAPH <" + CoNLLRDFUpdater.LOOKBACK_GRAPH + "> { ?p a nif:Sentence } }", "1"),
+				new ImmutableTriple<String, String, String>("consume", prefixes + "DELETE { GRAPH <" + CoNLLRDFUpdater.LOOKAHEAD_GRAPH
+						+ "> { ?n a nif:Sentence } } INSERT { ?s :next ?n } WHERE { ?s a nif:Sentence . "
+						+ "GRAPH <" + CoNLLRDFUpdater.LOOKAHEAD_GRAPH + "> { ?n a nif:Sentence } }", "1")));
+		String[] sentences = update(updater).split("(?=# sent_id = )");
+		assertEquals(3, sentences.length);
+		assertTrue(links(sentences[0], ":s1_0 :next :s2_0"), sentences[0]);
+		assertFalse(sentences[0].contains(":previous"), sentences[0]);
+		// the deletion from the lookahead of sentence 1 is not seen by the others
+		assertTrue(links(sentences[1], ":s2_0 :previous :s1_0 ; :next :s3_0"), sentences[1]);
+		assertTrue(links(sentences[2], ":s3_0 :previous :s2_0"), sentences[2]);
+	}
+
+	/** whether an output sentence contains the given triples */
+	static boolean links(String sentence, String triples) {
+		Model model = new CoNLLRDFSentence(sentence).getModel();
+		return model.containsAll(CoNLLRDFTurtleWriterTest.model("@prefix : <http://example.org/> . " + triples + " ."));
+	}
+
+	@Test
+	void givenModel_thenSharedReadOnlyInAllModes(@TempDir Path dir) throws IOException, ParseException {
+		Path model = dir.resolve("model.ttl");
+		Files.write(model, "<http://example.org/a> <http://example.org/b> \"model\" .\n".getBytes(StandardCharsets.UTF_8));
+		String graph = "http://example.org/model";
+		for (String type : Arrays.asList("MEM", "TXN")) {
+			CoNLLRDFUpdater updater = new CoNLLRDFUpdater(type, "", 2);
+			updater.loadGraph(model.toUri(), URI.create(graph));
+			updater.parseUpdates(Arrays.asList(new ImmutableTriple<String, String, String>("write",
+					"PREFIX : <http://example.org/> INSERT { GRAPH <" + graph + "> { ?s :loop true } } WHERE { ?s :loop true }", "1")));
+			update(updater);
+			assertEquals(1, updater.getGraph(graph).size(), type);
+
+			Dataset one = updater.createThreadDataset();
+			Dataset two = updater.createThreadDataset();
+			assertSame(one.getNamedModel(graph).getGraph(), two.getNamedModel(graph).getGraph(), type);
+			Model shared = one.getNamedModel(graph);
+			assertThrows(AddDeniedException.class, () -> shared.add(shared.createResource(), shared.createProperty(graph), "x"), type);
+		}
+	}
+
+	static CoNLLRDFUpdater tdb2(Path dir, URI model) throws IOException, ParseException {
+		CoNLLRDFUpdater updater = new CoNLLRDFUpdater("TDB2", dir.resolve("db").toString(), 2);
+		updater.loadGraph(model, URI.create("http://example.org/model"));
+		updater.parseUpdates(Arrays.asList(new ImmutableTriple<String, String, String>("model",
+				"PREFIX : <http://example.org/> INSERT { ?s :seen ?o } WHERE { ?s :loop true . GRAPH <http://example.org/model> { :a :b ?o } }", "1")));
+		return updater;
+	}
+
+	@Test
+	void givenTDB2_thenModelStoredOnce(@TempDir Path dir) throws IOException, ParseException {
+		Path model = dir.resolve("model.ttl");
+		Files.write(model, "<http://example.org/a> <http://example.org/b> \"stored\" .\n".getBytes(StandardCharsets.UTF_8));
+		CoNLLRDFUpdater updater = tdb2(dir, model.toUri());
+		assertTrue(updater.hasGraph("http://example.org/model"));
+		String out = update(updater);
+		assertTrue(links(out.split("(?=# sent_id = )")[1], ":s2_0 :seen \"stored\""), out);
+		// the database is released after the run
+		assertFalse(DatabaseConnection.lockForLocation(Location.create(dir.resolve("db").toString())).isLockedHere());
+
+		// a later run uses the stored graph
+		assertEquals(out, update(tdb2(dir, model.toUri())));
+
+		// unless the model file changed
+		Files.write(model, "<http://example.org/a> <http://example.org/b> \"changed!\" .\n".getBytes(StandardCharsets.UTF_8));
+		out = update(tdb2(dir, model.toUri()));
+		assertTrue(links(out.split("(?=# sent_id = )")[1], ":s2_0 :seen \"changed!\""), out);
+		assertFalse(out.contains("stored"), out);
+
+		// a deleted model file leaves the stored graph in place
+		Files.delete(model);
+		assertEquals(out, update(tdb2(dir, model.toUri())));
+	}
+
+	@Test
+	void givenIterationBudget_thenSentenceUnmodified() throws IOException, ParseException {
+		CoNLLRDFUpdater updater = updater(LOOP);
+		updater.setIterationBudget(10);
+		String out = update(updater);
+		String[] sentences = out.split("# sent_id = ");
+		assertEquals(4, sentences.length, out);
+		assertTrue(sentences[1].contains(":seen"), out);
+		assertFalse(sentences[2].contains(":seen"), out);
+		assertFalse(sentences[2].contains(":next"), out);
+		assertFalse(sentences[2].contains("CoNLLRDFUpdater"), out);
+		assertTrue(sentences[3].contains(":seen"), out);
+		assertEquals(1, updater.getMetrics().getAbortedSentences());
+		assertEquals(10, updater.getMetrics().getUpdates().get(1).getMaxIterations());
+	}
+
+	@Test
+	void givenTimeBudget_thenSentenceMarked() throws IOException, ParseException {
+		CoNLLRDFUpdater updater = updater(EXPLODE);
+		updater.setTimeBudget(200);
+		updater.setMarkAborted(true);
+		String out = update(updater);
+		String[] sentences = out.split("# sent_id = ");
+		assertTrue(sentences[2].contains("# CoNLLRDFUpdater: time budget of 200 ms exceeded at update No. 2"), out);
+		assertFalse(sentences[2].contains(":next"), out);
+		assertEquals(0, updater.getMetrics().getUpdates().get(1).getMaxIterateHits());
+	}
+
+	@Test
+	void givenNoBudget_thenMaxIterate() throws IOException, ParseException {
+		CoNLLRDFUpdater updater = updater(LOOP);
+		String out = update(updater);
+		assertTrue(out.split("# sent_id = ")[2].contains(":next"), out);
+		assertEquals(0, updater.getMetrics().getAbortedSentences());
+		assertEquals(1, updater.getMetrics().getUpdates().get(1).getMaxIterateHits());
+	}
+
+	@Test
+	void givenPrefixDeduplication_thenPrefixesOnceAndSameSentences() throws IOException, ParseException {
+		String[] expected = update(updater(LOOP)).split("(?=# sent_id = )");
+		CoNLLRDFUpdater updater = updater(LOOP);
+		updater.activatePrefixDeduplication();
+		String out = update(updater);
+		assertEquals(1, out.split("@prefix nif:", -1).length - 1, out);
+		String[] sentences = out.split("(?=# sent_id = )");
+		assertEquals(expected.length, sentences.length, out);
+		Map<String, String> prefixes = new LinkedHashMap<String, String>();
+		for (int i = 0; i < sentences.length; i++) {
+			Model sentence = new CoNLLRDFSentence(CoNLLRDFTurtleWriter.inheritPrefixes(sentences[i], prefixes)).getModel();
+			assertTrue(sentence.isIsomorphicWith(new CoNLLRDFSentence(expected[i]).getModel()), sentences[i]);
+		}
+	}
+}
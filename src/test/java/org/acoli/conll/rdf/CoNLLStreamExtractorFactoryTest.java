@@ -27,6 +27,15 @@ public class CoNLLStreamExtractorFactoryTest {
         });
     }
 
+	// binary output is only produced without -s
+	@Test
+	void binaryWithSelect() throws ParseException, IOException {
+		assertEquals(true, new CoNLLStreamExtractorFactory().buildFromCLI(new String[] { "url", "WORD", "-binary" }).getBinary());
+		assertThrows(ParseException.class, () -> {
+			new CoNLLStreamExtractorFactory().buildFromCLI(new String[] { "url", "WORD", "-binary", "-s", "SELECT * WHERE { ?s ?p ?o }" });
+		});
+	}
+
 	// column label (with dash) in cli-args
 	@Test
 	void CoNLLColumnLabelWithDash() throws ParseException, IOException {
@@ -90,4 +99,17 @@ public class CoNLLStreamExtractorFactoryTest {
 
 		assertEquals(expected, extractor.getSelect());
 	}
+
+	@Test
+	void optionThreads() throws ParseException, IOException {
+		CoNLLStreamExtractor extractor = new CoNLLStreamExtractorFactory().buildFromCLI(new String [] {"url", "WORD", "-threads", "4"});
+		assertEquals(4, extractor.getThreads());
+		assertEquals(1, new CoNLLStreamExtractorFactory().buildFromCLI(new String [] {"url", "WORD"}).getThreads());
+	}
+
+	@Test
+	void optionPrefixDeduplication() throws ParseException, IOException {
+		assertEquals(true, new CoNLLStreamExtractorFactory().buildFromCLI(new String [] {"url", "WORD", "-prefixDeduplication"}).getPrefixDeduplication());
+		assertEquals(false, new CoNLLStreamExtractorFactory().buildFromCLI(new String [] {"url", "WORD"}).getPrefixDeduplication());
+	}
 }
@@ -0,0 +1,78 @@
+package org.acoli.conll.rdf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+public class CoNLLStreamExtractorTest {
+	static String extract(String conll, int threads, String select) throws IOException {
+		return extract(conll, threads, select, false);
+	}
+
+	static String extract(String conll, int threads, String select, boolean prefixDeduplication) throws IOException {
+		CoNLLStreamExtractor extractor = new CoNLLStreamExtractor();
+		if (prefixDeduplication)
+			extractor.activatePrefixDeduplication();
+		extractor.setBaseURI("http://example.org/corpus#");
+		extractor.setColumns(Arrays.asList("ID", "WORD", "HEAD"));
+		extractor.setThreads(threads);
+		extractor.setSelect(select);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		extractor.setInputStream(new BufferedReader(new StringReader(conll)));
+		extractor.setOutputStream(new PrintStream(bytes));
+		extractor.processSentenceStream();
+		return bytes.toString();
+	}
+
+	static String corpus() {
+		StringBuilder conll = new StringBuilder("# global comment\n\n");
+		for (int s = 1; s <= 40; s++) {
+			conll.append("# sent_id = " + s + "\n");
+			for (int t = 1; t <= s % 7 + 1; t++)
+				conll.append(t + "\tw" + t + "\t" + (t - 1) + "\n");
+			conll.append(s % 10 == 0 ? "# comment only\n\n\n" : "\n");
+		}
+		return conll.append("1\tlast\t0\n# trailing comment\n").toString();
+	}
+
+	@Test
+	void givenThreads_thenSameTurtleAsSequential() throws IOException {
+		assertEquals(extract(corpus(), 1, null), extract(corpus(), 4, null));
+	}
+
+	@Test
+	void givenThreads_thenSameSelectAsSequential() throws IOException {
+		String select = "SELECT ?word WHERE { ?w <http://ufal.mff.cuni.cz/conll2009-st/task-description.html#WORD> ?word }";
+		assertEquals(extract(corpus(), 1, select), extract(corpus(), 4, select));
+	}
+
+	@Test
+	void givenPrefixDeduplication_thenPrefixesOnceAndSameFormatterOutput() throws IOException {
+		String turtle = extract(corpus(), 1, null);
+		String deduplicated = extract(corpus(), 1, null, true);
+		assertEquals(deduplicated, extract(corpus(), 4, null, true));
+		// the prefixes of the first block only, all sentences start with comments
+		int prefixes = turtle.substring(0, turtle.indexOf("# sent_id")).split("@prefix", -1).length - 1;
+		assertEquals(prefixes, deduplicated.split("@prefix", -1).length - 1);
+		assertTrue(deduplicated.length() < turtle.length() * 2 / 3);
+		assertEquals(format(turtle), format(deduplicated));
+	}
+
+	static String format(String turtle) throws IOException {
+		CoNLLRDFFormatter formatter = new CoNLLRDFFormatter();
+		formatter.addModule(CoNLLRDFFormatter.Mode.CONLLRDF);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		formatter.setInputStream(new BufferedReader(new StringReader(turtle)));
+		formatter.setOutputStream(new PrintStream(bytes));
+		formatter.processSentenceStream();
+		return bytes.toString();
+	}
+}
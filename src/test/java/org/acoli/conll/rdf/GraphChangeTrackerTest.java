@@ -0,0 +1,65 @@
+package org.acoli.conll.rdf;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.update.UpdateAction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class GraphChangeTrackerTest {
+	Model model;
+	Resource s;
+	Property p;
+	GraphChangeTracker tracker;
+
+	@BeforeEach
+	void init() {
+		model = ModelFactory.createDefaultModel();
+		s = model.createResource("http://x.org/s");
+		p = model.createProperty("http://x.org/p");
+		model.add(s, p, "a");
+		tracker = new GraphChangeTracker(model);
+	}
+
+	@AfterEach
+	void close() {
+		tracker.unregister();
+	}
+
+	@Test
+	void whenTripleAdded_thenChanged() {
+		model.add(s, p, "b");
+		assertTrue(tracker.hasChanged());
+		assertFalse(tracker.hasChanged());
+	}
+
+	@Test
+	void whenExistingTripleAdded_thenNotChanged() {
+		model.add(s, p, "a");
+		assertFalse(tracker.hasChanged());
+	}
+
+	@Test
+	void whenTripleReplacedByItself_thenNotChanged() {
+		UpdateAction.parseExecute("DELETE { ?s ?p ?o } INSERT { ?s ?p ?o } WHERE { ?s ?p ?o }", model);
+		assertFalse(tracker.hasChanged());
+	}
+
+	@Test
+	void whenTripleReplaced_thenChanged() {
+		UpdateAction.parseExecute("DELETE { ?s ?p \"a\" } INSERT { ?s ?p \"b\" } WHERE { ?s ?p \"a\" }", model);
+		assertTrue(tracker.hasChanged());
+	}
+
+	@Test
+	void whenRemoveAll_thenChanged() {
+		model.removeAll();
+		assertTrue(tracker.hasChanged());
+	}
+}